@@ -0,0 +1,125 @@
+package tud.ai1.pacman.model;
+
+import tud.ai1.pacman.util.Consts;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Schreibt Spielstaende in einem Hintergrund-Thread, der aufrufende Thread
+ * bezahlt nur das Erzeugen des {@link GameSnapshot}. Kommen neue
+ * Spielstaende schneller, als sie geschrieben werden koennen, wird nur der
+ * neueste geschrieben.
+ *
+ * @author Thanh Son Bui
+ */
+public class AutoSaver {
+    /** gemeinsamer Speicherer fuer {@link Consts#SAVE_FILE}, wird bei Bedarf angelegt */
+    private static AutoSaver shared;
+
+    /** Datei des Spielstands */
+    private final Path file;
+    /** schreibt im Hintergrund */
+    private final BackgroundWriter writer = new BackgroundWriter("AutoSaver");
+    /** neuester noch nicht geschriebener Spielstand */
+    private final AtomicReference<GameSnapshot> pending = new AtomicReference<>();
+    /** Anzahl der durch neuere ersetzten Spielstaende */
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * Konstruktor.
+     *
+     * @param file Datei des Spielstands
+     */
+    public AutoSaver(Path file) {
+        if (file == null)
+            throw new IllegalArgumentException("Es wurde keine Datei uebergeben!");
+        this.file = file;
+    }
+
+    /**
+     * @return gemeinsamer Speicherer fuer die Datei {@link Consts#SAVE_FILE}
+     */
+    public static synchronized AutoSaver getShared() {
+        if (shared == null)
+            shared = new AutoSaver(Paths.get(Consts.SAVE_FILE));
+        return shared;
+    }
+
+    /**
+     * Gibt den Spielstand zum Schreiben im Hintergrund ab und kehrt sofort
+     * zurueck. Ein noch nicht geschriebener aelterer Spielstand wird verworfen.
+     *
+     * @param snapshot der zu speichernde Spielstand
+     */
+    public void save(GameSnapshot snapshot) {
+        if (snapshot == null)
+            throw new IllegalArgumentException("Es wurde kein Spielstand uebergeben!");
+        if (pending.getAndSet(snapshot) == null)
+            writer.execute("Spielstand " + file, this::writePending);
+        else
+            skipped.incrementAndGet();
+    }
+
+    /**
+     * Wartet, bis alle abgegebenen Spielstaende geschrieben sind.
+     */
+    public void flush() {
+        writer.flush();
+    }
+
+    /**
+     * Verwirft ausstehende Spielstaende und loescht die Datei.
+     *
+     * @throws IOException falls die Datei nicht geloescht werden kann
+     */
+    public void delete() throws IOException {
+        pending.set(null);
+        flush();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * @return true <-> ein Spielstand liegt vor oder wird gerade geschrieben
+     */
+    public boolean hasSave() {
+        return pending.get() != null || Files.isRegularFile(file);
+    }
+
+    /**
+     * @return Anzahl der geschriebenen Spielstaende
+     */
+    public long getWritten() {
+        return writer.getWritten();
+    }
+
+    /**
+     * @return Anzahl der Spielstaende, die vor dem Schreiben durch neuere ersetzt wurden
+     */
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * @return Anzahl der fehlgeschlagenen Schreibvorgaenge
+     */
+    public long getFailed() {
+        return writer.getFailed();
+    }
+
+    /**
+     * Schreibt den neuesten ausstehenden Spielstand, laeuft im Hintergrund-Thread.
+     *
+     * @return false <-> der Spielstand wurde inzwischen verworfen
+     */
+    private boolean writePending() throws IOException {
+        GameSnapshot snapshot = pending.getAndSet(null);
+        if (snapshot == null) return false;
+        SaveFile.write(file, snapshot);
+        return true;
+    }
+}
@@ -0,0 +1,104 @@
+package tud.ai1.pacman.model;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hintergrund-Thread zum Schreiben von Dateien, gemeinsam genutzt von
+ * {@link AutoSaver} und {@link ReplayWriter}. Die Aufgaben laufen der Reihe
+ * nach in einem Thread niedriger Prioritaet, der nach kurzer Untaetigkeit
+ * endet. Fehlgeschlagene Aufgaben werden protokolliert und gezaehlt.
+ *
+ * @author Thanh Son Bui
+ */
+public class BackgroundWriter {
+
+    /**
+     * Eine Schreibaufgabe.
+     */
+    @FunctionalInterface
+    public interface Task {
+        /**
+         * @return true <-> es wurde etwas geschrieben, false falls nichts zu tun war
+         * @throws IOException bei Schreibfehlern
+         */
+        boolean write() throws IOException;
+    }
+
+    /** Hintergrund-Thread, endet nach kurzer Untaetigkeit */
+    private final ThreadPoolExecutor executor;
+    /** Anzahl der erfolgreichen Schreibvorgaenge */
+    private final AtomicLong written = new AtomicLong();
+    /** Anzahl der fehlgeschlagenen Schreibvorgaenge */
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Konstruktor.
+     *
+     * @param name Name des Hintergrund-Threads
+     */
+    public BackgroundWriter(String name) {
+        if (name == null)
+            throw new IllegalArgumentException("Es wurde kein Name uebergeben!");
+        executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            // kein daemon, damit ausstehende daten beim normalen beenden noch geschrieben werden
+            Thread t = new Thread(r, name);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Reiht eine Schreibaufgabe ein und kehrt sofort zurueck.
+     *
+     * @param description Beschreibung des Geschriebenen fuer die Fehlermeldung, z. B. Art und Datei
+     * @param task die Schreibaufgabe
+     */
+    public void execute(String description, Task task) {
+        if (task == null)
+            throw new IllegalArgumentException("Es wurde keine Aufgabe uebergeben!");
+        executor.execute(() -> {
+            try {
+                if (task.write())
+                    written.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                System.err.println(description + " konnte nicht geschrieben werden: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Wartet, bis alle eingereihten Aufgaben erledigt sind.
+     */
+    public void flush() {
+        try {
+            // der thread arbeitet der reihe nach, danach ist alles vorherige erledigt
+            executor.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // die leere aufgabe wirft nichts
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return Anzahl der erfolgreichen Schreibvorgaenge
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @return Anzahl der fehlgeschlagenen Schreibvorgaenge
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+}
@@ -0,0 +1,107 @@
+package tud.ai1.pacman.model;
+
+import tud.ai1.pacman.model.level.Level;
+
+import java.util.Arrays;
+
+/**
+ * Kuerzeste Wegstrecke jeder Rasterzelle eines Levels zur naechsten von
+ * mehreren Quellzellen, berechnet per Breitensuche ueber die begehbaren
+ * Zellen (mit Umbruch am Levelrand). Ein Feld wird einmal berechnet und
+ * kann dann von beliebig vielen Entitaeten abgefragt werden.
+ *
+ * @author Thanh Son Bui
+ */
+public class DistanceField {
+    /** X-Versatz je Bit in {@link Level#getWalkableMask(int, int)} */
+    private static final int[] DX = Level.BRANCH_DX;
+    /** Y-Versatz je Bit in {@link Level#getWalkableMask(int, int)} */
+    private static final int[] DY = Level.BRANCH_DY;
+
+    /** Level, fuer den das Feld berechnet wird */
+    private Level level;
+    /** Breite des Levels */
+    private int width;
+    /** Hoehe des Levels */
+    private int height;
+    /** Entfernung je Zelle (y * width + x), -1 = nicht erreichbar */
+    private int[] distances = new int[0];
+    /** Warteschlange der Breitensuche */
+    private int[] queue = new int[0];
+    /** Anzahl der Zellen in der Warteschlange */
+    private int tail;
+
+    /**
+     * Leert das Feld fuer eine neue Berechnung. Danach werden die Quellen mit
+     * {@link #addSource(int, int)} eingetragen und mit {@link #propagate()}
+     * die Entfernungen berechnet.
+     *
+     * @param level der Level
+     */
+    public void clear(Level level) {
+        if (level == null)
+            throw new IllegalArgumentException("Es wurde kein Level uebergeben!");
+        this.level = level;
+        width = level.getWidth();
+        height = level.getHeight();
+        // puffer nur bei groesseren leveln neu anlegen
+        if (distances.length < width * height) {
+            distances = new int[width * height];
+            queue = new int[width * height];
+        }
+        Arrays.fill(distances, 0, width * height, -1);
+        tail = 0;
+    }
+
+    /**
+     * Traegt eine Quelle mit Entfernung 0 ein. Koordinaten ausserhalb des
+     * Levels werden umgebrochen, solide Zellen ignoriert.
+     *
+     * @param x X-Koordinate
+     * @param y Y-Koordinate
+     */
+    public void addSource(int x, int y) {
+        if (level == null)
+            throw new IllegalStateException("Das Feld wurde noch nicht geleert!");
+        x = Math.floorMod(x, width);
+        y = Math.floorMod(y, height);
+        int c = y * width + x;
+        if (distances[c] != -1 || level.isSolid(x, y)) return;
+        distances[c] = 0;
+        queue[tail++] = c;
+    }
+
+    /**
+     * Berechnet die Entfernungen aller Zellen zur naechsten Quelle.
+     */
+    public void propagate() {
+        for (int head = 0; head < tail; head++) {
+            int c = queue[head];
+            int x = c % width, y = c / width;
+            int walkable = level.getWalkableMask(x, y);
+            for (int d = 0; d < 4; d++) {
+                if ((walkable & (1 << d)) == 0) continue;
+                int n = Math.floorMod(y + DY[d], height) * width + Math.floorMod(x + DX[d], width);
+                if (distances[n] != -1) continue;
+                distances[n] = distances[c] + 1;
+                queue[tail++] = n;
+            }
+        }
+    }
+
+    /**
+     * @return Level, fuer den das Feld zuletzt berechnet wurde
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * @param x X-Koordinate, wird am Levelrand umgebrochen
+     * @param y Y-Koordinate, wird am Levelrand umgebrochen
+     * @return Entfernung zur naechsten Quelle in Feldern, -1 falls nicht erreichbar
+     */
+    public int get(int x, int y) {
+        return distances[Math.floorMod(y, height) * width + Math.floorMod(x, width)];
+    }
+}
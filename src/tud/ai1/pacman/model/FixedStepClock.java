@@ -0,0 +1,69 @@
+package tud.ai1.pacman.model;
+
+import tud.ai1.pacman.util.Consts;
+
+/**
+ * Zeitgeber mit festem Zeitschritt. Die Zeit laeuft nur weiter, wenn
+ * {@link #advance()} aufgerufen wird. Dadurch ist die Simulation
+ * reproduzierbar und kann beliebig schnell ablaufen.
+ *
+ * @author Thanh Son Bui
+ */
+public class FixedStepClock implements GameClock {
+    /** Laenge eines Simulationsschritts in Nanosekunden */
+    private final long step;
+    /** aktuelle Spielzeit in Nanosekunden */
+    private long time;
+
+    /**
+     * Konstruktor.
+     * Verwendet die Standard-Schrittweite {@link Consts#TICK_TIME}.
+     */
+    public FixedStepClock() {
+        this(Consts.TICK_TIME);
+    }
+
+    /**
+     * Konstruktor.
+     *
+     * @param step Laenge eines Simulationsschritts in Nanosekunden
+     */
+    public FixedStepClock(long step) {
+        if (step <= 0)
+            throw new IllegalArgumentException("Die Schrittweite muss positiv sein!");
+        this.step = step;
+        time = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void advance() {
+        time += step;
+    }
+
+    /**
+     * @return Laenge eines Simulationsschritts in Nanosekunden
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * Setzt die Spielzeit auf einen bestimmten Wert.
+     *
+     * @param time neue Spielzeit in Nanosekunden
+     */
+    public void setTime(long time) {
+        this.time = time;
+    }
+}
@@ -0,0 +1,21 @@
+package tud.ai1.pacman.model;
+
+/**
+ * Zeitgeber der Spielsimulation. Alle Bewegungen und Item-Laufzeiten
+ * richten sich nach der Zeit dieses Zeitgebers.
+ *
+ * @author Thanh Son Bui
+ */
+public interface GameClock {
+
+    /**
+     * @return die aktuelle Spielzeit in Nanosekunden
+     */
+    long getTime();
+
+    /**
+     * Schaltet den Zeitgeber um einen Simulationsschritt weiter.
+     * Echtzeit-Zeitgeber ignorieren diesen Aufruf.
+     */
+    void advance();
+}
@@ -0,0 +1,90 @@
+package tud.ai1.pacman.model;
+
+import tud.ai1.pacman.model.level.Level;
+import tud.ai1.pacman.model.level.LevelSequence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Unveraenderliche Momentaufnahme eines laufenden Spiels zum Speichern.
+ * Der Zustand des Spiels wird beim Erzeugen mit
+ * {@link PacmanGame#saveState(DataOutputStream)} kopiert, die Level werden
+ * nur referenziert. Sie werden waehrend des Spiels nicht veraendert und
+ * koennen daher spaeter in einem anderen Thread geschrieben werden.
+ *
+ * @author Thanh Son Bui
+ */
+public final class GameSnapshot {
+    /** alle Level des Spiels */
+    private final LevelSequence levels;
+    /** Index des aktuellen Levels */
+    private final int currentLevel;
+    /** Level des Spiels */
+    private final Level level;
+    /** Zustand des Spiels ohne Level */
+    private final byte[] state;
+
+    /**
+     * Konstruktor.
+     * Kopiert den aktuellen Zustand des Spiels.
+     *
+     * @param levels alle Level des Spiels
+     * @param currentLevel Index des aktuellen Levels
+     * @param game das laufende Spiel
+     * @throws IOException falls der Zustand nicht geschrieben werden kann
+     */
+    public GameSnapshot(LevelSequence levels, int currentLevel, PacmanGame game) throws IOException {
+        if (levels == null || game == null)
+            throw new IllegalArgumentException("Level und Spiel muessen angegeben werden!");
+        if (currentLevel < 0 || currentLevel >= levels.size())
+            throw new IllegalArgumentException("Ungueltiger Index des aktuellen Levels: " + currentLevel);
+        this.levels = levels;
+        this.currentLevel = currentLevel;
+        this.level = game.getLevel();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream s = new DataOutputStream(bytes);
+        game.saveState(s);
+        s.flush();
+        this.state = bytes.toByteArray();
+    }
+
+    /**
+     * @return alle Level des Spiels, noch nicht geladene werden beim Zugriff geladen
+     */
+    public LevelSequence getLevels() {
+        return levels;
+    }
+
+    /**
+     * @return Index des aktuellen Levels
+     */
+    public int getCurrentLevel() {
+        return currentLevel;
+    }
+
+    /**
+     * @return Level des Spiels
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * @return Groesse des kopierten Zustands in Bytes
+     */
+    public int getStateSize() {
+        return state.length;
+    }
+
+    /**
+     * Schreibt den kopierten Zustand, wie {@link PacmanGame#saveState}.
+     *
+     * @param s der Stream, in dem die Daten geschrieben werden
+     * @throws IOException bei Schreibfehlern
+     */
+    public void writeState(DataOutputStream s) throws IOException {
+        s.write(state);
+    }
+}
@@ -2,8 +2,8 @@ package tud.ai1.pacman.model;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import tud.ai1.pacman.util.Consts;
@@ -19,9 +19,9 @@ import tud.ai1.pacman.util.FileOperations;
 public class Highscore
 {
     /** 
-     * Highscore-Eintraege
+     * Highscore-Eintraege, sortiert und nicht auf die angezeigten Eintraege beschraenkt
      */
-    private final List<HighscoreEntry> highscoreEntries;
+    private final Leaderboard highscoreEntries;
 
 	/**
 	 * Einzige Instanz eines {@link Highscore_ML} 
@@ -49,7 +49,7 @@ public class Highscore
      */
     private Highscore() 
     {
-        this.highscoreEntries = new ArrayList<>();
+        this.highscoreEntries = new Leaderboard();
         initFile();
         initHighscores();
     }
@@ -73,10 +73,8 @@ public class Highscore
     }
     
     /**
-     * Hilfsmethode die Eintraege der Highscore Datei der Liste von Highscores hinzufuegt 
-     * und dann die Liste sortiert. Falls in der Datei zu viele Eintraege stehen,
-     * werden nur so viele Eintraege hinzugefuegt, bis die Liste 
-     * ihre maximale Laenge erreicht hat.
+     * Hilfsmethode die alle Eintraege der Highscore Datei der Rangliste hinzufuegt.
+     * Die Rangliste sortiert beim Einfuegen, die Anzahl der Eintraege ist nicht beschraenkt.
      *
      */
     private void initHighscores()
@@ -88,53 +86,90 @@ public class Highscore
         	return;
         
         for (String line : lines) 
-            if (this.highscoreEntries.size() < Consts.HIGHSCORE_DISPLAYED_ENTRIES)
-            	this.highscoreEntries.add(new HighscoreEntry(line));
-        
-        Collections.sort(this.highscoreEntries);
+            this.highscoreEntries.add(new HighscoreEntry(line));
     }
     
     /**
-     * Diese Methode prueft, ob fuer die erspielte Punktzahl 
-     * ein Eintrag erstellt werden wuerde
+     * Diese Methode prueft, ob ein Eintrag fuer die erspielte Punktzahl 
+     * unter den angezeigten Eintraegen stehen wuerde
      * 
      * @param points erspielte Punktzahl
      * @return true wenn die Punktzahl ein neuer Highscore ist
      */
 	public boolean checkNewEntry(int points) 
 	{
-		if (this.highscoreEntries.isEmpty() 
-			|| this.highscoreEntries.size() < Consts.HIGHSCORE_DISPLAYED_ENTRIES)
-			return true;
-		
-		int threshold = this.highscoreEntries.get(this.highscoreEntries.size() - 1).getPoints();
-		
-		return points > threshold;
+		return this.getRank(points) < Consts.HIGHSCORE_DISPLAYED_ENTRIES;
+	}
+
+    /**
+     * Rang, den ein neuer Eintrag mit der erspielten Punktzahl bekaeme.
+     * Bei gleicher Punktzahl steht der neue Eintrag hinter den vorhandenen.
+     * 
+     * @param points erspielte Punktzahl
+     * @return Rang des Eintrags, 0 ist der beste
+     */
+	public int getRank(int points) 
+	{
+		return this.highscoreEntries.rankOf(points);
 	}
 
     /**
-     * Fuegt den HighscoreEntries einen Eintrag hinzu und sortiert die Liste.
-     * Falls die maximal Anzahl an Eintraegen ueberschritten wurde, 
-     * wird die Liste wieder auf die maximale Anzahl gekuerzt.
-     * Danach wird die neue Liste in die Datei gespeichert.
+     * Fuegt den HighscoreEntries einen Eintrag an seinem Rang hinzu.
+     * Es werden keine Eintraege verworfen, die Anzeige beschraenkt sich 
+     * auf die besten {@link Consts#HIGHSCORE_DISPLAYED_ENTRIES}.
      *
      * @param entry der neue Highscore Eintrag
+     * @return Rang des neuen Eintrags, 0 ist der beste
      */
-    public void addHighscore(final HighscoreEntry entry) 
+    public int addHighscore(final HighscoreEntry entry) 
     {
     	if (entry == null)
     		throw new IllegalArgumentException("Es wurde null als HighscoreEntry uebergeben!");
     	
-    	this.highscoreEntries.add(entry);
+    	return this.highscoreEntries.add(entry);
+    }
 
-        Collections.sort(this.highscoreEntries);
-        
-        if (this.highscoreEntries.size() > Consts.HIGHSCORE_DISPLAYED_ENTRIES)
-        	this.highscoreEntries.remove(this.highscoreEntries.size() - 1);
+    /**
+     * Haengt einen neuen Eintrag als Zeile an die Highscore-Datei an, statt
+     * die ganze Datei neu zu schreiben. Die Reihenfolge der Zeilen spielt
+     * keine Rolle, beim Einlesen wird sortiert.
+     * 
+     * @param filepath Ein in einem String uebergebener Dateiname oder Pfad.
+     * @param entry der anzuhaengende Eintrag
+     */
+    public void appendToFile(final String filepath, final HighscoreEntry entry) 
+    {
+    	if (filepath == null || filepath.trim().isEmpty())
+    		throw new IllegalArgumentException("Es wurde kein Pfad uebergeben!");
+    	if (entry == null)
+    		throw new IllegalArgumentException("Es wurde null als HighscoreEntry uebergeben!");
+    	
+    	// eine von hand bearbeitete datei endet evtl. nicht mit einem zeilenumbruch
+    	String line = entry + System.lineSeparator();
+    	if (!endsWithNewline(filepath))
+    		line = System.lineSeparator() + line;
+        FileOperations.appendFile(filepath, line);
+    }
+
+    /**
+     * @param filepath Dateiname oder Pfad
+     * @return true, wenn die Datei leer ist, fehlt oder mit einem Zeilenumbruch endet
+     */
+    private static boolean endsWithNewline(final String filepath)
+    {
+    	try (RandomAccessFile file = new RandomAccessFile(filepath, "r")) {
+    		if (file.length() == 0)
+    			return true;
+    		file.seek(file.length() - 1);
+    		return file.read() == '\n';
+    	} catch (IOException e) {
+    		return true;
+    	}
     }
 
     /**
-     * Speichert die Highscore-Eintraege in der dafuer vorgesehenen Datei
+     * Speichert alle Highscore-Eintraege in der dafuer vorgesehenen Datei,
+     * z. B. um eine durch Anhaengen gewachsene Datei neu zu sortieren.
      * 
      * @param filepath Ein in einem String uebergebener Dateiname oder Pfad.
      */
@@ -143,20 +178,41 @@ public class Highscore
     	if (filepath == null || filepath.trim().isEmpty())
     		throw new IllegalArgumentException("Es wurde kein Pfad uebergeben!");
     		
-        String highscores = "";
+        StringBuilder highscores = new StringBuilder();
         for (HighscoreEntry entry : this.highscoreEntries)
-        	highscores += entry.toString() + System.lineSeparator();
+        	highscores.append(entry).append(System.lineSeparator());
 
-        FileOperations.writeFile(filepath, highscores);
+        FileOperations.writeFile(filepath, highscores.toString());
     }
     
     /**
      * Getter Methode fuer alle gespeicherten Highscores.
+     * Kopiert alle Eintraege, fuer die Anzeige {@link #getTopEntries(int)} verwenden.
      *
-     * @return Gibt die Highscore-Liste zurueck.
+     * @return Gibt die sortierte Highscore-Liste zurueck.
      */
     public List<HighscoreEntry> getAllEntries() {
-      return this.highscoreEntries;
+      List<HighscoreEntry> entries = new ArrayList<>(this.highscoreEntries.size());
+      for (HighscoreEntry entry : this.highscoreEntries)
+    	  entries.add(entry);
+      return entries;
+    }
+
+    /**
+     * Getter Methode fuer die besten Highscores.
+     *
+     * @param count hoechste Anzahl an Eintraegen
+     * @return Gibt die besten Eintraege in Reihenfolge zurueck.
+     */
+    public List<HighscoreEntry> getTopEntries(int count) {
+      return this.highscoreEntries.top(count);
+    }
+
+    /**
+     * @return Anzahl aller gespeicherten Highscores
+     */
+    public int getEntryCount() {
+      return this.highscoreEntries.size();
     }
 
 }
@@ -0,0 +1,211 @@
+package tud.ai1.pacman.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Nach {@link HighscoreEntry#compareTo} sortierte Rangliste beliebiger
+ * Groesse. Eintraege, die auch im Datum gleich sind, stehen in der
+ * Reihenfolge des Einfuegens.
+ *
+ * Umgesetzt als Skip-Liste, deren Verweise zusaetzlich die Anzahl der
+ * uebersprungenen Eintraege kennen. Einfuegen, Zugriff ueber den Rang und
+ * der Rang einer Punktzahl kosten so im Mittel O(log n), die ersten k
+ * Eintraege O(log n + k).
+ *
+ * Nicht threadsicher.
+ *
+ * @author Thanh Son Bui
+ */
+public class Leaderboard implements Iterable<HighscoreEntry> {
+    /** hoechste Anzahl an Ebenen, reicht bei 1/4 fuer weit mehr als eine Milliarde Eintraege */
+    private static final int MAX_LEVEL = 16;
+
+    /**
+     * Ein Eintrag der Skip-Liste.
+     */
+    private static final class Node {
+        /** der Highscore-Eintrag, null beim Kopf */
+        final HighscoreEntry entry;
+        /** Nachfolger je Ebene */
+        final Node[] next;
+        /** Anzahl der Eintraege bis einschliesslich des Nachfolgers je Ebene */
+        final int[] span;
+
+        /**
+         * Konstruktor.
+         */
+        Node(HighscoreEntry entry, int level) {
+            this.entry = entry;
+            next = new Node[level];
+            span = new int[level];
+        }
+    }
+
+    /** Kopf der Liste, steht vor allen Eintraegen */
+    private final Node head = new Node(null, MAX_LEVEL);
+    /** Zufall fuer die Hoehe neuer Eintraege */
+    private final Random random = new Random();
+    /** Zwischenspeicher fuer das Einfuegen */
+    private final Node[] update = new Node[MAX_LEVEL];
+    /** Zwischenspeicher fuer das Einfuegen */
+    private final int[] rank = new int[MAX_LEVEL];
+    /** Anzahl der benutzten Ebenen */
+    private int level = 1;
+    /** Anzahl der Eintraege */
+    private int size;
+
+    /**
+     * Fuegt einen Eintrag an seinem Rang ein.
+     *
+     * @param entry der neue Eintrag
+     * @return Rang des Eintrags, 0 ist der beste
+     */
+    public int add(HighscoreEntry entry) {
+        if (entry == null)
+            throw new IllegalArgumentException("Es wurde null als HighscoreEntry uebergeben!");
+        // bei gleichen eintraegen hinter den vorhandenen einfuegen
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && x.next[i].entry.compareTo(entry) <= 0) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(entry, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        // hoehere ebenen ueberspringen jetzt einen eintrag mehr
+        for (int i = nodeLevel; i < level; i++)
+            update[i].span[i]++;
+        size++;
+
+        for (int i = 0; i < level; i++)
+            update[i] = null;
+        return rank[0];
+    }
+
+    /**
+     * @param index Rang, 0 ist der beste
+     * @return der Eintrag mit diesem Rang
+     */
+    public HighscoreEntry get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Ungueltiger Rang: " + index);
+        Node x = head;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= index + 1) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == index + 1)
+                return x.entry;
+        }
+        // nicht erreichbar, die ebene 0 enthaelt jeden eintrag
+        throw new IllegalStateException("Rangliste ist inkonsistent");
+    }
+
+    /**
+     * @param k hoechste Anzahl an Eintraegen
+     * @return die besten k Eintraege in Reihenfolge, nicht veraenderbar
+     */
+    public List<HighscoreEntry> top(int k) {
+        if (k < 0)
+            throw new IllegalArgumentException("Die Anzahl darf nicht negativ sein!");
+        List<HighscoreEntry> result = new ArrayList<>(Math.min(k, size));
+        for (Node x = head.next[0]; x != null && result.size() < k; x = x.next[0])
+            result.add(x.entry);
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Rang, den ein neuer Eintrag mit dieser Punktzahl bekaeme. Bei gleicher
+     * Punktzahl steht der neue Eintrag als juengster hinter den vorhandenen.
+     *
+     * @param points Punktzahl
+     * @return Anzahl der Eintraege mit mindestens dieser Punktzahl
+     */
+    public int rankOf(int points) {
+        Node x = head;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i].entry.getPoints() >= points) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+        }
+        return traversed;
+    }
+
+    /**
+     * @return Anzahl der Eintraege
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true <-> die Rangliste ist leer
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Durchlaeuft alle Eintraege vom besten zum schlechtesten.
+     *
+     * @return Iterator ueber die Eintraege
+     */
+    @Override
+    public Iterator<HighscoreEntry> iterator() {
+        return new Iterator<HighscoreEntry>() {
+            private Node next = head.next[0];
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public HighscoreEntry next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                HighscoreEntry entry = next.entry;
+                next = next.next[0];
+                return entry;
+            }
+        };
+    }
+
+    /**
+     * @return Hoehe eines neuen Eintrags, jede weitere Ebene mit Wahrscheinlichkeit 1/4
+     */
+    private int randomLevel() {
+        int l = 1;
+        while (l < MAX_LEVEL && (random.nextInt() & 3) == 0)
+            l++;
+        return l;
+    }
+}
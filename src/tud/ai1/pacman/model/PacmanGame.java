@@ -1,7 +1,11 @@
 package tud.ai1.pacman.model;
 
+import tud.ai1.pacman.model.entity.EntityCodec;
+import tud.ai1.pacman.model.entity.EntityGrid;
+import tud.ai1.pacman.model.entity.EntityList;
 import tud.ai1.pacman.model.entity.GameEntity;
 import tud.ai1.pacman.model.entity.Ghost;
+import tud.ai1.pacman.model.entity.GhostStore;
 import tud.ai1.pacman.model.entity.MovingEntity;
 import tud.ai1.pacman.model.entity.Pacman;
 import tud.ai1.pacman.model.entity.pickup.Dot;
@@ -10,16 +14,15 @@ import tud.ai1.pacman.model.entity.pickup.SpeedUp;
 import tud.ai1.pacman.model.entity.pickup.Teleporter;
 import tud.ai1.pacman.model.level.Level;
 import tud.ai1.pacman.model.level.LevelParser;
-import tud.ai1.pacman.model.level.MapModule;
 import tud.ai1.pacman.util.Consts;
 
-import java.awt.*;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Speichert alle fuer das Spiel relevanten Daten.
@@ -28,74 +31,480 @@ import java.util.List;
  * @author Thanh Son Bui
  */
 public class PacmanGame {
+    /** Nummer des Lebenspunkte-Cheats fuer {@link #cheat(int)} */
+    public static final int CHEAT_LIVES = 0;
+    /** Nummer des Punkte-Cheats fuer {@link #cheat(int)} */
+    public static final int CHEAT_POINTS = 1;
+    /** Nummer des Powerup-Cheats fuer {@link #cheat(int)} */
+    public static final int CHEAT_POWERUP = 2;
+    /** Nummer des Geister-Cheats fuer {@link #cheat(int)} */
+    public static final int CHEAT_GHOSTS = 3;
+    /** Anzahl der Cheats */
+    public static final int CHEAT_COUNT = 4;
+
     /** aktueller Level */
     private Level level = null;
-    /** alle im Level aktiven Elemente */
-    private final ArrayList<GameEntity> entities;
+    /** alle im Level aktiven Elemente, haelt den raeumlichen Index fuer die Kollisionspruefung aktuell */
+    private final EntityList entities = new EntityList();
+    /** Puffer fuer die Kollisionskandidaten */
+    private final ArrayList<GameEntity> candidates = new ArrayList<>();
+    /** alle Geister des Levels, getrennt von den uebrigen Entitaeten */
+    private final GhostStore ghosts;
+    /** Puffer fuer die Indizes der Geister unter den Kollisionskandidaten */
+    private int[] ghostCandidates = new int[Consts.NUM_GHOSTS];
+    /** alle noch nicht gefressenen Dots und eingesammelten Items des Levels */
+    private PickupLayer pickups;
+    /** Entfernung jeder Zelle zu Pacman, gemeinsam fuer alle Geister */
+    private final DistanceField pacmanDistances = new DistanceField();
+    /** Zelle von Pacman, fuer die {@link #pacmanDistances} berechnet wurde */
+    private int distanceCell = -1;
+    /** Aenderungsstand des Levels, fuer den {@link #pacmanDistances} berechnet wurde */
+    private int distanceModCount;
 
-    /** Pacman-Spielfigur */
-    private final Pacman pacman;
+    /** Pacman-Spielfigur, wird beim Zuruecksetzen durch {@link RewindBuffer} ersetzt */
+    private Pacman pacman;
     /** Restversuche */
     private int lives;
     /** aktuelle Punktzahl */
     private int points;
     private int wonLevels;
 
+    /** Zeitgeber der Simulation */
+    private final GameClock clock;
+    /** Anzahl der bisher ausgefuehrten Simulationsschritte */
+    private long ticks;
+    /** Random-Generator, aus dem Level und Geister ihre Seeds beziehen */
+    private final StateRandom rnd;
+    /** seit dem letzten Abholen gefressene Dots und Items als Zelle * 8 + Art, null ohne Aufzeichnung */
+    private int[] removals;
+    /** Anzahl der Eintraege in {@link #removals} */
+    private int removalCount;
+
     /**
      * Konstruktor.
+     * Das Spiel laeuft in Echtzeit nach der Systemzeit.
      */
     public PacmanGame() {
+        this(SystemClock.INSTANCE);
+    }
+
+    /**
+     * Konstruktor.
+     *
+     * @param clock Zeitgeber der Simulation
+     */
+    public PacmanGame(GameClock clock) {
+        this(clock, new Random().nextLong());
+    }
+
+    /**
+     * Konstruktor.
+     * Mit einem {@link FixedStepClock} und gleichen Eingaben verlaeuft ein
+     * Spiel mit gleichem Seed immer identisch.
+     *
+     * @param clock Zeitgeber der Simulation
+     * @param seed Seed fuer alle Zufallsentscheidungen des Spiels
+     */
+    public PacmanGame(GameClock clock, long seed) {
+        if (clock == null)
+            throw new IllegalArgumentException("Es wurde kein Zeitgeber uebergeben!");
+        this.clock = clock;
+        ghosts = new GhostStore(clock);
+        rnd = new StateRandom(seed);
         lives = (Consts.TEST ? 1 : Consts.INITIAL_LIVES);
         points = 0;
         wonLevels = 0;
-        pacman = new Pacman();
-        entities = new ArrayList<>();
+        ticks = 0;
+        pacman = new Pacman(clock);
     }
 
     /**
      * Laedt einen spielstand aus dem Stream.
+     * Das Spiel laeuft in Echtzeit nach der Systemzeit.
      *
      * @param s der Stream, aus dem die Daten gelesen werden
      * @throws Exception bei fehlerhaft abgespeicherten Daten
      */
     public PacmanGame(DataInputStream s) throws Exception {
+        this(s, SystemClock.INSTANCE);
+    }
+
+    /**
+     * Laedt einen spielstand aus dem Stream.
+     *
+     * @param s der Stream, aus dem die Daten gelesen werden
+     * @param clock Zeitgeber der Simulation
+     * @throws Exception bei fehlerhaft abgespeicherten Daten
+     */
+    public PacmanGame(DataInputStream s, GameClock clock) throws Exception {
+        if (clock == null)
+            throw new IllegalArgumentException("Es wurde kein Zeitgeber uebergeben!");
+        this.clock = clock;
+        ghosts = new GhostStore(clock);
+        rnd = new StateRandom();
+        ticks = 0;
         level = LevelParser.fromString(s.readUTF());
         level.setName(s.readUTF());
         lives = s.readInt();
         points = s.readInt();
         wonLevels = s.readInt();
         pacman = (Pacman) Pacman.readEntity(s);
+        entities.setGridSize(level.getWidth(), level.getHeight());
+        ghosts.setGridSize(level.getWidth(), level.getHeight());
         int count = s.readInt();
-        entities = new ArrayList<>(count);
         for (int i = 0; i < count; i++)
             entities.add(GameEntity.readEntity(s));
+
+        // gespeicherte dots und items in die ebene uebernehmen
+        pickups = new PickupLayer(level.getWidth(), level.getHeight());
+        entities.removeIf(e -> {
+            byte kind = e instanceof Dot ? PickupLayer.DOT
+                    : e instanceof PowerUp ? PickupLayer.POWER_UP
+                    : e instanceof SpeedUp ? PickupLayer.SPEED_UP
+                    : e instanceof Teleporter ? PickupLayer.TELEPORTER : PickupLayer.NONE;
+            return kind != PickupLayer.NONE && pickups.add(Math.round(e.getPos().x), Math.round(e.getPos().y), kind);
+        });
+
+        // geladene zeitpunkte auf den zeitgeber des spiels umrechnen
+        pacman.setClock(clock);
+        for (GameEntity entity : entities)
+            if (entity instanceof MovingEntity)
+                ((MovingEntity) entity).setClock(clock);
+        adoptGhosts();
+    }
+
+    /**
+     * Laedt einen mit {@link #saveState(DataOutputStream)} gespeicherten
+     * Spielstand. Der Level wird nicht aus dem Stream gelesen, sondern
+     * uebergeben.
+     *
+     * @param level der gespeicherte Level
+     * @param s der Stream, aus dem die Daten gelesen werden
+     * @param clock Zeitgeber der Simulation
+     * @throws Exception bei fehlerhaft abgespeicherten Daten
+     */
+    public PacmanGame(Level level, DataInputStream s, GameClock clock) throws Exception {
+        if (level == null)
+            throw new IllegalArgumentException("Es wurde kein Level uebergeben!");
+        if (clock == null)
+            throw new IllegalArgumentException("Es wurde kein Zeitgeber uebergeben!");
+        this.clock = clock;
+        ghosts = new GhostStore(clock);
+        rnd = new StateRandom();
+        ticks = 0;
+        this.level = level;
+        lives = s.readInt();
+        points = s.readInt();
+        wonLevels = s.readInt();
+        pacman = (Pacman) EntityCodec.read(s);
+
+        readLayers(s);
+
+        entities.setGridSize(level.getWidth(), level.getHeight());
+        ghosts.setGridSize(level.getWidth(), level.getHeight());
+        int count = s.readInt();
+        for (int i = 0; i < count; i++)
+            entities.add(EntityCodec.read(s));
+
+        // geladene zeitpunkte auf den zeitgeber des spiels umrechnen
+        pacman.setClock(clock);
+        for (GameEntity entity : entities)
+            if (entity instanceof MovingEntity)
+                ((MovingEntity) entity).setClock(clock);
+        adoptGhosts();
     }
 
     /**
-     * Schreibt den aktuellen Zustand in den uebergebenen Stream.
+     * Schreibt den aktuellen Zustand ohne den Level in den uebergebenen
+     * Stream. Dots werden als Bitmaske, Items als Zelle und Art und die
+     * uebrigen Entitaeten per {@link EntityCodec} geschrieben.
+     *
+     * @param s der Stream, in dem die Daten geschrieben werden
+     * @throws IOException bei Schreibfehlern
+     */
+    public void saveState(DataOutputStream s) throws IOException {
+        adoptGhosts();
+        s.writeInt(lives);
+        s.writeInt(points);
+        s.writeInt(wonLevels);
+        EntityCodec.write(pacman, s);
+        writeLayers(s);
+        // geister wie bisher als einzelne entitaeten hinter den uebrigen
+        s.writeInt(entities.size() + ghosts.size());
+        for (GameEntity entity : entities)
+            EntityCodec.write(entity, s);
+        for (int i = 0; i < ghosts.size(); i++)
+            EntityCodec.write(ghosts.toGhost(i), s);
+    }
+
+    /**
+     * Schreibt die Dots als Bitmaske ueber die Zellen und die Items als
+     * Zelle und Art.
+     *
+     * @param s der Stream, in dem die Daten geschrieben werden
+     * @throws IOException bei Schreibfehlern
+     */
+    void writeLayers(DataOutputStream s) throws IOException {
+        // die maske byteweise aufbauen, ohne ein array anzulegen
+        int cellCount = pickups.getWidth() * pickups.getHeight();
+        int next = pickups.nextDot(0);
+        for (int base = 0; base < cellCount; base += 8) {
+            int b = 0;
+            while (next >= 0 && next < base + 8) {
+                b |= 1 << (next - base);
+                next = pickups.nextDot(next + 1);
+            }
+            s.writeByte(b);
+        }
+        s.writeInt(pickups.getItemCount());
+        for (int i = pickups.nextItem(0); i >= 0; i = pickups.nextItem(i + 1)) {
+            s.writeInt(i);
+            s.writeByte(pickups.getAt(i));
+        }
+    }
+
+    /**
+     * Liest die mit {@link #writeLayers(DataOutputStream)} geschriebenen
+     * Dots und Items zum aktuellen Level.
+     *
+     * @param s der Stream, aus dem die Daten gelesen werden
+     * @throws IOException bei Lesefehlern
+     */
+    void readLayers(DataInputStream s) throws IOException {
+        int w = level.getWidth(), cellCount = w * level.getHeight();
+        byte[] mask = new byte[(cellCount + 7) / 8];
+        s.readFully(mask);
+        pickups = new PickupLayer(w, level.getHeight());
+        for (int i = 0; i < cellCount; i++)
+            if ((mask[i >>> 3] & (1 << (i & 7))) != 0)
+                pickups.add(i % w, i / w, PickupLayer.DOT);
+        int count = s.readInt();
+        for (int k = 0; k < count; k++) {
+            int i = s.readInt();
+            if (i < 0 || i >= cellCount)
+                throw new IOException("Item ausserhalb des Levels: " + i);
+            pickups.add(i % w, i / w, s.readByte());
+        }
+    }
+
+    /**
+     * Schreibt den sich in jedem Schritt aendernden Zustand fuer den
+     * {@link RewindBuffer}: Schrittzaehler, Spielzeit, Punkte, Zustand aller
+     * Random-Generatoren, alle Entitaeten und die Geister. Dots und Items gehoeren nicht
+     * dazu, siehe {@link #writeLayers(DataOutputStream)}.
+     *
+     * @param s der Stream, in dem die Daten geschrieben werden
+     * @throws IOException bei Schreibfehlern
+     */
+    void writeFrame(DataOutputStream s) throws IOException {
+        adoptGhosts();
+        s.writeLong(ticks);
+        s.writeLong(clock.getTime());
+        s.writeInt(lives);
+        s.writeInt(points);
+        s.writeInt(wonLevels);
+        s.writeLong(rnd.getState());
+        s.writeLong(level.getRandomState());
+        s.writeInt(level.getGhostSpawnCounter());
+        EntityCodec.write(pacman, s);
+        s.writeInt(entities.size());
+        for (int i = 0; i < entities.size(); i++)
+            EntityCodec.write(entities.get(i), s);
+        ghosts.write(s);
+    }
+
+    /**
+     * Stellt den mit {@link #writeFrame(DataOutputStream)} geschriebenen
+     * Zustand wieder her. Laeuft das Spiel nach einem {@link FixedStepClock},
+     * wird auch dessen Zeit zurueckgesetzt.
+     *
+     * @param s der Stream, aus dem die Daten gelesen werden
+     * @throws IOException bei Lesefehlern
+     */
+    void readFrame(DataInputStream s) throws IOException {
+        ticks = s.readLong();
+        long time = s.readLong();
+        if (clock instanceof FixedStepClock)
+            ((FixedStepClock) clock).setTime(time);
+        lives = s.readInt();
+        points = s.readInt();
+        wonLevels = s.readInt();
+        rnd.setState(s.readLong());
+        long levelState = s.readLong();
+        level.restoreRound(levelState, s.readInt());
+        pacman = (Pacman) EntityCodec.read(s);
+        pacman.setClock(clock);
+        int count = s.readInt();
+        entities.clear();
+        for (int i = 0; i < count; i++) {
+            GameEntity entity = EntityCodec.read(s);
+            if (entity instanceof MovingEntity)
+                ((MovingEntity) entity).setClock(clock);
+            entities.add(entity);
+        }
+        ghosts.read(s);
+        distanceCell = -1;
+    }
+
+    /**
+     * Setzt den Level, ohne ihn wie {@link #changeLevel(Level)} neu zu
+     * starten. Danach muessen die Dots und Items gelesen werden.
+     *
+     * @param level der Level
+     */
+    void setLevel(Level level) {
+        this.level = level;
+        entities.setGridSize(level.getWidth(), level.getHeight());
+        ghosts.setGridSize(level.getWidth(), level.getHeight());
+    }
+
+    /**
+     * Schaltet die Aufzeichnung gefressener Dots und Items ein oder aus.
+     *
+     * @param enabled true <-> aufzeichnen
+     */
+    void setRecordRemovals(boolean enabled) {
+        removals = enabled ? new int[16] : null;
+        removalCount = 0;
+    }
+
+    /**
+     * @return Anzahl der seit {@link #clearRemovals()} gefressenen Dots und Items
+     */
+    int getRemovalCount() {
+        return removalCount;
+    }
+
+    /**
+     * @param i Index der Aufzeichnung
+     * @return gefressener Dot bzw. Item als Zelle * 8 + Art
+     */
+    int getRemoval(int i) {
+        return removals[i];
+    }
+
+    /**
+     * Leert die Aufzeichnung gefressener Dots und Items.
+     */
+    void clearRemovals() {
+        removalCount = 0;
+    }
+
+    /**
+     * Entfernt einen aufgezeichneten Dot bzw. ein Item erneut.
+     *
+     * @param removal Eintrag wie von {@link #getRemoval(int)}
+     */
+    void applyRemoval(int removal) {
+        int w = level.getWidth(), cell = removal >>> 3;
+        pickups.remove(cell % w, cell / w);
+    }
+
+    /**
+     * Zeichnet einen gefressenen Dot bzw. ein Item auf, falls eingeschaltet.
+     */
+    private void logRemoval(int x, int y, byte kind) {
+        if (removals == null) return;
+        if (removalCount == removals.length)
+            removals = Arrays.copyOf(removals, removalCount * 2);
+        removals[removalCount++] = (y * level.getWidth() + x) << 3 | kind;
+    }
+
+    /**
+     * Schreibt den aktuellen Zustand im alten Format in den uebergebenen
+     * Stream. Der Level wird per writeUTF geschrieben, darf also hoechstens
+     * 64 KB gross sein.
      *
      * @param s der Stream, in dem die Daten geschrieben werden
      * @throws IOException bei Schreibfehlern
      */
     public void saveGame(DataOutputStream s) throws IOException {
+        adoptGhosts();
         s.writeUTF(level.toString());
         s.writeUTF(level.getName());
         s.writeInt(lives);
         s.writeInt(points);
         s.writeInt(wonLevels);
         pacman.writeEntity(s);
-        s.writeInt(entities.size());
+        // dots und items werden weiterhin als einzelne entitaeten gespeichert
+        s.writeInt(pickups.getRemainingDots() + pickups.getItemCount() + entities.size() + ghosts.size());
+        int w = pickups.getWidth();
+        for (int i = pickups.nextDot(0); i >= 0; i = pickups.nextDot(i + 1))
+            new Dot(i % w, i / w).writeEntity(s);
+        for (int i = pickups.nextItem(0); i >= 0; i = pickups.nextItem(i + 1)) {
+            int x = i % w, y = i / w;
+            switch (pickups.getAt(i)) {
+                case PickupLayer.POWER_UP: new PowerUp(x, y).writeEntity(s); break;
+                case PickupLayer.SPEED_UP: new SpeedUp(x, y).writeEntity(s); break;
+                default: new Teleporter(x, y).writeEntity(s); break;
+            }
+        }
         for (GameEntity entity : entities)
             entity.writeEntity(s);
+        for (int i = 0; i < ghosts.size(); i++)
+            ghosts.toGhost(i).writeEntity(s);
     }
 
     /**
-     * @return alle Entitaeten im Level
+     * Geister stehen nicht in dieser Liste, sondern in {@link #getGhosts()}.
+     * Hier eingefuegte Geister werden vor dem naechsten Update dorthin
+     * uebernommen.
+     *
+     * @return alle Entitaeten im Level ausser den Geistern
      */
     public List<GameEntity> getEntities() {
         return entities;
     }
 
+    /**
+     * @return alle Geister im Level
+     */
+    public GhostStore getGhosts() {
+        return ghosts;
+    }
+
+    /**
+     * Uebernimmt Geister, die als eigene Entitaet in der Liste stehen, in
+     * der bisherigen Reihenfolge in den {@link GhostStore}.
+     */
+    private void adoptGhosts() {
+        if (entities.getGhostCount() == 0) return;
+        entities.removeIf(e -> {
+            if (!(e instanceof Ghost)) return false;
+            ghosts.add((Ghost) e);
+            return true;
+        });
+    }
+
+    /**
+     * @return alle noch nicht gefressenen Dots und eingesammelten Items im Level
+     */
+    public PickupLayer getPickups() {
+        return pickups;
+    }
+
+    /**
+     * Die Entfernungen werden nur neu berechnet, wenn Pacman seit der
+     * letzten Abfrage die Zelle gewechselt hat oder der Level geaendert wurde.
+     * Alle Geister teilen sich also eine Berechnung.
+     *
+     * @return Entfernung jeder Zelle zu Pacmans aktueller Zelle
+     */
+    public DistanceField getPacmanDistances() {
+        int w = level.getWidth(), h = level.getHeight();
+        int x = Math.floorMod(pacman.getGridX(), w);
+        int y = Math.floorMod(pacman.getGridY(), h);
+        int cell = y * w + x;
+        if (pacmanDistances.getLevel() != level || cell != distanceCell || distanceModCount != level.getModCount()) {
+            pacmanDistances.clear(level);
+            pacmanDistances.addSource(x, y);
+            pacmanDistances.propagate();
+            distanceCell = cell;
+            distanceModCount = level.getModCount();
+        }
+        return pacmanDistances;
+    }
+
     /**
      * @return die Spielfigur
      */
@@ -111,6 +520,9 @@ public class PacmanGame {
     public void changeLevel(Level level) {
         if (Consts.TEST) {
             this.level = level;
+            entities.setGridSize(level.getWidth(), level.getHeight());
+            ghosts.setGridSize(level.getWidth(), level.getHeight());
+            pickups = new PickupLayer(level.getWidth(), level.getHeight());
             return;
         }
 
@@ -121,28 +533,26 @@ public class PacmanGame {
             level = this.level;
         }
         this.level = level;
+        level.reset(rnd.nextLong());
         entities.clear();
+        entities.setGridSize(level.getWidth(), level.getHeight());
+        ghosts.clear();
+        ghosts.setGridSize(level.getWidth(), level.getHeight());
         pacman.respawn(level.getRandomPacmanSpawn());
-        // items spawnen
-        for (int y = 0; y < level.getHeight(); y++) {
-            for (int x = 0; x < level.getWidth(); x++) {
-                if (level.getField(x, y).isDot())
-                    entities.add(new Dot(x, y));
-                else if (level.getField(x, y).getMapModule() == MapModule.POWERUP)
-                    entities.add(new PowerUp(x, y));
-                else if (level.getField(x, y).getMapModule() == MapModule.SPEEDUP)
-                    entities.add(new SpeedUp(x, y));
-                else if (level.getField(x, y).getMapModule() == MapModule.TELEPORT)
-                    entities.add(new Teleporter(x, y));
-            }
-        }
+        // dots und items spawnen
+        pickups = new PickupLayer(level);
 
         // 4 Geister im normalen Spiel, 1 Geist fuer Tests
-        for (int i = 0; i < (Consts.TEST ? 1 : Consts.NUM_GHOSTS); i++) {
-            Ghost g = new Ghost(i);
-            g.respawn(level.getNextGhostSpawn());
-            entities.add(g);
-        }
+        for (int i = 0; i < (Consts.TEST ? 1 : Consts.NUM_GHOSTS); i++)
+            ghosts.respawn(ghosts.add(i, rnd.nextLong()), level.getNextGhostSpawn());
+    }
+
+    /**
+     * @return der raeumliche Index, wird von der Entitaetenliste beim
+     *          Hinzufuegen und Entfernen aktuell gehalten
+     */
+    private EntityGrid getGrid() {
+        return entities.getGrid();
     }
 
     /**
@@ -156,35 +566,68 @@ public class PacmanGame {
         return !level.isSolid((x + w) % w, (y + h) % h);
     }
 
+    /**
+     * @param dx Differenz in X-Richtung
+     * @param dy Differenz in Y-Richtung
+     * @return true <=> Pacman kann sich von seiner Rasterposition aus in diese Richtung bewegen
+     */
+    public boolean canMovePacman(int dx, int dy) {
+        return validMovement((int) pacman.getPos().x + dx, (int) pacman.getPos().y + dy);
+    }
+
     /**
      * Updatet im normalen Spielablauf alle Entitaeten.
      */
     public void updateFrame() {
         if (level != null) {
-            for (GameEntity entity : entities) entity.update(this);
+            adoptGhosts();
+            EntityGrid grid = getGrid();
+            // indexbasiert, damit kein iterator angelegt wird
+            for (int i = 0; i < entities.size(); i++) {
+                GameEntity entity = entities.get(i);
+                entity.update(this);
+                if (entity instanceof MovingEntity)
+                    grid.update(entity);
+            }
+            ghosts.updateAll(this);
             pacman.update(this);
             checkCollisions();
         }
     }
 
+    /**
+     * Fuehrt einen Simulationsschritt aus. Der Zeitgeber wird dazu um einen
+     * Schritt weitergeschaltet, danach werden alle Entitaeten aktualisiert.
+     */
+    public void tick() {
+        clock.advance();
+        ticks++;
+        updateFrame();
+    }
+
     /**
      * Updatet im Testfall alle Entitaeten
      */
     public void updateStep() {
         if (level != null) {
+            adoptGhosts();
             // erst bewegung beenden, dann aktivitaet
             pacman.endMove();
             pacman.update(this);
             checkCollisions();
             // beendet die bewegungen von entities sofort, sonst keine aktivitaet
+            EntityGrid grid = getGrid();
             GameEntity e;
             for (GameEntity entity : entities) {
                 e = entity;
                 // erst aktivitaet, dann bewegung beenden
                 e.update(this);
-                if (e instanceof MovingEntity)
+                if (e instanceof MovingEntity) {
                     ((MovingEntity) e).endMove();
+                    grid.update(e);
+                }
             }
+            ghosts.stepAll(this);
             checkCollisions();
         }
     }
@@ -193,11 +636,8 @@ public class PacmanGame {
      * @return Anzahl der aktiven Dots
      */
     public int countDots() {
-        int sum = 0;
-        for (GameEntity entity : entities)
-            if (entity instanceof Dot)
-                sum++;
-        return sum;
+        if (level == null) return 0;
+        return pickups.getRemainingDots() + entities.getDotCount();
     }
 
     /**
@@ -212,7 +652,7 @@ public class PacmanGame {
             int x = (int) pacman.getPos().x;
             int y = (int) pacman.getPos().y;
             if (validMovement(x + dx, y + dy)) {
-                pacman.move(new Point(x + dx, y + dy));
+                pacman.move(x + dx, y + dy);
                 checkCollisions();
                 return true;
             }
@@ -223,18 +663,60 @@ public class PacmanGame {
     /**
      * Ueberprueft Kollision von Pacman mit den anderen Entitaeten.
      * Diese werden ggf. entfernt.
+     * Geprueft werden nur die Entitaeten in Pacmans Zelle und deren Nachbarzellen.
      */
     private void checkCollisions() {
+        adoptGhosts();
         float x = pacman.getPos().x;
         float y = pacman.getPos().y;
 
-        GameEntity e;
-        for (Iterator<GameEntity> i = entities.iterator(); i.hasNext(); ) {
-            e = i.next();
-            // auf kollision mit spielfigur pruefen
-            if (Math.sqrt((x - e.getPos().x) * (x - e.getPos().x) + (y - e.getPos().y) * (y - e.getPos().y)) < 0.5f)
-                if (e.collide(this, pacman))
-                    i.remove();
+        EntityGrid grid = getGrid();
+
+        // dot bzw. item auf pacmans zelle einsammeln
+        int cx = Math.round(x), cy = Math.round(y);
+        byte kind = pickups.get(cx, cy);
+        if (kind != PickupLayer.NONE && (x - cx) * (x - cx) + (y - cy) * (y - cy) < 0.25f) {
+            boolean taken;
+            switch (kind) {
+                case PickupLayer.DOT: taken = Dot.eat(this, cx); break;
+                case PickupLayer.POWER_UP: taken = PowerUp.collect(this, pacman); break;
+                case PickupLayer.SPEED_UP: taken = SpeedUp.collect(this, pacman); break;
+                default: taken = Teleporter.teleport(this, pacman); break;
+            }
+            if (taken) {
+                pickups.remove(cx, cy);
+                logRemoval(cx, cy, kind);
+            }
+        }
+
+        grid.collect(x, y, candidates);
+        if (ghostCandidates.length < ghosts.size())
+            ghostCandidates = new int[ghosts.size()];
+        int ghostCount = ghosts.collect(x, y, ghostCandidates);
+        // items vor geistern pruefen, wie in der reihenfolge der entitaetenliste
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < candidates.size(); i++) {
+                GameEntity e = candidates.get(i);
+                if ((e instanceof MovingEntity) != (pass == 1)) continue;
+                // auf kollision mit spielfigur pruefen
+                float dx = x - e.getPos().x;
+                float dy = y - e.getPos().y;
+                if (dx * dx + dy * dy < 0.25f) {
+                    if (e.collide(this, pacman)) {
+                        // traegt die entitaet auch aus dem raeumlichen index aus
+                        entities.remove(e);
+                    } else if (e instanceof MovingEntity)
+                        grid.update(e);
+                }
+            }
+        }
+        candidates.clear();
+        for (int k = 0; k < ghostCount; k++) {
+            int g = ghostCandidates[k];
+            float dx = x - ghosts.getX(g);
+            float dy = y - ghosts.getY(g);
+            if (dx * dx + dy * dy < 0.25f)
+                ghosts.collide(g, this, pacman);
         }
     }
 
@@ -245,9 +727,7 @@ public class PacmanGame {
         // leben abziehen und geister sowie pacman respawnen
         lives--;
         pacman.respawn(level.getRandomPacmanSpawn());
-        for (GameEntity entity : entities)
-            if (entity instanceof Ghost)
-                ((Ghost) entity).respawn(level.getNextGhostSpawn());
+        ghosts.respawnAll(level);
     }
 
     /**
@@ -310,6 +790,20 @@ public class PacmanGame {
         return lost;
     }
 
+    /**
+     * @return der Zeitgeber der Simulation
+     */
+    public GameClock getClock() {
+        return clock;
+    }
+
+    /**
+     * @return Anzahl der bisher ausgefuehrten Simulationsschritte
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
     /**
      * @return die aktuelle Systemzeit in Nanosekunden
      */
@@ -318,6 +812,22 @@ public class PacmanGame {
         return System.nanoTime();
     }
     
+    /**
+     * Fuehrt einen Cheat ueber seine Nummer aus, z. B. beim Nachspielen
+     * einer {@link Replay}-Aufzeichnung.
+     *
+     * @param cheat Nummer des Cheats, siehe {@link #CHEAT_LIVES} bis {@link #CHEAT_GHOSTS}
+     */
+    public void cheat(int cheat) {
+        switch (cheat) {
+            case CHEAT_LIVES:   giveLivesCheat(); break;
+            case CHEAT_POINTS:  givePointsCheat(); break;
+            case CHEAT_POWERUP: givePowerupCheat(); break;
+            case CHEAT_GHOSTS:  resetGhostsCheat(); break;
+            default: throw new IllegalArgumentException("Ungueltiger Cheat: " + cheat);
+        }
+    }
+
     /**
      * Cheat, der die Lebenspunkte wieder auf Consts.INITIAL_LIVES auffüllt.
      */
@@ -351,11 +861,6 @@ public class PacmanGame {
      */
     public void resetGhostsCheat()
     {
-    	for(GameEntity entity: entities) {
-    		if(entity instanceof Ghost) {
-    			Ghost ghost = (Ghost)entity;
-    			ghost.respawn(level.getNextGhostSpawn());
-    		}
-    	}
+    	ghosts.respawnAll(level);
     }
 }
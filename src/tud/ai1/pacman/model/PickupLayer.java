@@ -0,0 +1,199 @@
+package tud.ai1.pacman.model;
+
+import tud.ai1.pacman.model.level.Level;
+import tud.ai1.pacman.model.level.MapModule;
+
+import java.util.BitSet;
+
+/**
+ * Speichert die Dots und Items (PowerUps, SpeedUps, Teleporter) eines
+ * Levels als Arrays ueber die Rasterzellen statt als einzelne Entitaeten. Je
+ * Zelle wird die Art in einem Byte abgelegt, je eine Bitmenge fuer Dots und
+ * Items markiert die belegten Zellen fuer schnelles Durchlaufen. Die Anzahl
+ * der verbleibenden Dots wird mitgezaehlt, sodass sie ohne Durchlauf
+ * abgefragt werden kann.
+ *
+ * @author Thanh Son Bui
+ */
+public class PickupLayer {
+    /** Zelle ohne Dot oder Item */
+    public static final byte NONE = 0;
+    /** Zelle mit PowerUp */
+    public static final byte POWER_UP = 1;
+    /** Zelle mit SpeedUp */
+    public static final byte SPEED_UP = 2;
+    /** Zelle mit Teleporter */
+    public static final byte TELEPORTER = 3;
+    /** Zelle mit Dot */
+    public static final byte DOT = 4;
+
+    /** Breite des Levels */
+    private final int width;
+    /** Hoehe des Levels */
+    private final int height;
+    /** Art je Zelle (y * width + x) */
+    private final byte[] kinds;
+    /** gesetztes Bit <=> Zelle enthaelt einen Dot */
+    private final BitSet dots;
+    /** gesetztes Bit <=> Zelle enthaelt ein Item */
+    private final BitSet items;
+    /** Anzahl der verbleibenden Dots */
+    private int dotCount;
+    /** Anzahl der Items */
+    private int itemCount;
+
+    /**
+     * Konstruktor.
+     * Erzeugt eine leere Ebene.
+     *
+     * @param width Breite des Levels
+     * @param height Hoehe des Levels
+     */
+    public PickupLayer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        kinds = new byte[width * height];
+        dots = new BitSet(width * height);
+        items = new BitSet(width * height);
+    }
+
+    /**
+     * Konstruktor.
+     * Setzt auf jedes Dot- und Item-Feld des Levels den entsprechenden Dot
+     * bzw. das Item.
+     *
+     * @param level der Level
+     */
+    public PickupLayer(Level level) {
+        this(level.getWidth(), level.getHeight());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                MapModule m = level.getMapModule(x, y);
+                if (m == MapModule.DOT)
+                    add(x, y, DOT);
+                else if (m == MapModule.POWERUP)
+                    add(x, y, POWER_UP);
+                else if (m == MapModule.SPEEDUP)
+                    add(x, y, SPEED_UP);
+                else if (m == MapModule.TELEPORT)
+                    add(x, y, TELEPORTER);
+            }
+        }
+    }
+
+    /**
+     * @return Breite des Levels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return Hoehe des Levels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param x X-Koordinate
+     * @param y Y-Koordinate
+     * @return Art auf der Zelle, ausserhalb des Levels immer {@link #NONE}
+     */
+    public byte get(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return NONE;
+        return kinds[y * width + x];
+    }
+
+    /**
+     * @param index Zellenindex (y * Breite + x)
+     * @return Art auf der Zelle
+     */
+    public byte getAt(int index) {
+        return kinds[index];
+    }
+
+    /**
+     * Legt einen Dot bzw. ein Item auf die Zelle.
+     *
+     * @param x X-Koordinate
+     * @param y Y-Koordinate
+     * @param kind Art
+     * @return true <=> auf der Zelle lag vorher nichts
+     */
+    public boolean add(int x, int y, byte kind) {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            throw new IllegalArgumentException("Die Position liegt ausserhalb des Levels!");
+        if (kind != DOT && kind != POWER_UP && kind != SPEED_UP && kind != TELEPORTER)
+            throw new IllegalArgumentException("Unbekannte Art von Item: " + kind);
+        int i = y * width + x;
+        if (kinds[i] != NONE) return false;
+        kinds[i] = kind;
+        if (kind == DOT) {
+            dots.set(i);
+            dotCount++;
+        } else {
+            items.set(i);
+            itemCount++;
+        }
+        return true;
+    }
+
+    /**
+     * Entfernt den Dot bzw. das Item von der Zelle.
+     *
+     * @param x X-Koordinate
+     * @param y Y-Koordinate
+     * @return Art des entfernten Dots bzw. Items, {@link #NONE} falls die Zelle leer war
+     */
+    public byte remove(int x, int y) {
+        byte kind = get(x, y);
+        if (kind == NONE) return NONE;
+        int i = y * width + x;
+        kinds[i] = NONE;
+        if (kind == DOT) {
+            dots.clear(i);
+            dotCount--;
+        } else {
+            items.clear(i);
+            itemCount--;
+        }
+        return kind;
+    }
+
+    /**
+     * @return Anzahl der verbleibenden Dots
+     */
+    public int getRemainingDots() {
+        return dotCount;
+    }
+
+    /**
+     * @return Anzahl der Items
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Zum Durchlaufen aller Dots:
+     * for (int i = layer.nextDot(0); i >= 0; i = layer.nextDot(i + 1))
+     *
+     * @param fromIndex erster zu pruefender Zellenindex (y * Breite + x)
+     * @return Index der naechsten Zelle mit Dot ab fromIndex, -1 falls keine existiert
+     */
+    public int nextDot(int fromIndex) {
+        return dots.nextSetBit(fromIndex);
+    }
+
+    /**
+     * Zum Durchlaufen aller Items:
+     * for (int i = layer.nextItem(0); i >= 0; i = layer.nextItem(i + 1))
+     *
+     * @param fromIndex erster zu pruefender Zellenindex (y * Breite + x)
+     * @return Index der naechsten Zelle mit Item ab fromIndex, -1 falls keine existiert
+     */
+    public int nextItem(int fromIndex) {
+        return items.nextSetBit(fromIndex);
+    }
+}
@@ -0,0 +1,433 @@
+package tud.ai1.pacman.model;
+
+import tud.ai1.pacman.model.level.Level;
+import tud.ai1.pacman.model.level.LevelFile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Aufzeichnung eines Spiels als Seed, gespielte Level und Eingaben. Da das
+ * Spiel mit {@link FixedStepClock} bei gleichem Seed und gleichen Eingaben
+ * immer identisch verlaeuft, laesst es sich daraus mit {@link ReplayPlayer}
+ * exakt nachspielen.
+ *
+ * Aufbau der Datei (big endian):
+ * <pre>
+ * int    Kennung "PRPL"
+ * short  Version
+ * long   Seed des Spiels
+ * int    Anzahl Level, je Level:
+ *          long Schritt des Wechsels, long {@link Level#contentHash()},
+ *          int + UTF-8 Name, boolean eingebettet, ggf. int + Level im {@link LevelFile}-Format
+ * int    Anzahl Eingaben, je Eingabe:
+ *          varint Schritte seit der vorherigen Eingabe, byte Richtung (dx + 1) * 3 + (dy + 1)
+ *          bzw. ab Version 2 9 + Nummer des Cheats ({@link PacmanGame#cheat(int)})
+ * boolean beendet, ggf. long letzter Schritt und int Punktzahl
+ * int    CRC32 aller vorherigen Bytes
+ * </pre>
+ *
+ * @author Thanh Son Bui
+ */
+public class Replay {
+    /** Kennung am Dateianfang ("PRPL") */
+    private static final int MAGIC = 0x5052504C;
+    /** Version des Formats */
+    private static final short VERSION = 2;
+    /** Version ohne Cheats */
+    private static final short VERSION_NO_CHEATS = 1;
+    /** Kennung der ersten Cheat-Eingabe, darunter liegen die Bewegungen */
+    private static final int CHEAT_BASE = 9;
+
+    /**
+     * Ein Levelwechsel im aufgezeichneten Spiel.
+     */
+    static final class LevelChange {
+        /** Schritt, nach dem der Level gestartet wurde */
+        final long tick;
+        /** {@link Level#contentHash()} des Levels */
+        final long hash;
+        /** Name des Levels */
+        final String name;
+        /** der Level, null falls er nicht eingebettet ist */
+        final Level level;
+
+        /**
+         * Konstruktor.
+         */
+        LevelChange(long tick, long hash, String name, Level level) {
+            this.tick = tick;
+            this.hash = hash;
+            this.name = name;
+            this.level = level;
+        }
+    }
+
+    /** Seed des Spiels */
+    private final long seed;
+    /** alle Levelwechsel, der erste ist der Start */
+    private final List<LevelChange> levels = new ArrayList<>();
+    /** Schritt jeder Eingabe, aufsteigend */
+    private long[] inputTicks = new long[64];
+    /** Richtung jeder Eingabe als (dx + 1) * 3 + (dy + 1), Cheats ab {@link #CHEAT_BASE} */
+    private byte[] inputMoves = new byte[64];
+    /** Anzahl der Eingaben */
+    private int inputCount;
+    /** true <-> das Spiel ist zu Ende aufgezeichnet */
+    private boolean finished;
+    /** letzter Schritt des beendeten Spiels */
+    private long endTick;
+    /** Punktzahl am Ende des Spiels */
+    private int endPoints;
+
+    /**
+     * Konstruktor.
+     * Beginnt eine leere Aufzeichnung.
+     *
+     * @param seed Seed des aufgezeichneten Spiels, siehe {@link PacmanGame#PacmanGame(GameClock, long)}
+     */
+    public Replay(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Zeichnet den Start eines Levels auf.
+     *
+     * @param tick aktueller Schritt des Spiels
+     * @param level der gestartete Level
+     * @param embed true <-> der Level wird mit abgespeichert, sonst nur sein Hash
+     */
+    public void addLevel(long tick, Level level, boolean embed) {
+        if (level == null)
+            throw new IllegalArgumentException("Es wurde kein Level uebergeben!");
+        levels.add(new LevelChange(tick, level.contentHash(), level.getName(), embed ? level : null));
+    }
+
+    /**
+     * Zeichnet eine Bewegung von Pacman auf.
+     *
+     * @param tick aktueller Schritt des Spiels
+     * @param dx Differenz in X-Richtung (-1 bis 1)
+     * @param dy Differenz in Y-Richtung (-1 bis 1)
+     */
+    public void addInput(long tick, int dx, int dy) {
+        if (dx < -1 || dx > 1 || dy < -1 || dy > 1)
+            throw new IllegalArgumentException("Ungueltige Bewegung: " + dx + ", " + dy);
+        add(tick, (dx + 1) * 3 + (dy + 1));
+    }
+
+    /**
+     * Zeichnet einen Cheat auf. Er wird beim Nachspielen im selben Schritt
+     * in der Reihenfolge der Eingaben ausgefuehrt.
+     *
+     * @param tick aktueller Schritt des Spiels
+     * @param cheat Nummer des Cheats, siehe {@link PacmanGame#cheat(int)}
+     */
+    public void addCheat(long tick, int cheat) {
+        if (cheat < 0 || cheat >= PacmanGame.CHEAT_COUNT)
+            throw new IllegalArgumentException("Ungueltiger Cheat: " + cheat);
+        add(tick, CHEAT_BASE + cheat);
+    }
+
+    /**
+     * Haengt eine Eingabe an.
+     *
+     * @param tick aktueller Schritt des Spiels
+     * @param code Bewegung bzw. Cheat wie in {@link #inputMoves}
+     */
+    private void add(long tick, int code) {
+        if (inputCount > 0 && tick < inputTicks[inputCount - 1])
+            throw new IllegalArgumentException("Die Eingaben muessen zeitlich geordnet sein!");
+        if (inputCount == inputTicks.length) {
+            inputTicks = Arrays.copyOf(inputTicks, inputCount * 2);
+            inputMoves = Arrays.copyOf(inputMoves, inputCount * 2);
+        }
+        inputTicks[inputCount] = tick;
+        inputMoves[inputCount] = (byte) code;
+        inputCount++;
+    }
+
+    /**
+     * Verwirft alle Eingaben ab dem angegebenen Schritt, z. B. nach dem
+     * Zurueckspulen auf diesen Schritt.
+     *
+     * @param tick erster verworfener Schritt
+     */
+    public void truncate(long tick) {
+        while (inputCount > 0 && inputTicks[inputCount - 1] >= tick)
+            inputCount--;
+        while (levels.size() > 1 && levels.get(levels.size() - 1).tick > tick)
+            levels.remove(levels.size() - 1);
+        finished = false;
+    }
+
+    /**
+     * Schliesst die Aufzeichnung mit dem Endstand des Spiels ab. Beim
+     * Nachspielen wird dieser zur Kontrolle verglichen.
+     *
+     * @param tick letzter Schritt des Spiels
+     * @param points Punktzahl am Ende
+     */
+    public void finish(long tick, int points) {
+        finished = true;
+        endTick = tick;
+        endPoints = points;
+    }
+
+    /**
+     * @return Seed des Spiels
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return Anzahl der aufgezeichneten Eingaben
+     */
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    /**
+     * @param i Index der Eingabe
+     * @return Schritt der Eingabe
+     */
+    public long getInputTick(int i) {
+        return inputTicks[i];
+    }
+
+    /**
+     * @param i Index der Eingabe
+     * @return Nummer des Cheats, -1 falls die Eingabe eine Bewegung ist
+     */
+    public int getInputCheat(int i) {
+        return inputMoves[i] >= CHEAT_BASE ? inputMoves[i] - CHEAT_BASE : -1;
+    }
+
+    /**
+     * @param i Index der Eingabe, muss eine Bewegung sein
+     * @return Differenz in X-Richtung
+     */
+    public int getInputDx(int i) {
+        return inputMoves[i] / 3 - 1;
+    }
+
+    /**
+     * @param i Index der Eingabe, muss eine Bewegung sein
+     * @return Differenz in Y-Richtung
+     */
+    public int getInputDy(int i) {
+        return inputMoves[i] % 3 - 1;
+    }
+
+    /**
+     * @return Anzahl der aufgezeichneten Level
+     */
+    public int getLevelCount() {
+        return levels.size();
+    }
+
+    /**
+     * @return true <-> das Spiel ist zu Ende aufgezeichnet
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return letzter Schritt des beendeten Spiels
+     */
+    public long getEndTick() {
+        return endTick;
+    }
+
+    /**
+     * @return Punktzahl am Ende des Spiels
+     */
+    public int getEndPoints() {
+        return endPoints;
+    }
+
+    /**
+     * @param i Index des Levelwechsels
+     * @return der Levelwechsel
+     */
+    LevelChange getLevelChange(int i) {
+        return levels.get(i);
+    }
+
+    /**
+     * Schreibt die Aufzeichnung in eine Datei.
+     *
+     * @param file Zieldatei, wird ueberschrieben
+     * @throws IOException bei Schreibfehlern
+     */
+    public void write(Path file) throws IOException {
+        Path folder = file.toAbsolutePath().getParent();
+        if (folder != null)
+            Files.createDirectories(folder);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Schreibt die Aufzeichnung in den Stream.
+     *
+     * @param out Zielstrom, wird nicht geschlossen
+     * @throws IOException bei Schreibfehlern
+     */
+    public void write(OutputStream out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream s = new DataOutputStream(bytes);
+        s.writeInt(MAGIC);
+        s.writeShort(VERSION);
+        s.writeLong(seed);
+        s.writeInt(levels.size());
+        for (LevelChange change : levels) {
+            s.writeLong(change.tick);
+            s.writeLong(change.hash);
+            byte[] name = change.name.getBytes(StandardCharsets.UTF_8);
+            s.writeInt(name.length);
+            s.write(name);
+            s.writeBoolean(change.level != null);
+            if (change.level != null) {
+                ByteBuffer data = LevelFile.encode(change.level);
+                s.writeInt(data.remaining());
+                s.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            }
+        }
+        s.writeInt(inputCount);
+        long last = 0;
+        for (int i = 0; i < inputCount; i++) {
+            writeVarLong(s, inputTicks[i] - last);
+            s.writeByte(inputMoves[i]);
+            last = inputTicks[i];
+        }
+        s.writeBoolean(finished);
+        if (finished) {
+            s.writeLong(endTick);
+            s.writeInt(endPoints);
+        }
+        s.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        s.writeInt((int) crc.getValue());
+        bytes.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Liest eine Aufzeichnung aus einer Datei.
+     *
+     * @param file Pfad der Aufzeichnung
+     * @return die Aufzeichnung
+     * @throws IOException falls die Datei nicht gelesen werden kann oder beschaedigt ist
+     */
+    public static Replay read(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Liest eine Aufzeichnung aus dem Stream.
+     *
+     * @param in Quellstrom, wird bis zum Ende gelesen
+     * @return die Aufzeichnung
+     * @throws IOException falls die Daten nicht gelesen werden koennen oder beschaedigt sind
+     */
+    public static Replay read(InputStream in) throws IOException {
+        byte[] data = in.readAllBytes();
+        if (data.length < 4)
+            throw new IOException("Die Aufzeichnung ist unvollstaendig");
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(data, data.length - 4, 4).getInt())
+            throw new IOException("Die Pruefsumme der Aufzeichnung stimmt nicht");
+
+        DataInputStream s = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4));
+        try {
+            if (s.readInt() != MAGIC)
+                throw new IOException("Keine Aufzeichnung");
+            short version = s.readShort();
+            if (version != VERSION && version != VERSION_NO_CHEATS)
+                throw new IOException("Unbekannte Version der Aufzeichnung: " + version);
+            int codes = version == VERSION_NO_CHEATS ? CHEAT_BASE : CHEAT_BASE + PacmanGame.CHEAT_COUNT;
+            Replay replay = new Replay(s.readLong());
+            int count = s.readInt();
+            if (count < 1)
+                throw new IOException("Die Aufzeichnung enthaelt keinen Level");
+            for (int i = 0; i < count; i++) {
+                long tick = s.readLong();
+                long hash = s.readLong();
+                byte[] name = new byte[s.readInt()];
+                s.readFully(name);
+                Level level = null;
+                if (s.readBoolean()) {
+                    byte[] blob = new byte[s.readInt()];
+                    s.readFully(blob);
+                    level = LevelFile.read(ByteBuffer.wrap(blob));
+                    level.setName(new String(name, StandardCharsets.UTF_8));
+                }
+                replay.levels.add(new LevelChange(tick, hash, new String(name, StandardCharsets.UTF_8), level));
+            }
+            count = s.readInt();
+            long tick = 0;
+            for (int i = 0; i < count; i++) {
+                tick += readVarLong(s);
+                int move = s.readUnsignedByte();
+                if (move >= codes)
+                    throw new IOException("Ungueltige Eingabe: " + move);
+                replay.add(tick, move);
+            }
+            if (s.readBoolean())
+                replay.finish(s.readLong(), s.readInt());
+            return replay;
+        } catch (EOFException | NegativeArraySizeException e) {
+            throw new IOException("Die Aufzeichnung ist unvollstaendig", e);
+        }
+    }
+
+    /**
+     * Schreibt eine nicht-negative Zahl in 7-Bit-Gruppen.
+     */
+    private static void writeVarLong(DataOutputStream s, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            s.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        s.writeByte((int) value);
+    }
+
+    /**
+     * @return mit {@link #writeVarLong} geschriebene Zahl
+     */
+    private static long readVarLong(DataInputStream s) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = s.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Ungueltige Zahl in der Aufzeichnung");
+    }
+}
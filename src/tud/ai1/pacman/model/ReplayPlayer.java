@@ -0,0 +1,264 @@
+package tud.ai1.pacman.model;
+
+import tud.ai1.pacman.model.level.Level;
+import tud.ai1.pacman.model.level.LevelCatalog;
+import tud.ai1.pacman.util.Consts;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spielt eine {@link Replay}-Aufzeichnung ohne grafische Oberflaeche nach.
+ * Die Schritte laufen so schnell wie moeglich in derselben Reihenfolge wie
+ * im {@link tud.ai1.pacman.view.states.GamePlayState}: Eingaben des
+ * aktuellen Schritts, naechster Schritt, dann Pruefung auf gewonnen bzw.
+ * verloren.
+ *
+ * Beim Abspielen wird in festen Abstaenden der Zustand festgehalten, sodass
+ * {@link #seek(long)} nur ab dem letzten davor liegenden Zustand nachspielt.
+ *
+ * @author Thanh Son Bui
+ */
+public class ReplayPlayer {
+
+    /**
+     * Festgehaltener Zustand des Spiels samt Position in der Aufzeichnung.
+     */
+    private static final class Keyframe {
+        /** Zustand des Spiels, siehe {@link PacmanGame#writeFrame} */
+        final byte[] state;
+        /** Index des aktuellen Levelwechsels */
+        final int levelIndex;
+        /** Index der naechsten Eingabe */
+        final int nextInput;
+        /** true <-> das Spiel war bereits verloren */
+        final boolean lost;
+
+        /**
+         * Konstruktor.
+         */
+        Keyframe(byte[] state, int levelIndex, int nextInput, boolean lost) {
+            this.state = state;
+            this.levelIndex = levelIndex;
+            this.nextInput = nextInput;
+            this.lost = lost;
+        }
+    }
+
+    /** die abgespielte Aufzeichnung */
+    private final Replay replay;
+    /** die Level der Aufzeichnung in Reihenfolge */
+    private final Level[] levels;
+    /** das nachgespielte Spiel */
+    private final PacmanGame game;
+    /** Abstand der festgehaltenen Zustaende in Schritten */
+    private final int keyframeInterval;
+    /** festgehaltene Zustaende, Index * Abstand ist der Schritt */
+    private final List<Keyframe> keyframes = new ArrayList<>();
+    /** Index des aktuellen Levelwechsels */
+    private int levelIndex;
+    /** Index der naechsten Eingabe */
+    private int nextInput;
+    /** true <-> das Spiel ist verloren */
+    private boolean lost;
+
+    /**
+     * Konstruktor.
+     * Nicht eingebettete Level werden ueber ihren Hash im gemeinsamen
+     * {@link LevelCatalog} gesucht.
+     *
+     * @param replay die abzuspielende Aufzeichnung
+     * @throws Exception falls ein Level nicht gefunden oder geladen werden kann
+     */
+    public ReplayPlayer(Replay replay) throws Exception {
+        this(replay, Consts.REPLAY_KEYFRAME_TICKS);
+    }
+
+    /**
+     * Konstruktor.
+     *
+     * @param replay die abzuspielende Aufzeichnung
+     * @param keyframeInterval Abstand der festgehaltenen Zustaende in Schritten
+     * @throws Exception falls ein Level nicht gefunden oder geladen werden kann
+     */
+    public ReplayPlayer(Replay replay, int keyframeInterval) throws Exception {
+        if (replay == null)
+            throw new IllegalArgumentException("Es wurde keine Aufzeichnung uebergeben!");
+        if (keyframeInterval < 1)
+            throw new IllegalArgumentException("Der Abstand der Zustaende muss positiv sein!");
+        this.replay = replay;
+        this.keyframeInterval = keyframeInterval;
+        levels = new Level[replay.getLevelCount()];
+        for (int i = 0; i < levels.length; i++)
+            levels[i] = resolve(replay.getLevelChange(i));
+
+        game = new PacmanGame(new FixedStepClock(), replay.getSeed());
+        game.changeLevel(levels[0]);
+        keyframe();
+    }
+
+    /**
+     * @return das nachgespielte Spiel
+     */
+    public PacmanGame getGame() {
+        return game;
+    }
+
+    /**
+     * @return true <-> das Spiel ist verloren oder alle Eingaben sind abgespielt
+     */
+    public boolean isFinished() {
+        if (lost) return true;
+        if (replay.isFinished()) return game.getTicks() >= replay.getEndTick();
+        return nextInput >= replay.getInputCount();
+    }
+
+    /**
+     * Fuehrt die Eingaben des aktuellen Schritts und den naechsten Schritt aus.
+     *
+     * @return false <-> das Spiel war bereits zu Ende
+     */
+    public boolean step() {
+        if (isFinished()) return false;
+        long tick = game.getTicks();
+        while (nextInput < replay.getInputCount() && replay.getInputTick(nextInput) == tick) {
+            int cheat = replay.getInputCheat(nextInput);
+            if (cheat >= 0)
+                game.cheat(cheat);
+            else
+                game.movePacman(replay.getInputDx(nextInput), replay.getInputDy(nextInput));
+            nextInput++;
+        }
+        game.tick();
+        if (game.isWon()) {
+            levelIndex++;
+            if (levelIndex >= levels.length)
+                throw new IllegalStateException("Die Aufzeichnung enthaelt zu wenige Level");
+            game.changeLevel(levels[levelIndex]);
+        } else if (game.isLost()) {
+            lost = true;
+        }
+        if (game.getTicks() % keyframeInterval == 0 && game.getTicks() / keyframeInterval == keyframes.size())
+            keyframe();
+        return true;
+    }
+
+    /**
+     * Spielt bis zum Ende der Aufzeichnung.
+     */
+    public void play() {
+        while (step()) {
+            // nichts weiter zu tun
+        }
+    }
+
+    /**
+     * Springt zum Zustand nach dem angegebenen Schritt, vor dessen Eingaben.
+     * Ausgegangen wird vom letzten davor festgehaltenen Zustand.
+     *
+     * @param tick Zielschritt
+     * @return false <-> das Spiel endet vor diesem Schritt
+     */
+    public boolean seek(long tick) {
+        if (tick < 0)
+            throw new IllegalArgumentException("Ungueltiger Schritt: " + tick);
+        int k = (int) Math.min(tick / keyframeInterval, keyframes.size() - 1);
+        // nur zurueckspringen, wenn der zustand naeher liegt als die aktuelle position
+        if (tick < game.getTicks() || (long) k * keyframeInterval > game.getTicks())
+            restore(k);
+        while (game.getTicks() < tick)
+            if (!step()) return false;
+        return true;
+    }
+
+    /**
+     * Prueft nach dem Abspielen, ob Endschritt und Punktzahl mit der
+     * Aufzeichnung uebereinstimmen.
+     *
+     * @return true <-> identisch, oder die Aufzeichnung wurde nicht abgeschlossen
+     */
+    public boolean matchesRecording() {
+        return !replay.isFinished()
+                || (game.getTicks() == replay.getEndTick() && game.getPoints() == replay.getEndPoints());
+    }
+
+    /**
+     * Haelt den aktuellen Zustand fest.
+     */
+    private void keyframe() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream s = new DataOutputStream(bytes);
+        try {
+            game.writeLayers(s);
+            game.writeFrame(s);
+        } catch (IOException e) {
+            // in den speicher zu schreiben schlaegt nicht fehl
+            throw new UncheckedIOException(e);
+        }
+        keyframes.add(new Keyframe(bytes.toByteArray(), levelIndex, nextInput, lost));
+    }
+
+    /**
+     * Setzt das Spiel auf einen festgehaltenen Zustand zurueck.
+     */
+    private void restore(int k) {
+        Keyframe keyframe = keyframes.get(k);
+        levelIndex = keyframe.levelIndex;
+        nextInput = keyframe.nextInput;
+        lost = keyframe.lost;
+        game.setLevel(levels[levelIndex]);
+        try {
+            DataInputStream s = new DataInputStream(new ByteArrayInputStream(keyframe.state));
+            game.readLayers(s);
+            game.readFrame(s);
+        } catch (IOException e) {
+            // die daten wurden von diesem abspieler selbst geschrieben
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return der eingebettete oder im Katalog gefundene Level
+     */
+    private static Level resolve(Replay.LevelChange change) throws Exception {
+        Level level = change.level;
+        if (level == null) {
+            LevelCatalog catalog = LevelCatalog.getShared();
+            String file = catalog.findByHash(change.hash);
+            if (file == null)
+                throw new IOException("Der Level " + change.name + " ist nicht im Levelordner");
+            level = catalog.load(file);
+        }
+        if (level.contentHash() != change.hash)
+            throw new IOException("Der Level " + change.name + " passt nicht zur Aufzeichnung");
+        return level;
+    }
+
+    /**
+     * Spielt Aufzeichnungen ohne Oberflaeche ab und gibt das Ergebnis aus.
+     *
+     * @param args Pfade der Aufzeichnungen
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Aufruf: ReplayPlayer aufzeichnung...");
+            return;
+        }
+        for (String file : args) {
+            long start = System.nanoTime();
+            ReplayPlayer player = new ReplayPlayer(Replay.read(Paths.get(file)));
+            player.play();
+            long ms = (System.nanoTime() - start) / 1000000;
+            PacmanGame game = player.getGame();
+            System.out.println(file + ": " + game.getTicks() + " Schritte, " + game.getPoints() + " Punkte, "
+                    + ms + " ms" + (player.matchesRecording() ? "" : " (WEICHT VON DER AUFZEICHNUNG AB)"));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package tud.ai1.pacman.model;
+
+import tud.ai1.pacman.util.Consts;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schreibt abgeschlossene {@link Replay}-Aufzeichnungen in einem
+ * Hintergrund-Thread in einen Ordner. Danach werden die aeltesten
+ * Aufzeichnungen geloescht, sodass hoechstens eine feste Anzahl erhalten
+ * bleibt. Die Dateinamen muessen dafuer chronologisch sortierbar sein.
+ *
+ * @author Thanh Son Bui
+ */
+public class ReplayWriter {
+    /** Dateiendung der Aufzeichnungen */
+    public static final String EXTENSION = ".rpl";
+
+    /** gemeinsamer Schreiber fuer {@link Consts#REPLAY_FOLDER}, wird bei Bedarf angelegt */
+    private static ReplayWriter shared;
+
+    /** Ordner der Aufzeichnungen */
+    private final Path folder;
+    /** Anzahl der aufbewahrten Aufzeichnungen */
+    private final int keep;
+    /** schreibt im Hintergrund */
+    private final BackgroundWriter writer = new BackgroundWriter("ReplayWriter");
+    /** Anzahl der geloeschten alten Aufzeichnungen */
+    private final AtomicLong deleted = new AtomicLong();
+
+    /**
+     * Konstruktor.
+     *
+     * @param folder Ordner der Aufzeichnungen, wird bei Bedarf angelegt
+     * @param keep Anzahl der aufbewahrten Aufzeichnungen
+     */
+    public ReplayWriter(Path folder, int keep) {
+        if (folder == null)
+            throw new IllegalArgumentException("Es wurde kein Ordner uebergeben!");
+        if (keep < 1)
+            throw new IllegalArgumentException("Es muss mindestens eine Aufzeichnung aufbewahrt werden!");
+        this.folder = folder;
+        this.keep = keep;
+    }
+
+    /**
+     * @return gemeinsamer Schreiber fuer {@link Consts#REPLAY_FOLDER}, null falls die Aufzeichnung abgeschaltet ist
+     */
+    public static synchronized ReplayWriter getShared() {
+        if (shared == null && Consts.REPLAY_FOLDER != null)
+            shared = new ReplayWriter(Paths.get(Consts.REPLAY_FOLDER), Consts.REPLAY_KEEP);
+        return shared;
+    }
+
+    /**
+     * Gibt die Aufzeichnung zum Schreiben im Hintergrund ab und kehrt sofort
+     * zurueck. Die Aufzeichnung darf danach nicht mehr veraendert werden.
+     *
+     * @param replay die abgeschlossene Aufzeichnung
+     * @param name Dateiname ohne Endung, chronologisch sortierbar
+     */
+    public void write(Replay replay, String name) {
+        if (replay == null || name == null)
+            throw new IllegalArgumentException("Aufzeichnung und Name muessen angegeben werden!");
+        Path file = folder.resolve(name + EXTENSION);
+        writer.execute("Aufzeichnung " + file, () -> {
+            replay.write(file);
+            prune();
+            return true;
+        });
+    }
+
+    /**
+     * Wartet, bis alle abgegebenen Aufzeichnungen geschrieben sind.
+     */
+    public void flush() {
+        writer.flush();
+    }
+
+    /**
+     * @return Anzahl der geschriebenen Aufzeichnungen
+     */
+    public long getWritten() {
+        return writer.getWritten();
+    }
+
+    /**
+     * @return Anzahl der geloeschten alten Aufzeichnungen
+     */
+    public long getDeleted() {
+        return deleted.get();
+    }
+
+    /**
+     * @return Anzahl der fehlgeschlagenen Schreibvorgaenge
+     */
+    public long getFailed() {
+        return writer.getFailed();
+    }
+
+    /**
+     * Loescht die aeltesten Aufzeichnungen ueber der Grenze, laeuft im
+     * Hintergrund-Thread nach dem Schreiben.
+     */
+    private void prune() {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(folder, "*" + EXTENSION)) {
+            for (Path p : dir)
+                files.add(p);
+            // die namen beginnen mit dem zeitpunkt, die aeltesten stehen vorne
+            Collections.sort(files);
+            for (int i = 0; i < files.size() - keep; i++)
+                if (Files.deleteIfExists(files.get(i)))
+                    deleted.incrementAndGet();
+        } catch (IOException e) {
+            System.err.println("Alte Aufzeichnungen in " + folder + " konnten nicht geloescht werden: " + e.getMessage());
+        }
+    }
+}
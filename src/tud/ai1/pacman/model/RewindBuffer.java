@@ -0,0 +1,265 @@
+package tud.ai1.pacman.model;
+
+import tud.ai1.pacman.model.level.Level;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Ringpuffer mit dem Zustand der letzten Simulationsschritte eines Spiels,
+ * auf den das Spiel jederzeit zurueckgesetzt werden kann.
+ *
+ * Jeder Schritt belegt einen Platz. Ein Schluesselbild enthaelt zusaetzlich
+ * alle Dots und Items, die uebrigen Schritte nur die seit dem letzten
+ * Schluesselbild gefressenen. Zum Zuruecksetzen werden also immer genau ein
+ * Schluesselbild und ein Schritt gelesen, unabhaengig von der Position im
+ * Puffer. Die Puffer der Plaetze werden wiederverwendet, nach dem Anlaufen
+ * wird beim Aufzeichnen nichts mehr angelegt.
+ *
+ * @author Thanh Son Bui
+ */
+public class RewindBuffer {
+
+    /**
+     * Puffer, der seinen Inhalt ohne Kopie lesbar macht.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        /**
+         * @return Stream ueber den aktuellen Inhalt
+         */
+        DataInputStream open() {
+            return new DataInputStream(new ByteArrayInputStream(buf, 0, count));
+        }
+    }
+
+    /**
+     * Ein Platz im Ringpuffer.
+     */
+    private static final class Frame {
+        /** aufgezeichnete Daten */
+        final Buffer bytes = new Buffer();
+        /** Stream zum Schreiben in {@link #bytes} */
+        final DataOutputStream out = new DataOutputStream(bytes);
+        /** Level des Spiels in diesem Schritt */
+        Level level;
+        /** Schritt des zugehoerigen Schluesselbilds, gleich dem eigenen bei Schluesselbildern */
+        long keyTick;
+    }
+
+    /** das aufgezeichnete Spiel */
+    private final PacmanGame game;
+    /** Plaetze des Ringpuffers */
+    private final Frame[] frames;
+    /** hoechster Abstand zwischen zwei Schluesselbildern */
+    private final int keyframeInterval;
+    /** Platz des aeltesten Schritts */
+    private int first;
+    /** Anzahl der belegten Plaetze */
+    private int count;
+    /** aeltester aufgezeichneter Schritt */
+    private long firstTick;
+    /** juengstes Schluesselbild */
+    private long lastKeyTick;
+    /** Ebene der Dots und Items beim letzten Schritt, eine neue erzwingt ein Schluesselbild */
+    private PickupLayer lastPickups;
+    /** seit dem letzten Schluesselbild gefressene Dots und Items */
+    private int[] sinceKey = new int[64];
+    /** Anzahl der Eintraege in {@link #sinceKey} */
+    private int sinceKeyCount;
+
+    /**
+     * Konstruktor.
+     * Schaltet im Spiel die Aufzeichnung gefressener Dots und Items ein.
+     *
+     * @param game das aufzuzeichnende Spiel
+     * @param capacity Anzahl der aufbewahrten Schritte
+     * @param keyframeInterval hoechster Abstand zwischen zwei Schluesselbildern
+     */
+    public RewindBuffer(PacmanGame game, int capacity, int keyframeInterval) {
+        if (game == null)
+            throw new IllegalArgumentException("Es wurde kein Spiel uebergeben!");
+        if (keyframeInterval < 1 || capacity <= keyframeInterval)
+            throw new IllegalArgumentException("Der Puffer muss mehr Schritte fassen als der Abstand der Schluesselbilder!");
+        this.game = game;
+        this.keyframeInterval = keyframeInterval;
+        frames = new Frame[capacity];
+        for (int i = 0; i < capacity; i++)
+            frames[i] = new Frame();
+        game.setRecordRemovals(true);
+    }
+
+    /**
+     * Zeichnet den aktuellen Zustand des Spiels auf, nach jedem Schritt
+     * aufzurufen. Fehlen Schritte seit der letzten Aufzeichnung, beginnt der
+     * Puffer von vorne.
+     */
+    public void record() {
+        long tick = game.getTicks();
+        if (count > 0 && tick != getNewestTick() + 1)
+            clear();
+        boolean key = count == 0 || game.getPickups() != lastPickups
+                || game.getLevel() != frames[slotOf(getNewestTick())].level
+                || tick - lastKeyTick >= keyframeInterval;
+        if (count == frames.length)
+            evict();
+
+        // gefressene dots und items seit dem letzten schritt uebernehmen
+        if (key) {
+            sinceKeyCount = 0;
+        } else {
+            int n = game.getRemovalCount();
+            if (sinceKeyCount + n > sinceKey.length)
+                sinceKey = Arrays.copyOf(sinceKey, Math.max(sinceKey.length * 2, sinceKeyCount + n));
+            for (int i = 0; i < n; i++)
+                sinceKey[sinceKeyCount++] = game.getRemoval(i);
+        }
+        game.clearRemovals();
+
+        if (count == 0) {
+            first = 0;
+            firstTick = tick;
+        }
+        Frame frame = frames[(first + count) % frames.length];
+        count++;
+        frame.level = game.getLevel();
+        frame.keyTick = key ? tick : lastKeyTick;
+        frame.bytes.reset();
+        try {
+            if (key) {
+                game.writeLayers(frame.out);
+            } else {
+                frame.out.writeInt(sinceKeyCount);
+                for (int i = 0; i < sinceKeyCount; i++)
+                    frame.out.writeInt(sinceKey[i]);
+            }
+            game.writeFrame(frame.out);
+        } catch (IOException e) {
+            // in den speicher zu schreiben schlaegt nicht fehl
+            throw new UncheckedIOException(e);
+        }
+        if (key)
+            lastKeyTick = tick;
+        lastPickups = game.getPickups();
+    }
+
+    /**
+     * Setzt das Spiel auf den Zustand nach dem angegebenen Schritt zurueck.
+     * Alle spaeteren Schritte werden verworfen.
+     *
+     * @param tick Schritt zwischen {@link #getOldestTick()} und {@link #getNewestTick()}
+     * @return false <-> der Schritt liegt nicht im Puffer
+     */
+    public boolean rewind(long tick) {
+        if (count == 0 || tick < firstTick || tick > getNewestTick())
+            return false;
+        Frame frame = frames[slotOf(tick)];
+        Frame keyframe = frames[slotOf(frame.keyTick)];
+        try {
+            game.setLevel(frame.level);
+            DataInputStream s = keyframe.bytes.open();
+            game.readLayers(s);
+            if (frame != keyframe) {
+                s = frame.bytes.open();
+                sinceKeyCount = s.readInt();
+                if (sinceKeyCount > sinceKey.length)
+                    sinceKey = new int[sinceKeyCount];
+                for (int i = 0; i < sinceKeyCount; i++) {
+                    sinceKey[i] = s.readInt();
+                    game.applyRemoval(sinceKey[i]);
+                }
+            } else {
+                sinceKeyCount = 0;
+            }
+            game.readFrame(s);
+        } catch (IOException e) {
+            // die daten wurden von diesem puffer selbst geschrieben
+            throw new UncheckedIOException(e);
+        }
+        game.clearRemovals();
+        count = (int) (tick - firstTick) + 1;
+        lastKeyTick = frame.keyTick;
+        lastPickups = game.getPickups();
+        return true;
+    }
+
+    /**
+     * Setzt das Spiel um die angegebene Anzahl Schritte zurueck, hoechstens
+     * aber bis zum aeltesten aufgezeichneten Schritt.
+     *
+     * @param ticks Anzahl der Schritte
+     * @return false <-> es ist nichts aufgezeichnet
+     */
+    public boolean rewindBy(int ticks) {
+        if (count == 0) return false;
+        return rewind(Math.max(firstTick, getNewestTick() - ticks));
+    }
+
+    /**
+     * Verwirft alle aufgezeichneten Schritte.
+     */
+    public void clear() {
+        count = 0;
+        sinceKeyCount = 0;
+        lastPickups = null;
+        for (Frame frame : frames)
+            frame.level = null;
+    }
+
+    /**
+     * @return Anzahl der aufgezeichneten Schritte
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return aeltester Schritt, auf den zurueckgesetzt werden kann
+     */
+    public long getOldestTick() {
+        return firstTick;
+    }
+
+    /**
+     * @return juengster aufgezeichneter Schritt
+     */
+    public long getNewestTick() {
+        return firstTick + count - 1;
+    }
+
+    /**
+     * @return belegter Speicher aller Plaetze in Bytes
+     */
+    public long getMemoryUsage() {
+        long sum = 0;
+        for (Frame frame : frames)
+            sum += frame.bytes.size();
+        return sum;
+    }
+
+    /**
+     * Gibt den aeltesten Platz frei. Schritte, deren Schluesselbild dabei
+     * wegfaellt, werden mit freigegeben, der Puffer reicht also immer
+     * mindestens Kapazitaet minus Schluesselbildabstand Schritte zurueck.
+     */
+    private void evict() {
+        do {
+            frames[first].level = null;
+            first = (first + 1) % frames.length;
+            firstTick++;
+            count--;
+        } while (count > 0 && frames[first].keyTick < firstTick);
+    }
+
+    /**
+     * @param tick ein aufgezeichneter Schritt
+     * @return Platz des Schritts
+     */
+    private int slotOf(long tick) {
+        return (int) ((first + (tick - firstTick)) % frames.length);
+    }
+}
@@ -0,0 +1,385 @@
+package tud.ai1.pacman.model;
+
+import tud.ai1.pacman.model.level.Level;
+import tud.ai1.pacman.model.level.LevelCatalog;
+import tud.ai1.pacman.model.level.LevelFile;
+import tud.ai1.pacman.model.level.LevelParser;
+import tud.ai1.pacman.model.level.LevelSequence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * Spielstand mit allen Leveln eines Spiels. Aufbau (big endian):
+ * <pre>
+ * int    Kennung "PSAV"
+ * short  Version
+ * je Abschnitt: int Kennung, int Laenge, Daten, int CRC32 der Daten
+ * </pre>
+ * Abschnitte:
+ * <ul>
+ *     <li>"LVLS": Anzahl Level, Index des aktuellen Levels, je Level ein
+ *     boolean, ob er aus dem {@link LevelCatalog} stammt. Dann folgen
+ *     Dateiname und {@link Level#contentHash()}, sonst Name und Level im
+ *     {@link LevelFile}-Format</li>
+ *     <li>"GAME": Zustand des Spiels ({@link PacmanGame#saveState}), davor
+ *     der Level des Spiels, falls er nicht der aktuelle der Liste ist</li>
+ *     <li>"END ": Ende des Spielstands</li>
+ * </ul>
+ * Unbekannte Abschnitte werden beim Lesen uebersprungen. Spielstaende der
+ * Version 2 (alle Level eingebettet) und im alten Format (ohne Kennung)
+ * werden weiterhin gelesen. Ein Level aus dem Katalog wird beim Lesen ueber
+ * seine Pruefsumme wiedergefunden, falls die Datei umbenannt wurde.
+ *
+ * @author Thanh Son Bui
+ */
+public class SaveFile {
+    /** Kennung am Dateianfang ("PSAV") */
+    private static final int MAGIC = 0x50534156;
+    /** Version des Formats */
+    private static final short VERSION = 3;
+    /** Version mit ausschliesslich eingebetteten Leveln */
+    private static final short VERSION_EMBEDDED = 2;
+    /** Abschnitt mit den Leveln */
+    private static final int CHUNK_LEVELS = 0x4C564C53;
+    /** Abschnitt mit dem Spielzustand */
+    private static final int CHUNK_GAME = 0x47414D45;
+    /** letzter Abschnitt */
+    private static final int CHUNK_END = 0x454E4420;
+
+    /** alle Level des Spiels */
+    private final LevelSequence levels;
+    /** Index des aktuellen Levels */
+    private final int currentLevel;
+    /** das geladene Spiel */
+    private final PacmanGame game;
+
+    /**
+     * Konstruktor.
+     *
+     * @param levels alle Level des Spiels
+     * @param currentLevel Index des aktuellen Levels
+     * @param game das geladene Spiel
+     */
+    private SaveFile(LevelSequence levels, int currentLevel, PacmanGame game) {
+        this.levels = levels;
+        this.currentLevel = currentLevel;
+        this.game = game;
+    }
+
+    /**
+     * @return alle Level des Spiels, Level aus dem Katalog werden beim Zugriff geladen
+     */
+    public LevelSequence getLevels() {
+        return levels;
+    }
+
+    /**
+     * @return Index des aktuellen Levels
+     */
+    public int getCurrentLevel() {
+        return currentLevel;
+    }
+
+    /**
+     * @return das geladene Spiel
+     */
+    public PacmanGame getGame() {
+        return game;
+    }
+
+    /**
+     * Schreibt einen Spielstand. Es wird erst in eine temporaere Datei
+     * geschrieben und diese dann umbenannt, ein Absturz waehrend des
+     * Schreibens laesst den alten Spielstand also unversehrt.
+     *
+     * @param file Zieldatei, wird ersetzt
+     * @param snapshot der zu speichernde Spielstand
+     * @throws IOException bei Schreibfehlern
+     */
+    public static void write(Path file, GameSnapshot snapshot) throws IOException {
+        if (file == null || snapshot == null)
+            throw new IllegalArgumentException("Datei und Spielstand muessen angegeben werden!");
+        Path folder = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(folder, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                write(out, snapshot);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Schreibt einen Spielstand in den Stream. Level aus dem Katalog werden
+     * nur referenziert und dafuer nicht geladen.
+     *
+     * @param out Zielstrom, wird nicht geschlossen
+     * @param snapshot der zu speichernde Spielstand
+     * @throws IOException bei Schreibfehlern oder falls ein Level nicht geladen werden kann
+     */
+    public static void write(OutputStream out, GameSnapshot snapshot) throws IOException {
+        DataOutputStream s = new DataOutputStream(out);
+        s.writeInt(MAGIC);
+        s.writeShort(VERSION);
+
+        LevelSequence levels = snapshot.getLevels();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream chunk = new DataOutputStream(bytes);
+        chunk.writeInt(levels.size());
+        chunk.writeInt(snapshot.getCurrentLevel());
+        for (int i = 0; i < levels.size(); i++) {
+            String file = levels.getFile(i);
+            LevelCatalog.Entry entry = file != null ? levels.getCatalog().getEntry(file) : null;
+            boolean inCatalog = entry != null && entry.isValid();
+            chunk.writeBoolean(inCatalog);
+            if (inCatalog) {
+                writeString(chunk, file);
+                chunk.writeLong(entry.getHash());
+            } else {
+                Level level = load(levels, i);
+                writeString(chunk, level.getName());
+                writeLevel(chunk, level);
+            }
+        }
+        writeChunk(s, CHUNK_LEVELS, bytes);
+
+        bytes.reset();
+        // der aktuelle level wird gerade gespielt und ist daher noch geladen
+        Level current = load(levels, snapshot.getCurrentLevel());
+        Level level = snapshot.getLevel();
+        boolean ownLevel = level != current;
+        chunk.writeBoolean(ownLevel);
+        if (ownLevel) {
+            writeString(chunk, level.getName());
+            writeLevel(chunk, level);
+        }
+        snapshot.writeState(chunk);
+        writeChunk(s, CHUNK_GAME, bytes);
+
+        bytes.reset();
+        writeChunk(s, CHUNK_END, bytes);
+        s.flush();
+    }
+
+    /**
+     * Liest einen Spielstand, auch im alten Format.
+     *
+     * @param file Pfad des Spielstands
+     * @param clock Zeitgeber des geladenen Spiels
+     * @return der gelesene Spielstand
+     * @throws Exception bei fehlerhaften Daten
+     */
+    public static SaveFile read(Path file, GameClock clock) throws Exception {
+        try (DataInputStream s = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            s.mark(4);
+            if (s.readInt() != MAGIC) {
+                s.reset();
+                return readLegacy(s, clock);
+            }
+            short version = s.readShort();
+            if (version != VERSION && version != VERSION_EMBEDDED)
+                throw new IOException("Unbekannte Version des Spielstands: " + version);
+
+            LevelSequence levels = null;
+            int currentLevel = 0;
+            PacmanGame game = null;
+            // noch nicht gelesene bytes, begrenzt die laengenangaben der abschnitte
+            long remaining = Files.size(file) - 6;
+            while (true) {
+                int tag = s.readInt();
+                byte[] data = readChunk(s, tag, remaining - 4);
+                remaining -= 4 + 4 + data.length + 4;
+                DataInputStream chunk = new DataInputStream(new ByteArrayInputStream(data));
+                if (tag == CHUNK_END) break;
+                if (tag == CHUNK_LEVELS) {
+                    int n = chunk.readInt();
+                    currentLevel = chunk.readInt();
+                    // jeder level belegt mindestens zwei laengenangaben
+                    if (n <= 0 || n > chunk.available() / 8 || currentLevel < 0 || currentLevel >= n)
+                        throw new IOException("Ungueltige Levelliste im Spielstand");
+                    levels = readLevels(chunk, n, version);
+                } else if (tag == CHUNK_GAME) {
+                    if (levels == null)
+                        throw new IOException("Der Spielstand enthaelt keine Level");
+                    Level level = chunk.readBoolean() ? readLevel(chunk) : levels.get(currentLevel);
+                    game = new PacmanGame(level, chunk, clock);
+                }
+                // unbekannte abschnitte ueberspringen
+            }
+            if (levels == null || game == null)
+                throw new IOException("Der Spielstand ist unvollstaendig");
+            return new SaveFile(levels, currentLevel, game);
+        } catch (EOFException e) {
+            throw new IOException("Der Spielstand ist unvollstaendig", e);
+        }
+    }
+
+    /**
+     * Liest einen Spielstand im alten Format: Level als Text per writeUTF,
+     * danach {@link PacmanGame#saveGame(DataOutputStream)}.
+     */
+    private static SaveFile readLegacy(DataInputStream s, GameClock clock) throws Exception {
+        Level[] levels = new Level[s.readInt()];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = LevelParser.fromString(s.readUTF());
+            levels[i].setName(s.readUTF());
+        }
+        int currentLevel = s.readInt();
+        return new SaveFile(new LevelSequence(levels), currentLevel, new PacmanGame(s, clock));
+    }
+
+    /**
+     * Liest die Level des Abschnitts "LVLS". Level aus dem Katalog werden
+     * erst beim Zugriff geladen.
+     *
+     * @param s Stream ueber die Daten des Abschnitts, nach Anzahl und aktuellem Index
+     * @param n Anzahl der Level
+     * @param version Version des Spielstands
+     */
+    private static LevelSequence readLevels(DataInputStream s, int n, short version) throws IOException {
+        LevelCatalog catalog = null;
+        String[] files = new String[n];
+        Level[] levels = new Level[n];
+        for (int i = 0; i < n; i++) {
+            if (version == VERSION_EMBEDDED || !s.readBoolean()) {
+                levels[i] = readLevel(s);
+                continue;
+            }
+            String saved = readString(s);
+            long hash = s.readLong();
+            if (catalog == null)
+                catalog = LevelCatalog.getShared();
+            LevelCatalog.Entry entry = catalog.getEntry(saved);
+            String file = saved;
+            if (entry == null || !entry.isValid() || entry.getHash() != hash) {
+                // die datei wurde umbenannt oder geaendert
+                file = catalog.findByHash(hash);
+                if (file == null)
+                    throw new IOException("Der Level " + saved + " ist nicht mehr im Levelordner");
+            }
+            files[i] = file;
+        }
+        return catalog == null ? new LevelSequence(levels) : new LevelSequence(catalog, files, levels);
+    }
+
+    /**
+     * @return der Level an Position index, falls noetig jetzt geladen
+     * @throws IOException falls der Level nicht geladen werden kann
+     */
+    private static Level load(LevelSequence levels, int index) throws IOException {
+        try {
+            return levels.get(index);
+        } catch (Exception e) {
+            throw new IOException("Level " + index + " konnte nicht geladen werden", e);
+        }
+    }
+
+    /**
+     * Schreibt einen Abschnitt mit Pruefsumme.
+     */
+    private static void writeChunk(DataOutputStream s, int tag, ByteArrayOutputStream bytes) throws IOException {
+        byte[] data = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        s.writeInt(tag);
+        s.writeInt(data.length);
+        s.write(data);
+        s.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Liest einen Abschnitt und prueft seine Pruefsumme. Die Laenge wird vor
+     * dem Anlegen des Puffers gegen die restliche Dateigroesse geprueft.
+     *
+     * @param remaining Anzahl der Bytes ab der Laengenangabe bis zum Dateiende
+     * @return Daten des Abschnitts
+     */
+    private static byte[] readChunk(DataInputStream s, int tag, long remaining) throws IOException {
+        int length = s.readInt();
+        if (length < 0 || length > remaining - 8)
+            throw new IOException("Ungueltige Laenge eines Abschnitts: " + length);
+        byte[] data = new byte[length];
+        s.readFully(data);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if ((int) crc.getValue() != s.readInt())
+            throw new IOException("Die Pruefsumme des Abschnitts " + tagName(tag) + " stimmt nicht");
+        return data;
+    }
+
+    /**
+     * @param s Stream ueber die Daten eines Abschnitts
+     * @return Name und Level im {@link LevelFile}-Format
+     */
+    private static Level readLevel(DataInputStream s) throws IOException {
+        String name = readString(s);
+        int length = s.readInt();
+        // s liest aus einem abschnitt im speicher, available() ist also exakt
+        if (length < 0 || length > s.available())
+            throw new IOException("Ungueltige Laenge eines Levels: " + length);
+        byte[] data = new byte[length];
+        s.readFully(data);
+        Level level = LevelFile.read(ByteBuffer.wrap(data));
+        level.setName(name);
+        return level;
+    }
+
+    /**
+     * Schreibt einen Level im {@link LevelFile}-Format, ohne Namen.
+     */
+    private static void writeLevel(DataOutputStream s, Level level) throws IOException {
+        ByteBuffer data = LevelFile.encode(level);
+        s.writeInt(data.remaining());
+        s.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+    }
+
+    /**
+     * Schreibt eine Zeichenkette ohne die Laengengrenze von writeUTF.
+     */
+    private static void writeString(DataOutputStream s, String value) throws IOException {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        s.writeInt(data.length);
+        s.write(data);
+    }
+
+    /**
+     * @param s Stream ueber die Daten eines Abschnitts
+     * @return mit {@link #writeString} geschriebene Zeichenkette
+     */
+    private static String readString(DataInputStream s) throws IOException {
+        int length = s.readInt();
+        if (length < 0 || length > s.available())
+            throw new IOException("Ungueltige Laenge einer Zeichenkette: " + length);
+        byte[] data = new byte[length];
+        s.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Kennung eines Abschnitts als Text
+     */
+    private static String tagName(int tag) {
+        return new String(ByteBuffer.allocate(4).putInt(tag).array(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,83 @@
+package tud.ai1.pacman.model;
+
+import java.util.Random;
+
+/**
+ * Random-Generator mit demselben linearen Kongruenzgenerator wie
+ * {@link Random}, liefert bei gleichem Seed also dieselben Zahlen. Der
+ * innere Zustand kann zusaetzlich ausgelesen und gesetzt werden, z. B. um
+ * ein Spiel auf einen frueheren Zeitpunkt zurueckzusetzen.
+ *
+ * Im Gegensatz zu {@link Random} nicht threadsicher.
+ *
+ * @author Thanh Son Bui
+ */
+public class StateRandom extends Random {
+    /**
+     * Vorgegebene serial Versionsnummer. Der innere Zustand wird als
+     * normales Feld mit serialisiert, beim Einlesen setzt Random den Seed
+     * ohne {@link #setSeed(long)} und ueberschreibt ihn daher nicht.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /** Faktor des Generators, wie in {@link Random} */
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    /** Summand des Generators, wie in {@link Random} */
+    private static final long ADDEND = 0xBL;
+    /** der Zustand umfasst 48 Bit */
+    private static final long MASK = (1L << 48) - 1;
+
+    /** innerer Zustand, wird schon vom Konstruktor von Random ueber setSeed gesetzt */
+    private long state;
+
+    /**
+     * Konstruktor.
+     * Der Seed wird wie bei {@link Random#Random()} gewaehlt.
+     */
+    public StateRandom() {
+        super();
+    }
+
+    /**
+     * Konstruktor.
+     *
+     * @param seed Seed des Generators
+     */
+    public StateRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * @return der innere Zustand (48 Bit)
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Setzt den inneren Zustand, wie er von {@link #getState()} geliefert wurde.
+     *
+     * @param state der innere Zustand
+     */
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,27 @@
+package tud.ai1.pacman.model;
+
+/**
+ * Zeitgeber, der direkt der Systemzeit folgt.
+ *
+ * @author Thanh Son Bui
+ */
+public class SystemClock implements GameClock {
+    /** Gemeinsame Instanz, da der Zeitgeber keinen Zustand besitzt */
+    public static final SystemClock INSTANCE = new SystemClock();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Die Systemzeit laeuft von selbst weiter.
+     */
+    @Override
+    public void advance() {
+    }
+}
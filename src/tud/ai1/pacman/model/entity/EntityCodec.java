@@ -0,0 +1,123 @@
+package tud.ai1.pacman.model.entity;
+
+import tud.ai1.pacman.model.entity.pickup.Dot;
+import tud.ai1.pacman.model.entity.pickup.PowerUp;
+import tud.ai1.pacman.model.entity.pickup.SpeedUp;
+import tud.ai1.pacman.model.entity.pickup.Teleporter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verzeichnis der speicherbaren Entitaeten. Jede Klasse erhaelt eine
+ * Typnummer von 1 bis 255, die beim Schreiben statt des Klassennamens
+ * vorangestellt wird. Beim Lesen wird ueber die Nummer direkt der passende
+ * Konstruktor aufgerufen, ohne Reflection.
+ *
+ * Die Nummern der mitgelieferten Entitaeten sind Teil des Speicherformats
+ * und duerfen nicht geaendert werden.
+ *
+ * @author Thanh Son Bui
+ */
+public final class EntityCodec {
+
+    /**
+     * Erzeugt eine Entitaet aus dem Stream, in der Regel der Konstruktor
+     * mit DataInputStream.
+     */
+    @FunctionalInterface
+    public interface Reader {
+        /**
+         * @param s der Stream, aus dem die Daten gelesen werden
+         * @return die gelesene Entitaet
+         * @throws IOException bei Lesefehlern
+         */
+        GameEntity read(DataInputStream s) throws IOException;
+    }
+
+    /** Leser je Typnummer, wird beim Registrieren ersetzt statt veraendert */
+    private static volatile Reader[] readers = new Reader[256];
+    /** Typnummer je Klasse */
+    private static final Map<Class<?>, Integer> ids = new ConcurrentHashMap<>();
+    /** Leser je Klassenname, fuer {@link GameEntity#readEntity} */
+    private static final Map<String, Reader> names = new ConcurrentHashMap<>();
+
+    static {
+        register(1, Pacman.class, Pacman::new);
+        register(2, Ghost.class, Ghost::new);
+        register(3, Dot.class, Dot::new);
+        register(4, PowerUp.class, PowerUp::new);
+        register(5, SpeedUp.class, SpeedUp::new);
+        register(6, Teleporter.class, Teleporter::new);
+    }
+
+    /**
+     * Keine Instanzen.
+     */
+    private EntityCodec() {
+    }
+
+    /**
+     * Registriert eine Entitaetsklasse.
+     *
+     * @param id Typnummer von 1 bis 255
+     * @param type die Klasse, Unterklassen brauchen eine eigene Nummer
+     * @param reader erzeugt eine Entitaet dieser Klasse aus dem Stream
+     */
+    public static synchronized void register(int id, Class<? extends GameEntity> type, Reader reader) {
+        if (id < 1 || id > 255)
+            throw new IllegalArgumentException("Ungueltige Typnummer: " + id);
+        if (type == null || reader == null)
+            throw new IllegalArgumentException("Klasse und Leser muessen angegeben werden!");
+        if (readers[id] != null)
+            throw new IllegalArgumentException("Die Typnummer " + id + " ist bereits vergeben!");
+        if (ids.containsKey(type))
+            throw new IllegalArgumentException("Die Klasse " + type.getName() + " ist bereits registriert!");
+        Reader[] copy = readers.clone();
+        copy[id] = reader;
+        ids.put(type, id);
+        names.put(type.getName(), reader);
+        readers = copy;
+    }
+
+    /**
+     * Schreibt Typnummer und Zustand der Entitaet.
+     *
+     * @param entity die zu schreibende Entitaet
+     * @param s der Stream, in dem die Daten geschrieben werden
+     * @throws IOException bei Schreibfehlern
+     */
+    public static void write(GameEntity entity, DataOutputStream s) throws IOException {
+        Integer id = ids.get(entity.getClass());
+        if (id == null)
+            throw new IllegalArgumentException("Die Klasse " + entity.getClass().getName() + " ist nicht registriert!");
+        s.writeByte(id);
+        entity.writeState(s);
+    }
+
+    /**
+     * Liest eine mit {@link #write} geschriebene Entitaet.
+     *
+     * @param s der Stream, aus dem die Daten gelesen werden
+     * @return die gelesene Entitaet
+     * @throws IOException bei Lesefehlern oder unbekannter Typnummer
+     */
+    public static GameEntity read(DataInputStream s) throws IOException {
+        int id = s.readUnsignedByte();
+        Reader reader = readers[id];
+        if (reader == null)
+            throw new IOException("Unbekannte Typnummer einer Entitaet: " + id);
+        return reader.read(s);
+    }
+
+    /**
+     * @param name voller Klassenname
+     * @return Leser der Klasse, null falls sie nicht registriert ist
+     */
+    static Reader forName(String name) {
+        return names.get(name);
+    }
+}
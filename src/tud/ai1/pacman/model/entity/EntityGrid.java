@@ -0,0 +1,171 @@
+package tud.ai1.pacman.model.entity;
+
+import java.util.List;
+
+/**
+ * Raeumlicher Index ueber alle Entitaeten eines Levels. Jede Rasterzelle
+ * verweist auf eine doppelt verkettete Liste der Entitaeten, deren gerundete
+ * Position in dieser Zelle liegt. Eintragen, Austragen und Verschieben sind
+ * damit in O(1) moeglich.
+ *
+ * @author Thanh Son Bui
+ */
+public class EntityGrid {
+    /** Breite des Rasters */
+    private final int width;
+    /** Hoehe des Rasters */
+    private final int height;
+    /** erste Entitaet je Zelle */
+    private final GameEntity[] heads;
+    /** Anzahl der eingetragenen Entitaeten */
+    private int size;
+
+    /**
+     * Konstruktor.
+     *
+     * @param width Breite des Levels
+     * @param height Hoehe des Levels
+     */
+    public EntityGrid(int width, int height) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Das Raster muss mindestens eine Zelle haben!");
+        this.width = width;
+        this.height = height;
+        heads = new GameEntity[width * height];
+        size = 0;
+    }
+
+    /**
+     * @return Breite des Rasters
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return Hoehe des Rasters
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Anzahl der eingetragenen Entitaeten
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param x X-Koordinate, wird am Levelrand umgebrochen
+     * @param y Y-Koordinate, wird am Levelrand umgebrochen
+     * @return Index der Zelle
+     */
+    private int cellAt(int x, int y) {
+        return Math.floorMod(y, height) * width + Math.floorMod(x, width);
+    }
+
+    /**
+     * @param e eine Entitaet
+     * @return Index der Zelle, in der die Entitaet liegt
+     */
+    private int cellOf(GameEntity e) {
+        return cellAt(Math.round(e.getPos().x), Math.round(e.getPos().y));
+    }
+
+    /**
+     * Traegt eine Entitaet in ihre aktuelle Zelle ein.
+     *
+     * @param e die Entitaet
+     */
+    public void add(GameEntity e) {
+        if (e.gridCell >= 0)
+            throw new IllegalArgumentException("Die Entitaet ist bereits eingetragen!");
+        link(e, cellOf(e));
+        size++;
+    }
+
+    /**
+     * Traegt eine Entitaet aus.
+     *
+     * @param e die Entitaet
+     */
+    public void remove(GameEntity e) {
+        if (e.gridCell < 0) return;
+        unlink(e);
+        size--;
+    }
+
+    /**
+     * Verschiebt eine Entitaet in die Zelle ihrer aktuellen Position.
+     *
+     * @param e die Entitaet
+     */
+    public void update(GameEntity e) {
+        if (e.gridCell < 0) return;
+        int cell = cellOf(e);
+        if (cell != e.gridCell) {
+            unlink(e);
+            link(e, cell);
+        }
+    }
+
+    /**
+     * Traegt alle Entitaeten aus.
+     */
+    public void clear() {
+        for (int i = 0; i < heads.length; i++) {
+            for (GameEntity e = heads[i], next; e != null; e = next) {
+                next = e.gridNext;
+                e.gridCell = -1;
+                e.gridPrev = e.gridNext = null;
+            }
+            heads[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Sammelt alle Entitaeten aus der Zelle der Position und deren acht
+     * Nachbarzellen. Das sind alle Entitaeten, die weniger als eine Zelle
+     * von der Position entfernt sein koennen.
+     *
+     * @param x X-Koordinate
+     * @param y Y-Koordinate
+     * @param out wird geleert und mit den gefundenen Entitaeten gefuellt
+     */
+    public void collect(float x, float y, List<GameEntity> out) {
+        out.clear();
+        // bei sehr schmalen leveln jede spalte/zeile nur einmal besuchen
+        int nx = Math.min(3, width), ny = Math.min(3, height);
+        int sx = (width >= 3) ? Math.round(x) - 1 : 0;
+        int sy = (height >= 3) ? Math.round(y) - 1 : 0;
+        for (int dy = 0; dy < ny; dy++)
+            for (int dx = 0; dx < nx; dx++)
+                for (GameEntity e = heads[cellAt(sx + dx, sy + dy)]; e != null; e = e.gridNext)
+                    out.add(e);
+    }
+
+    /**
+     * Haengt die Entitaet vorne an die Liste der Zelle an.
+     */
+    private void link(GameEntity e, int cell) {
+        GameEntity head = heads[cell];
+        e.gridCell = cell;
+        e.gridPrev = null;
+        e.gridNext = head;
+        if (head != null) head.gridPrev = e;
+        heads[cell] = e;
+    }
+
+    /**
+     * Entfernt die Entitaet aus der Liste ihrer Zelle.
+     */
+    private void unlink(GameEntity e) {
+        if (e.gridPrev != null) e.gridPrev.gridNext = e.gridNext;
+        else heads[e.gridCell] = e.gridNext;
+        if (e.gridNext != null) e.gridNext.gridPrev = e.gridPrev;
+        e.gridCell = -1;
+        e.gridPrev = e.gridNext = null;
+    }
+}
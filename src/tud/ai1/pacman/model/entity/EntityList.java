@@ -0,0 +1,279 @@
+package tud.ai1.pacman.model.entity;
+
+import tud.ai1.pacman.model.entity.pickup.Dot;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * Liste aller Entitaeten eines Levels, die ihren {@link EntityGrid} selbst
+ * aktuell haelt. Jede Entitaet kennt ihren Index in der Liste, sodass
+ * {@link #remove(Object)}, {@link #contains(Object)} und
+ * {@link #indexOf(Object)} in O(1) moeglich sind.
+ *
+ * Beim Entfernen rueckt die letzte Entitaet an die frei gewordene Stelle,
+ * die Reihenfolge bleibt dabei also nicht erhalten. Nur
+ * {@link #removeIf(Predicate)} und das Einfuegen an einem Index behalten sie
+ * bei.
+ *
+ * @author Thanh Son Bui
+ */
+public class EntityList extends AbstractList<GameEntity> implements RandomAccess {
+    /** die Entitaeten, belegt sind die ersten {@link #size} Plaetze */
+    private GameEntity[] items = new GameEntity[16];
+    /** Anzahl der Entitaeten */
+    private int size;
+    /** raeumlicher Index ueber alle Entitaeten, null solange kein Level gesetzt ist */
+    private EntityGrid grid;
+    /** Anzahl der Dots, die als eigene Entitaet in der Liste stehen */
+    private int dots;
+    /** Anzahl der Geister, die als eigene Entitaet in der Liste stehen */
+    private int ghosts;
+
+    /**
+     * @return der raeumliche Index, null solange {@link #setGridSize} nicht aufgerufen wurde
+     */
+    public EntityGrid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Passt den raeumlichen Index an die Groesse des Levels an und traegt
+     * alle Entitaeten neu ein.
+     *
+     * @param width Breite des Levels
+     * @param height Hoehe des Levels
+     */
+    public void setGridSize(int width, int height) {
+        if (grid == null || grid.getWidth() != width || grid.getHeight() != height) {
+            if (grid != null)
+                grid.clear();
+            grid = new EntityGrid(width, height);
+        } else {
+            grid.clear();
+        }
+        for (int i = 0; i < size; i++)
+            grid.add(items[i]);
+    }
+
+    /**
+     * @return Anzahl der Dots, die als eigene Entitaet in der Liste stehen
+     */
+    public int getDotCount() {
+        return dots;
+    }
+
+    /**
+     * @return Anzahl der Geister, die als eigene Entitaet in der Liste stehen
+     */
+    public int getGhostCount() {
+        return ghosts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public GameEntity get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Ungueltiger Index: " + index);
+        return items[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Haengt die Entitaet an und traegt sie in den raeumlichen Index ein.
+     *
+     * @param e die Entitaet
+     * @return immer true
+     */
+    @Override
+    public boolean add(GameEntity e) {
+        add(size, e);
+        return true;
+    }
+
+    /**
+     * Fuegt die Entitaet am Index ein. Am Ende in O(1), sonst werden die
+     * folgenden Entitaeten verschoben.
+     *
+     * @param index Index der neuen Entitaet
+     * @param e die Entitaet
+     */
+    @Override
+    public void add(int index, GameEntity e) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Ungueltiger Index: " + index);
+        register(e);
+        if (size == items.length)
+            items = Arrays.copyOf(items, size * 2);
+        System.arraycopy(items, index, items, index + 1, size - index);
+        size++;
+        for (int i = index; i < size; i++)
+            place(i, i == index ? e : items[i]);
+        modCount++;
+    }
+
+    /**
+     * Ersetzt die Entitaet am Index.
+     *
+     * @param index Index der Entitaet
+     * @param e die neue Entitaet
+     * @return die ersetzte Entitaet
+     */
+    @Override
+    public GameEntity set(int index, GameEntity e) {
+        GameEntity old = get(index);
+        if (old == e) return old;
+        register(e);
+        unregister(old);
+        place(index, e);
+        return old;
+    }
+
+    /**
+     * Entfernt die Entitaet am Index in O(1), die letzte Entitaet rueckt an
+     * ihre Stelle.
+     *
+     * @param index Index der Entitaet
+     * @return die entfernte Entitaet
+     */
+    @Override
+    public GameEntity remove(int index) {
+        GameEntity e = get(index);
+        unregister(e);
+        size--;
+        if (index != size)
+            place(index, items[size]);
+        items[size] = null;
+        modCount++;
+        return e;
+    }
+
+    /**
+     * Entfernt die Entitaet in O(1), siehe {@link #remove(int)}.
+     *
+     * @param o die Entitaet
+     * @return true <-> die Entitaet war in der Liste
+     */
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) return false;
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Entfernt alle passenden Entitaeten in einem Durchlauf, die Reihenfolge
+     * der uebrigen bleibt erhalten.
+     *
+     * @param filter Bedingung fuer das Entfernen
+     * @return true <-> mindestens eine Entitaet wurde entfernt
+     */
+    @Override
+    public boolean removeIf(Predicate<? super GameEntity> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            GameEntity e = items[i];
+            if (filter.test(e))
+                unregister(e);
+            else
+                place(kept++, e);
+        }
+        if (kept == size) return false;
+        Arrays.fill(items, kept, size, null);
+        size = kept;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof GameEntity)) return -1;
+        int index = ((GameEntity) o).listIndex;
+        return index >= 0 && index < size && items[index] == o ? index : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Entfernt alle Entitaeten und traegt sie aus dem raeumlichen Index aus.
+     */
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            items[i].listIndex = -1;
+            items[i] = null;
+        }
+        if (grid != null)
+            grid.clear();
+        size = 0;
+        dots = 0;
+        ghosts = 0;
+        modCount++;
+    }
+
+    /**
+     * Legt die Entitaet auf den Platz und merkt ihr den Index.
+     */
+    private void place(int index, GameEntity e) {
+        items[index] = e;
+        e.listIndex = index;
+    }
+
+    /**
+     * Traegt eine neue Entitaet in den raeumlichen Index ein.
+     */
+    private void register(GameEntity e) {
+        if (e == null)
+            throw new IllegalArgumentException("Es wurde keine Entitaet uebergeben!");
+        if (e.listIndex >= 0)
+            throw new IllegalArgumentException("Die Entitaet ist bereits in einer Liste!");
+        if (grid != null)
+            grid.add(e);
+        if (e instanceof Dot)
+            dots++;
+        else if (e instanceof Ghost)
+            ghosts++;
+    }
+
+    /**
+     * Traegt eine entfernte Entitaet aus dem raeumlichen Index aus.
+     */
+    private void unregister(GameEntity e) {
+        e.listIndex = -1;
+        if (grid != null)
+            grid.remove(e);
+        if (e instanceof Dot)
+            dots--;
+        else if (e instanceof Ghost)
+            ghosts--;
+    }
+}
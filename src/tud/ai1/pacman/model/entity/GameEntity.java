@@ -20,10 +20,19 @@ public abstract class GameEntity {
 	public static final String[] saveStateOrder = {"answerToLife", "pos"};
 	
     /** Die aktuelle Position */
-    private Vector2f pos;
+    private final Vector2f pos;
 	/** Dummy-Feld, nur als Erklaerung fuer 5b */
 	private final int answerToLife;
 
+    /** Zelle im {@link EntityGrid}, -1 falls nicht eingetragen. NICHT ABSPEICHERN/LADEN! */
+    int gridCell = -1;
+    /** Vorgaenger in der Zellenliste des {@link EntityGrid} */
+    GameEntity gridPrev;
+    /** Nachfolger in der Zellenliste des {@link EntityGrid} */
+    GameEntity gridNext;
+    /** Index in der {@link EntityList}, -1 falls nicht enthalten. NICHT ABSPEICHERN/LADEN! */
+    int listIndex = -1;
+
     /**
      * Konstruktor.
      * Die Position der Entitaet wird mit (0, 0) initialisiert.
@@ -46,21 +55,36 @@ public abstract class GameEntity {
     }
 
     /**
-     * Schreibt den aktuellen Zustand in den uebergebenen Stream.
+     * Schreibt den Klassennamen und den aktuellen Zustand in den uebergebenen
+     * Stream. Kompakter ist {@link EntityCodec#write}, das statt des Namens
+     * nur eine Typnummer schreibt.
      *
      * @param s der Stream, in dem die Daten geschrieben werden
      * @throws IOException bei Schreibfehlern
      */
     public void writeEntity(DataOutputStream s) throws IOException {
-        // die standardmethode schreibt nur den klassennamen und koordinaten
         s.writeUTF(this.getClass().getName());
+        writeState(s);
+    }
+
+    /**
+     * Schreibt den aktuellen Zustand ohne Typangabe in den uebergebenen
+     * Stream. Unterklassen mit eigenem Zustand ueberschreiben diese Methode
+     * passend zu ihrem Konstruktor mit DataInputStream.
+     *
+     * @param s der Stream, in dem die Daten geschrieben werden
+     * @throws IOException bei Schreibfehlern
+     */
+    protected void writeState(DataOutputStream s) throws IOException {
+        // die standardmethode schreibt nur die koordinaten
 		s.writeInt(answerToLife);
         s.writeFloat(this.pos.x);
         s.writeFloat(this.pos.y);
     }
 
     /**
-     * Factory Methode, die eine GameEntity anhand des Streams konstruiert.
+     * Factory Methode, die eine mit {@link #writeEntity} geschriebene
+     * GameEntity anhand des Streams konstruiert.
      *
      * @param s der Stream, aus dem die Daten gelesen werden
      * @return die konstruierte Entitaet
@@ -68,6 +92,10 @@ public abstract class GameEntity {
     public static GameEntity readEntity(DataInputStream s) throws Exception {
         // klassennamen lesen
         String name = s.readUTF();
+        // registrierte klassen ohne reflection erzeugen
+        EntityCodec.Reader reader = EntityCodec.forName(name);
+        if (reader != null)
+            return reader.read(s);
         // klassentyp durch den klassennamen ermitteln
         Class<?> cls = Class.forName(name);
         // konstruktor zum laden durch einen DataInputStreams ermitteln
@@ -76,14 +104,25 @@ public abstract class GameEntity {
         return (GameEntity) ctor.newInstance(new Object[]{s});
     }
 
+    /**
+     * Aendert die aktuelle Position. Die Koordinaten werden in den eigenen
+     * Positionsvektor uebernommen, dabei wird nichts neu angelegt.
+     *
+     * @param x die neue X-Koordinate
+     * @param y die neue Y-Koordinate
+     */
+    public void setPos(float x, float y) {
+        pos.set(x, y);
+    }
+
     /**
      * Aendert die aktuelle Position.
      *
-     * @param pos die neue Position
+     * @param pos die neue Position, wird kopiert
      */
     public void setPos(Vector2f pos) {
 		if (pos == null) return;
-        this.pos = pos;
+        setPos(pos.x, pos.y);
     }
 
     /**
@@ -93,10 +132,12 @@ public abstract class GameEntity {
      */
     public void setPos(Point pos) {
 		if (pos == null) return;
-        this.pos = new Vector2f(pos.x, pos.y);
+        setPos(pos.x, pos.y);
     }
 
     /**
+     * Der Vektor gehoert der Entitaet und wird bei Bewegungen veraendert.
+     *
      * @return die aktuelle Position
      */
     public Vector2f getPos() {
@@ -107,7 +148,21 @@ public abstract class GameEntity {
      * @return die aktuelle Position (auf ints gerundet), als Raster-Koordinate
      */
     public Point getGridPos() {
-        return new Point(Math.round(pos.x), Math.round(pos.y));
+        return new Point(getGridX(), getGridY());
+    }
+
+    /**
+     * @return X-Koordinate der Rasterposition, wie in {@link #getGridPos()}
+     */
+    public int getGridX() {
+        return Math.round(pos.x);
+    }
+
+    /**
+     * @return Y-Koordinate der Rasterposition, wie in {@link #getGridPos()}
+     */
+    public int getGridY() {
+        return Math.round(pos.y);
     }
 
     /**
@@ -0,0 +1,855 @@
+package tud.ai1.pacman.model.entity;
+
+import tud.ai1.pacman.model.DistanceField;
+import tud.ai1.pacman.model.GameClock;
+import tud.ai1.pacman.model.PacmanGame;
+import tud.ai1.pacman.model.StateRandom;
+import tud.ai1.pacman.model.level.Level;
+import tud.ai1.pacman.util.Consts;
+
+import java.awt.*;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Speichert alle Geister eines Spiels als parallele Arrays statt als
+ * einzelne {@link Ghost}-Objekte und setzt ihr Verhalten um. Position,
+ * Bewegung, Zeitpunkte und der Zustand des Random-Generators jedes Geistes
+ * liegen unter seinem Index in primitiven Arrays, aktualisiert werden alle
+ * Geister in einer Schleife ohne virtuelle Aufrufe.
+ *
+ * Wie im {@link EntityGrid} verweist jede Rasterzelle auf eine doppelt
+ * verkettete Liste der Geister in dieser Zelle, hier ueber Indizes. Die
+ * Listen werden nach jedem Update, Respawn und Bewegungsende nachgefuehrt.
+ *
+ * Das Verhalten entspricht genau dem frueheren {@link Ghost}, bei gleichem
+ * Seed verlaeuft ein Spiel also identisch.
+ *
+ * @author Kurt Cieslinski (Funktionen collide, chooseTarget)
+ * @author Thanh Son Bui (restliche Funktionen)
+ */
+public class GhostStore {
+    /** gesetzt <-> der Geist hat eine geplante Bewegung */
+    private static final byte MOVING = 1;
+    /** gesetzt <-> der Geist fuehrt seine Respawn-Bewegung aus */
+    private static final byte IDLE = 2;
+    /** gesetzt <-> die Position vor der letzten Bewegung ist bekannt */
+    private static final byte HAS_OLD_POS = 4;
+
+    /** Zeitgeber, nach dem sich die Geister richten */
+    private final GameClock clock;
+    /** Random-Generator, in den vor jeder Zufallsentscheidung der Zustand des Geistes geladen wird */
+    private final StateRandom rnd = new StateRandom(0);
+
+    /** Anzahl der Geister */
+    private int size;
+    /** Geister-Nummer, bestimmt den Skin */
+    private int[] number = new int[0];
+    /** aktuelle Position */
+    private float[] posX = new float[0], posY = new float[0];
+    /** Startpunkt der fluessigen Bewegung */
+    private float[] startX = new float[0], startY = new float[0];
+    /** Endpunkt der fluessigen Bewegung */
+    private float[] targetX = new float[0], targetY = new float[0];
+    /** Geschwindigkeit in Felder/ns */
+    private float[] speed = new float[0];
+    /** Geschwindigkeit der laufenden Bewegung in Felder/ns je Richtung */
+    private float[] moveSpeedX = new float[0], moveSpeedY = new float[0];
+    /** Startzeit der laufenden Bewegung */
+    private long[] lastMoveTick = new long[0];
+    /** Dauer der laufenden Bewegung in ns */
+    private int[] moveInterval = new int[0];
+    /** Zeitpunkt des letzten Respawns */
+    private long[] respawnTime = new long[0];
+    /** Blickrichtung, 0: rechts, 1: oben; 2: links; 3: unten */
+    private byte[] dir = new byte[0];
+    /** {@link #MOVING}, {@link #IDLE} und {@link #HAS_OLD_POS} */
+    private byte[] flags = new byte[0];
+    /** Rasterposition vor der letzten Bewegung */
+    private int[] oldX = new int[0], oldY = new int[0];
+    /** Zustand des Random-Generators, siehe {@link StateRandom#getState()} */
+    private long[] random = new long[0];
+
+    /** Breite des Rasters */
+    private int width;
+    /** Hoehe des Rasters */
+    private int height;
+    /** erster Geist je Zelle, -1 falls leer */
+    private int[] cellHead = new int[0];
+    /** Zelle des Geistes, -1 falls nicht eingetragen */
+    private int[] cell = new int[0];
+    /** Vorgaenger und Nachfolger in der Zellenliste, -1 am Ende */
+    private int[] cellPrev = new int[0], cellNext = new int[0];
+
+    /** X-Koordinate des zuletzt gewaehlten Zielpunktes */
+    private int chosenX;
+    /** Y-Koordinate des zuletzt gewaehlten Zielpunktes */
+    private int chosenY;
+
+    /**
+     * Konstruktor.
+     *
+     * @param clock Zeitgeber, nach dem sich die Geister richten
+     */
+    public GhostStore(GameClock clock) {
+        if (clock == null)
+            throw new IllegalArgumentException("Es wurde kein Zeitgeber uebergeben!");
+        this.clock = clock;
+    }
+
+    /**
+     * @return Anzahl der Geister
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Passt das Raster an die Groesse des Levels an und traegt alle Geister
+     * in Index-Reihenfolge neu ein.
+     *
+     * @param width Breite des Levels
+     * @param height Hoehe des Levels
+     */
+    public void setGridSize(int width, int height) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Das Raster muss mindestens eine Zelle haben!");
+        this.width = width;
+        this.height = height;
+        if (cellHead.length != width * height)
+            cellHead = new int[width * height];
+        relinkAll();
+    }
+
+    /**
+     * Entfernt alle Geister.
+     */
+    public void clear() {
+        size = 0;
+        Arrays.fill(cellHead, -1);
+    }
+
+    /**
+     * Fuegt einen neuen Geist im Respawn-Zustand an der Position (0, 0) hinzu.
+     *
+     * @param num Geister-Nummer
+     * @param seed Seed fuer die Zufallsentscheidungen des Geistes
+     * @return Index des Geistes
+     */
+    public int add(int num, long seed) {
+        int i = allocate();
+        number[i] = num;
+        rnd.setSeed(seed);
+        random[i] = rnd.getState();
+        posX[i] = posY[i] = 0;
+        speed[i] = Consts.G_IDLE_MOVE_SPEED / 1000000000;
+        moveSpeedX[i] = moveSpeedY[i] = 0;
+        lastMoveTick[i] = respawnTime[i] = 0;
+        moveInterval[i] = 0;
+        dir[i] = 0;
+        flags[i] = IDLE;
+        link(i);
+        return i;
+    }
+
+    /**
+     * Uebernimmt den Zustand eines einzelnen Geistes, z. B. eines geladenen.
+     * Seine Zeitpunkte werden dazu auf den Zeitgeber des Speichers umgerechnet.
+     *
+     * @param ghost der Geist
+     * @return Index des Geistes
+     */
+    public int add(Ghost ghost) {
+        if (ghost == null)
+            throw new IllegalArgumentException("Es wurde kein Geist uebergeben!");
+        ghost.setClock(clock);
+        int i = allocate();
+        number[i] = ghost.getNumber();
+        random[i] = ghost.getRandomState();
+        posX[i] = ghost.getPos().x;
+        posY[i] = ghost.getPos().y;
+        byte f = ghost.idle ? IDLE : 0;
+        if (ghost.target != null) {
+            f |= MOVING;
+            startX[i] = ghost.start.x;
+            startY[i] = ghost.start.y;
+            targetX[i] = ghost.target.x;
+            targetY[i] = ghost.target.y;
+        }
+        if (ghost.oldPos != null) {
+            f |= HAS_OLD_POS;
+            oldX[i] = ghost.oldPos.x;
+            oldY[i] = ghost.oldPos.y;
+        }
+        flags[i] = f;
+        speed[i] = ghost.speed;
+        moveSpeedX[i] = ghost.moveSpeedX;
+        moveSpeedY[i] = ghost.moveSpeedY;
+        lastMoveTick[i] = ghost.lastMoveTick;
+        moveInterval[i] = ghost.moveInterval;
+        respawnTime[i] = ghost.respawnTime;
+        dir[i] = (byte) ghost.getDir();
+        link(i);
+        return i;
+    }
+
+    /**
+     * Erzeugt einen einzelnen Geist mit dem Zustand des Geistes am Index,
+     * z. B. zum Speichern. Der Geist ist vom Speicher unabhaengig.
+     *
+     * @param i Index des Geistes
+     * @return der Geist
+     */
+    public Ghost toGhost(int i) {
+        checkIndex(i);
+        Ghost ghost = new Ghost(number[i], 0, clock);
+        ghost.setRandomState(random[i]);
+        ghost.setPos(posX[i], posY[i]);
+        if ((flags[i] & MOVING) != 0) {
+            ghost.start = ghost.startBuffer.set(startX[i], startY[i]);
+            ghost.target = ghost.targetBuffer.set(targetX[i], targetY[i]);
+        }
+        ghost.idle = (flags[i] & IDLE) != 0;
+        ghost.oldPos = (flags[i] & HAS_OLD_POS) != 0 ? new Point(oldX[i], oldY[i]) : null;
+        ghost.speed = speed[i];
+        ghost.moveSpeedX = moveSpeedX[i];
+        ghost.moveSpeedY = moveSpeedY[i];
+        ghost.lastMoveTick = lastMoveTick[i];
+        ghost.moveInterval = moveInterval[i];
+        ghost.respawnTime = respawnTime[i];
+        ghost.dir = dir[i];
+        return ghost;
+    }
+
+    /**
+     * @param i Index des Geistes
+     * @return X-Koordinate der aktuellen Position
+     */
+    public float getX(int i) {
+        checkIndex(i);
+        return posX[i];
+    }
+
+    /**
+     * @param i Index des Geistes
+     * @return Y-Koordinate der aktuellen Position
+     */
+    public float getY(int i) {
+        checkIndex(i);
+        return posY[i];
+    }
+
+    /**
+     * @param i Index des Geistes
+     * @return die Geister-Nummer
+     */
+    public int getNumber(int i) {
+        checkIndex(i);
+        return number[i];
+    }
+
+    /**
+     * @param i Index des Geistes
+     * @return die Blickrichtung, 0: rechts, 1: oben; 2: links; 3: unten
+     */
+    public int getDir(int i) {
+        checkIndex(i);
+        return dir[i];
+    }
+
+    /**
+     * @param i Index des Geistes
+     * @return ob der Geist noch in der Respawn-Animation ist
+     */
+    public boolean isIdle(int i) {
+        checkIndex(i);
+        return (flags[i] & IDLE) != 0;
+    }
+
+    /**
+     * @param i Index des Geistes
+     * @return Zustand des Random-Generators des Geistes
+     */
+    public long getRandomState(int i) {
+        checkIndex(i);
+        return random[i];
+    }
+
+    /**
+     * Schreibt alle Geister in den Stream. Zeitpunkte werden relativ zum
+     * Zeitgeber geschrieben, die Reihenfolge in den Zellenlisten bleibt beim
+     * Lesen erhalten.
+     *
+     * @param s der Stream, in dem die Daten geschrieben werden
+     * @throws IOException bei Schreibfehlern
+     */
+    public void write(DataOutputStream s) throws IOException {
+        long now = clock.getTime();
+        s.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            s.writeInt(number[i]);
+            s.writeByte(flags[i]);
+            s.writeFloat(posX[i]);
+            s.writeFloat(posY[i]);
+            if ((flags[i] & MOVING) != 0) {
+                s.writeFloat(startX[i]);
+                s.writeFloat(startY[i]);
+                s.writeFloat(targetX[i]);
+                s.writeFloat(targetY[i]);
+            }
+            if ((flags[i] & HAS_OLD_POS) != 0) {
+                s.writeInt(oldX[i]);
+                s.writeInt(oldY[i]);
+            }
+            s.writeFloat(speed[i]);
+            s.writeFloat(moveSpeedX[i]);
+            s.writeFloat(moveSpeedY[i]);
+            s.writeLong(lastMoveTick[i] - now);
+            s.writeInt(moveInterval[i]);
+            s.writeLong(respawnTime[i] - now);
+            s.writeByte(dir[i]);
+            s.writeLong(random[i]);
+        }
+        // zellenlisten vom ende her, das einfuegen am kopf ergibt dann dieselbe reihenfolge
+        for (int i = 0; i < size; i++)
+            if (cellNext[i] == -1)
+                for (int j = i; j != -1; j = cellPrev[j])
+                    s.writeInt(j);
+    }
+
+    /**
+     * Ersetzt alle Geister durch die mit {@link #write(DataOutputStream)}
+     * geschriebenen. Das Raster muss bereits die Groesse des Levels haben.
+     *
+     * @param s der Stream, aus dem die Daten gelesen werden
+     * @throws IOException bei Lesefehlern
+     */
+    public void read(DataInputStream s) throws IOException {
+        long now = clock.getTime();
+        int count = s.readInt();
+        if (count < 0)
+            throw new IOException("Ungueltige Anzahl an Geistern: " + count);
+        clear();
+        for (int k = 0; k < count; k++) {
+            int i = allocate();
+            number[i] = s.readInt();
+            flags[i] = s.readByte();
+            posX[i] = s.readFloat();
+            posY[i] = s.readFloat();
+            if ((flags[i] & MOVING) != 0) {
+                startX[i] = s.readFloat();
+                startY[i] = s.readFloat();
+                targetX[i] = s.readFloat();
+                targetY[i] = s.readFloat();
+            }
+            if ((flags[i] & HAS_OLD_POS) != 0) {
+                oldX[i] = s.readInt();
+                oldY[i] = s.readInt();
+            }
+            speed[i] = s.readFloat();
+            moveSpeedX[i] = s.readFloat();
+            moveSpeedY[i] = s.readFloat();
+            lastMoveTick[i] = now + s.readLong();
+            moveInterval[i] = s.readInt();
+            respawnTime[i] = now + s.readLong();
+            dir[i] = s.readByte();
+            random[i] = s.readLong();
+        }
+        for (int k = 0; k < count; k++) {
+            int i = s.readInt();
+            if (i < 0 || i >= size || cell[i] != -1)
+                throw new IOException("Ungueltige Reihenfolge der Geister: " + i);
+            link(i);
+        }
+    }
+
+    /**
+     * Setzt den Geist an eine bestimmte Position zurueck.
+     * In der Regel wurde der Geist vorher von Pacman gefressen.
+     *
+     * @param i Index des Geistes
+     * @param pos Respawn-Position
+     */
+    public void respawn(int i, Point pos) {
+        checkIndex(i);
+        respawnTime[i] = clock.getTime();
+        speed[i] = Consts.G_IDLE_MOVE_SPEED / 1000000000;
+        flags[i] = (byte) ((flags[i] | IDLE) & ~MOVING);
+        // zufaellige startposition der wartebewegung (sieht beim start etwas schoener aus)
+        setPos(i, pos.x, pos.y + (nextFloat(i) - 0.5f) * (Consts.G_IDLE_MOVE_SIZE * 2));
+        relink(i);
+    }
+
+    /**
+     * Setzt alle Geister der Reihe nach an den naechsten Spawnpunkt des Levels zurueck.
+     *
+     * @param level der Level
+     */
+    public void respawnAll(Level level) {
+        for (int i = 0; i < size; i++)
+            respawn(i, level.getNextGhostSpawn());
+    }
+
+    /**
+     * Aktualisiert alle Geister der Reihe nach, siehe {@link #update(int, PacmanGame)}.
+     *
+     * @param game das aktuelle Spiel
+     */
+    public void updateAll(PacmanGame game) {
+        for (int i = 0; i < size; i++)
+            update(i, game);
+    }
+
+    /**
+     * Fuehrt die geplante Bewegung weiter aus und plant eine neue, falls
+     * der Geist gerade stillsteht. Teleportiert den Geist am Rand.
+     *
+     * @param i Index des Geistes
+     * @param game das aktuelle Spiel
+     */
+    public void update(int i, PacmanGame game) {
+        checkIndex(i);
+        advance(i, game);
+        relink(i);
+    }
+
+    /**
+     * Aktualisiert alle Geister der Reihe nach und beendet ihre Bewegungen
+     * sofort, fuer den Testablauf.
+     *
+     * @param game das aktuelle Spiel
+     */
+    public void stepAll(PacmanGame game) {
+        for (int i = 0; i < size; i++) {
+            // erst aktivitaet, dann bewegung beenden
+            advance(i, game);
+            endMove(i);
+        }
+    }
+
+    /**
+     * Aktualisierung ohne Nachfuehren der Zellenliste, siehe {@link #update(int, PacmanGame)}.
+     */
+    private void advance(int i, PacmanGame game) {
+        if ((flags[i] & IDLE) != 0 && Consts.TEST) {
+            abortMove(i);
+            flags[i] &= ~IDLE;
+        }
+
+        // bewegung fortsetzen
+        if ((flags[i] & MOVING) != 0) {
+            long dt = clock.getTime() - lastMoveTick[i];
+            if (dt < (long) moveInterval[i])
+                placeAt(i, startX[i] + dt * moveSpeedX[i], startY[i] + dt * moveSpeedY[i]);
+            else {
+                placeAt(i, targetX[i], targetY[i]);
+                flags[i] &= ~MOVING;
+            }
+        }
+
+        if ((flags[i] & MOVING) == 0) {
+            // naechste bewegung starten
+            if ((flags[i] & IDLE) != 0 && (clock.getTime() - respawnTime[i]) < Consts.G_RESPAWN_IDLE_TIME) {
+                // idle-bewegung
+                if (posY[i] > Math.round(posY[i]))
+                    move(i, posX[i], Math.round(posY[i]) - Consts.G_IDLE_MOVE_SIZE);
+                else
+                    move(i, posX[i], Math.round(posY[i]) + Consts.G_IDLE_MOVE_SIZE);
+            } else {
+                if ((flags[i] & IDLE) != 0) {
+                    // idle-state verlassen
+                    setPos(i, (int) posX[i], Math.round(posY[i]));
+                    speed[i] = Consts.G_MOVE_SPEED / 1000000000;
+                    flags[i] &= ~IDLE;
+                }
+
+                // neue bewegung starten und alte position speichern
+                int x = Math.round(posX[i]), y = Math.round(posY[i]);
+                if (chooseTarget(i, game, x, y))
+                    move(i, chosenX, chosenY);
+                oldX[i] = x;
+                oldY[i] = y;
+                flags[i] |= HAS_OLD_POS;
+            }
+        }
+        borderTeleport(i, game.getLevel());
+    }
+
+    /**
+     * Beendet die aktuelle Bewegung sofort, der Geist wird zur
+     * Zielposition bewegt.
+     *
+     * @param i Index des Geistes
+     */
+    public void endMove(int i) {
+        checkIndex(i);
+        if ((flags[i] & MOVING) != 0)
+            placeAt(i, targetX[i], targetY[i]);
+        abortMove(i);
+        relink(i);
+    }
+
+    /**
+     * Sammelt die Indizes aller Geister aus der Zelle der Position und deren
+     * acht Nachbarzellen, in derselben Reihenfolge wie
+     * {@link EntityGrid#collect}.
+     *
+     * @param x X-Koordinate
+     * @param y Y-Koordinate
+     * @param out Puffer fuer die Indizes, muss mindestens {@link #size()} fassen
+     * @return Anzahl der gefundenen Geister
+     */
+    public int collect(float x, float y, int[] out) {
+        int n = 0;
+        // bei sehr schmalen leveln jede spalte/zeile nur einmal besuchen
+        int nx = Math.min(3, width), ny = Math.min(3, height);
+        int sx = (width >= 3) ? Math.round(x) - 1 : 0;
+        int sy = (height >= 3) ? Math.round(y) - 1 : 0;
+        for (int dy = 0; dy < ny; dy++)
+            for (int dx = 0; dx < nx; dx++)
+                for (int g = cellHead[cellAt(sx + dx, sy + dy)]; g != -1; g = cellNext[g])
+                    out[n++] = g;
+        return n;
+    }
+
+    /**
+     * Kollision des Geistes mit Pacman. Ist der Geist in der
+     * Respawnanimation, passiert nichts. Im Powerup-Zustand wird der Geist
+     * gefressen, sonst verliert Pacman ein Leben.
+     *
+     * @param i Index des Geistes
+     * @param game das laufende Spiel
+     * @param pacman die Spieler-Entitaet
+     */
+    public void collide(int i, PacmanGame game, Pacman pacman) {
+        checkIndex(i);
+        // geister duerfen nicht idle sein um den spieler zu toeten / punkte zu bringen
+        if ((flags[i] & IDLE) == 0) {
+            if (pacman.isPoweredUp()) {
+                // im powerup-zustand den geist toeten
+                game.updatePoints(Consts.GHOST_POINTS);
+                respawn(i, game.getLevel().getNextGhostSpawn());
+            } else game.kill();
+        }
+    }
+
+    /**
+     * Ermittelt den aktuell passenden Zielpunkt und legt ihn in
+     * {@link #chosenX} und {@link #chosenY} ab.
+     *
+     * @return true <-> es wurde ein Zielpunkt gefunden
+     */
+    private boolean chooseTarget(int i, PacmanGame game, int x, int y) {
+        // kuerzeste wege zur spielfigur verwenden, falls aktiviert
+        if (Consts.G_SHORTEST_PATH && !Consts.TEST && chooseByDistance(i, game, x, y))
+            return true;
+
+        Pacman pacman = game.getPacman();
+        Level level = game.getLevel();
+        // erst auf Sichtkontakt zur Spielfigur pruefen
+        int px = pacman.getGridX(), py = pacman.getGridY();
+        if (level.existsStraightPath(x, y, px, py)) {
+            // Spielfeld in diese Richtung ermitteln
+            int sx = x + Integer.signum(px - x);
+            int sy = y + Integer.signum(py - y);
+
+            if (pacman.isPoweredUp())
+                // zufaellig eine Abzweigung waehlen, die nicht in Richtung der Spielfigur steuert
+                return chooseBranch(i, level.getBranchMask(x, y), x, y, true, sx, sy);
+            // direkt zur Spielfigur steuern
+            chosenX = sx;
+            chosenY = sy;
+            return true;
+        }
+
+        // zufaellig eine Abzweigung waehlen, die moeglichst nicht der vorherigen Position entspricht
+        if ((flags[i] & HAS_OLD_POS) == 0)
+            return chooseBranch(i, level.getBranchMask(x, y), x, y, false, 0, 0);
+        return chooseBranch(i, level.getBranchMask(x, y), x, y, true, oldX[i], oldY[i]);
+    }
+
+    /**
+     * Waehlt anhand der Entfernungen zu Pacman die Abzweigung, die am
+     * naechsten an Pacman heranfuehrt (bzw. im PowerUp-Zustand am weitesten
+     * weg). Umgedreht wird nur, wenn es keine andere Moeglichkeit gibt. Bei
+     * gleicher Entfernung wird zufaellig gewaehlt.
+     *
+     * @return true <-> es gibt eine Abzweigung mit bekannter Entfernung
+     */
+    private boolean chooseByDistance(int i, PacmanGame game, int x, int y) {
+        DistanceField distances = game.getPacmanDistances();
+        boolean flee = game.getPacman().isPoweredUp();
+        int branches = game.getLevel().getBranchMask(x, y);
+        boolean hasOld = (flags[i] & HAS_OLD_POS) != 0;
+
+        int best = -1, bestDistance = 0, ties = 0;
+        boolean bestIsBack = true;
+        for (int d = 0; d < 4; d++) {
+            if ((branches & (1 << d)) == 0) continue;
+            int nx = x + Level.BRANCH_DX[d], ny = y + Level.BRANCH_DY[d];
+            int distance = distances.get(nx, ny);
+            if (distance < 0) continue;
+            boolean back = hasOld && oldX[i] == nx && oldY[i] == ny;
+            // vorwaerts geht vor umdrehen, danach zaehlt die entfernung
+            int cmp = (back != bestIsBack) ? (back ? 1 : -1)
+                    : (flee ? bestDistance - distance : distance - bestDistance);
+            if (best == -1 || cmp < 0) {
+                best = d;
+                bestDistance = distance;
+                bestIsBack = back;
+                ties = 1;
+            } else if (cmp == 0 && nextInt(i, ++ties) == 0)
+                best = d;
+        }
+        if (best == -1)
+            return false;
+        chosenX = x + Level.BRANCH_DX[best];
+        chosenY = y + Level.BRANCH_DY[best];
+        return true;
+    }
+
+    /**
+     * Waehlt zufaellig eine Abzweigung, moeglichst nicht zum Punkt (ax, ay).
+     *
+     * @return true <-> es gibt mindestens eine Abzweigung
+     */
+    private boolean chooseBranch(int i, int branches, int x, int y, boolean avoid, int ax, int ay) {
+        int count = Integer.bitCount(branches);
+        if (count == 0)
+            return false;
+        int d;
+        if (count == 1)
+            // keine alternative wahl moeglich
+            d = Integer.numberOfTrailingZeros(branches);
+        else if (!avoid)
+            d = nthBranch(branches, nextInt(i, count));
+        else {
+            // zufaellig einen punkt waehlen, der nicht dem zu vermeidenden entspricht
+            do {
+                d = nthBranch(branches, nextInt(i, count));
+            } while (x + Level.BRANCH_DX[d] == ax && y + Level.BRANCH_DY[d] == ay);
+        }
+        chosenX = x + Level.BRANCH_DX[d];
+        chosenY = y + Level.BRANCH_DY[d];
+        return true;
+    }
+
+    /**
+     * @param branches Bitmaske der Abzweigungen
+     * @param n Index der Abzweigung unter den gesetzten Bits
+     * @return Richtung der n-ten Abzweigung
+     */
+    private static int nthBranch(int branches, int n) {
+        for (int k = 0; k < n; k++)
+            branches &= branches - 1;
+        return Integer.numberOfTrailingZeros(branches);
+    }
+
+    /**
+     * Startet eine fluessige Bewegung, wie {@link MovingEntity#move(float, float)}.
+     */
+    private void move(int i, float x, float y) {
+        // blickrichtung anhand der bewegung
+        if      (posX[i] < x) dir[i] = 0;
+        else if (y < posY[i]) dir[i] = 1;
+        else if (x < posX[i]) dir[i] = 2;
+        else if (posY[i] < y) dir[i] = 3;
+
+        lastMoveTick[i] = clock.getTime();
+
+        // alte bewegung sofort abschliessen
+        if ((flags[i] & MOVING) != 0) placeAt(i, targetX[i], targetY[i]);
+
+        float sx = posX[i], sy = posY[i];
+        startX[i] = sx;
+        startY[i] = sy;
+        targetX[i] = x;
+        targetY[i] = y;
+        flags[i] |= MOVING;
+
+        // geschwindigkeitsvektor und bewegungszeit berechnen
+        moveInterval[i] = (int) (Math.sqrt((x - sx) * (x - sx) + (y - sy) * (y - sy)) / speed[i]); // = distanz/speed
+        moveSpeedX[i] = (x - sx) / (float) moveInterval[i];
+        moveSpeedY[i] = (y - sy) / (float) moveInterval[i];
+    }
+
+    /**
+     * Bricht die Bewegung ab, ohne den Geist zu bewegen.
+     */
+    private void abortMove(int i) {
+        flags[i] &= ~MOVING;
+    }
+
+    /**
+     * Aendert die Position und verschiebt eine geplante Bewegung mit, wie
+     * {@link MovingEntity#setPos(float, float)}.
+     */
+    private void setPos(int i, float x, float y) {
+        if ((flags[i] & MOVING) != 0) {
+            // gesamte bewegung mitverschieben
+            float dx = x - posX[i];
+            float dy = y - posY[i];
+            targetX[i] += dx;
+            targetY[i] += dy;
+            startX[i] += dx;
+            startY[i] += dy;
+        }
+        placeAt(i, x, y);
+    }
+
+    /**
+     * Aendert nur die Position.
+     */
+    private void placeAt(int i, float x, float y) {
+        posX[i] = x;
+        posY[i] = y;
+    }
+
+    /**
+     * Verschiebt den Geist in die Zelle seiner aktuellen Position, wie
+     * {@link EntityGrid#update(GameEntity)}.
+     */
+    private void relink(int i) {
+        int c = cellAt(Math.round(posX[i]), Math.round(posY[i]));
+        if (c != cell[i]) {
+            unlink(i);
+            link(i, c);
+        }
+    }
+
+    /**
+     * Teleportiert den Geist auf die andere Seite des Levels, falls er
+     * ausserhalb der Levelgrenzen ist.
+     */
+    private void borderTeleport(int i, Level level) {
+        int w = level.getWidth(), h = level.getHeight();
+
+        int gx = Math.round(posX[i]), gy = Math.round(posY[i]);
+        float x = posX[i], y = posY[i];
+
+        if (gx < 0)
+            setPos(i, x + w, y);
+        else if (w <= gx)
+            setPos(i, x - w, y);
+
+        if (gy < 0)
+            setPos(i, x, y + h);
+        else if (h <= gy)
+            setPos(i, x, y - h);
+    }
+
+    /**
+     * @return naechste Zufallszahl aus [0, bound) des Geistes
+     */
+    private int nextInt(int i, int bound) {
+        rnd.setState(random[i]);
+        int value = rnd.nextInt(bound);
+        random[i] = rnd.getState();
+        return value;
+    }
+
+    /**
+     * @return naechste Zufallszahl aus [0, 1) des Geistes
+     */
+    private float nextFloat(int i) {
+        rnd.setState(random[i]);
+        float value = rnd.nextFloat();
+        random[i] = rnd.getState();
+        return value;
+    }
+
+    /**
+     * @return Index der Zelle, am Levelrand umgebrochen
+     */
+    private int cellAt(int x, int y) {
+        return Math.floorMod(y, height) * width + Math.floorMod(x, width);
+    }
+
+    /**
+     * Traegt den Geist in die Zelle seiner aktuellen Position ein.
+     */
+    private void link(int i) {
+        link(i, cellAt(Math.round(posX[i]), Math.round(posY[i])));
+    }
+
+    /**
+     * Haengt den Geist vorne an die Liste der Zelle an.
+     */
+    private void link(int i, int c) {
+        int head = cellHead[c];
+        cell[i] = c;
+        cellPrev[i] = -1;
+        cellNext[i] = head;
+        if (head != -1) cellPrev[head] = i;
+        cellHead[c] = i;
+    }
+
+    /**
+     * Entfernt den Geist aus der Liste seiner Zelle.
+     */
+    private void unlink(int i) {
+        if (cell[i] == -1) return;
+        if (cellPrev[i] != -1) cellNext[cellPrev[i]] = cellNext[i];
+        else cellHead[cell[i]] = cellNext[i];
+        if (cellNext[i] != -1) cellPrev[cellNext[i]] = cellPrev[i];
+        cell[i] = cellPrev[i] = cellNext[i] = -1;
+    }
+
+    /**
+     * Traegt alle Geister in Index-Reihenfolge neu in das Raster ein.
+     */
+    private void relinkAll() {
+        Arrays.fill(cellHead, -1);
+        for (int i = 0; i < size; i++) {
+            cell[i] = -1;
+            link(i);
+        }
+    }
+
+    /**
+     * Belegt den naechsten Index, die Arrays wachsen bei Bedarf.
+     *
+     * @return der neue Index, noch in keiner Zellenliste
+     */
+    private int allocate() {
+        if (width == 0)
+            throw new IllegalStateException("Die Groesse des Rasters wurde noch nicht gesetzt!");
+        if (size == number.length) {
+            int n = Math.max(8, size * 2);
+            number = Arrays.copyOf(number, n);
+            posX = Arrays.copyOf(posX, n);
+            posY = Arrays.copyOf(posY, n);
+            startX = Arrays.copyOf(startX, n);
+            startY = Arrays.copyOf(startY, n);
+            targetX = Arrays.copyOf(targetX, n);
+            targetY = Arrays.copyOf(targetY, n);
+            speed = Arrays.copyOf(speed, n);
+            moveSpeedX = Arrays.copyOf(moveSpeedX, n);
+            moveSpeedY = Arrays.copyOf(moveSpeedY, n);
+            lastMoveTick = Arrays.copyOf(lastMoveTick, n);
+            moveInterval = Arrays.copyOf(moveInterval, n);
+            respawnTime = Arrays.copyOf(respawnTime, n);
+            dir = Arrays.copyOf(dir, n);
+            flags = Arrays.copyOf(flags, n);
+            oldX = Arrays.copyOf(oldX, n);
+            oldY = Arrays.copyOf(oldY, n);
+            random = Arrays.copyOf(random, n);
+            cell = Arrays.copyOf(cell, n);
+            cellPrev = Arrays.copyOf(cellPrev, n);
+            cellNext = Arrays.copyOf(cellNext, n);
+        }
+        int i = size++;
+        cell[i] = cellPrev[i] = cellNext[i] = -1;
+        return i;
+    }
+
+    /**
+     * @param i Index eines Geistes
+     */
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Ungueltiger Geist: " + i);
+    }
+}
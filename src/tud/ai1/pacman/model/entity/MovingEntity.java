@@ -2,8 +2,11 @@ package tud.ai1.pacman.model.entity;
 
 import org.newdawn.slick.geom.Vector2f;
 
+import tud.ai1.pacman.model.GameClock;
 import tud.ai1.pacman.model.PacmanGame;
+import tud.ai1.pacman.model.SystemClock;
 import tud.ai1.pacman.model.level.Level;
+import tud.ai1.pacman.util.Consts;
 
 import java.awt.*;
 import java.io.DataInputStream;
@@ -19,25 +22,34 @@ import java.io.IOException;
 public abstract class MovingEntity extends GameEntity {
     public static final String[] saveStateOrder = {"target", "start", "speed", "lastMoveTick", "moveInterval", "moveSpeedX", "moveSpeedY", "dir"};
 
-    /** Startpunkt der fluessigen Bewegung */
+    /** Startpunkt der fluessigen Bewegung, null falls keine Bewegung laeuft */
     protected Vector2f start = null;
-    /** Endpunkt der fluessigen Bewegung */
+    /** Endpunkt der fluessigen Bewegung, null falls keine Bewegung laeuft */
     protected Vector2f target = null;
+    /** wiederverwendeter Vektor fuer {@link #start}. NICHT ABSPEICHERN/LADEN! */
+    final Vector2f startBuffer = new Vector2f();
+    /** wiederverwendeter Vektor fuer {@link #target}. NICHT ABSPEICHERN/LADEN! */
+    final Vector2f targetBuffer = new Vector2f();
 
     /** Geschwindigkeit in Felder/ns */
-    private float speed;
+    float speed;
     /** Letzter Zeitpunkt der Bewegung */
-    private long lastMoveTick;
+    long lastMoveTick;
     /** Interval, in dem die Bewegung ausgefuehrt wird */
-    private int moveInterval;
+    int moveInterval;
     /** Geschwindigkeit in X Richtung */
-    private float moveSpeedX;
+    float moveSpeedX;
     /** Geschwindigkeit in Y Richtung */
-    private float moveSpeedY;
+    float moveSpeedY;
 
     /** Modelliert die Blickrichtung */
     protected int dir;
 
+    /** Zeitgeber, nach dem sich die Bewegung richtet. NICHT ABSPEICHERN/LADEN! */
+    private GameClock clock = SystemClock.INSTANCE;
+    /** Bezugszeitpunkt der geladenen Zeitangaben, -1 falls nicht geladen */
+    private long loadTime = -1;
+
     /**
      * Konstruktor.
      * Schaue in Richtung 0.
@@ -53,7 +65,20 @@ public abstract class MovingEntity extends GameEntity {
      * @param speed urspruengliche Bewegungsgeschwindigkeit
      */
     public MovingEntity(float speed) {
+        this(speed, SystemClock.INSTANCE);
+    }
+
+    /**
+     * Konstruktor.
+     *
+     * @param speed urspruengliche Bewegungsgeschwindigkeit
+     * @param clock Zeitgeber, nach dem sich die Bewegung richtet
+     */
+    public MovingEntity(float speed, GameClock clock) {
         this();
+        if (clock == null)
+            throw new IllegalArgumentException("Es wurde kein Zeitgeber uebergeben!");
+        this.clock = clock;
         setSpeed(speed);
     }
 
@@ -66,10 +91,11 @@ public abstract class MovingEntity extends GameEntity {
      */
     public MovingEntity(DataInputStream s) throws IOException {
         super(s);
-        target = (s.readBoolean() ? new Vector2f(s.readFloat(), s.readFloat()) : null);
-        start = (s.readBoolean() ? new Vector2f(s.readFloat(), s.readFloat()) : null);
+        loadTime = getSaveTime();
+        target = (s.readBoolean() ? targetBuffer.set(s.readFloat(), s.readFloat()) : null);
+        start = (s.readBoolean() ? startBuffer.set(s.readFloat(), s.readFloat()) : null);
         speed = s.readFloat();
-        lastMoveTick = PacmanGame.getTime() + s.readLong();
+        lastMoveTick = loadTime + s.readLong();
         moveInterval = s.readInt();
         moveSpeedX = s.readFloat();
         moveSpeedY = s.readFloat();
@@ -80,8 +106,8 @@ public abstract class MovingEntity extends GameEntity {
      * {@inheritDoc}
      */
     @Override
-    public void writeEntity(DataOutputStream s) throws IOException {
-        super.writeEntity(s);
+    protected void writeState(DataOutputStream s) throws IOException {
+        super.writeState(s);
         s.writeBoolean(target != null);
         if (target != null) {
             s.writeFloat(target.x);
@@ -93,13 +119,70 @@ public abstract class MovingEntity extends GameEntity {
             s.writeFloat(start.y);
         }
         s.writeFloat(speed);
-        s.writeLong(lastMoveTick - PacmanGame.getTime());
+        s.writeLong(lastMoveTick - getSaveTime());
         s.writeInt(moveInterval);
         s.writeFloat(moveSpeedX);
         s.writeFloat(moveSpeedY);
         s.writeInt(dir);
     }
 
+    /**
+     * @return der Zeitgeber dieser Entitaet
+     */
+    public GameClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Aendert den Zeitgeber. Alle gespeicherten Zeitpunkte werden auf den
+     * neuen Zeitgeber umgerechnet, eine laufende Bewegung bleibt erhalten.
+     * Wurde die Entitaet gerade geladen, wird exakt auf den Bezugszeitpunkt
+     * des Ladens umgerechnet.
+     *
+     * @param clock der neue Zeitgeber
+     */
+    public void setClock(GameClock clock) {
+        if (clock == null || clock == this.clock) return;
+        if (loadTime != -1)
+            shiftTime((Consts.TEST ? Consts.TEST_TIME : clock.getTime()) - loadTime);
+        else
+            shiftTime(clock.getTime() - this.clock.getTime());
+        this.clock = clock;
+        loadTime = -1;
+    }
+
+    /**
+     * Verschiebt alle gespeicherten Zeitpunkte um die uebergebene Differenz.
+     *
+     * @param delta Differenz in Nanosekunden
+     */
+    protected void shiftTime(long delta) {
+        lastMoveTick += delta;
+    }
+
+    /**
+     * @return die aktuelle Zeit des Zeitgebers in Nanosekunden
+     */
+    protected long getTime() {
+        return clock.getTime();
+    }
+
+    /**
+     * @return Bezugszeitpunkt, auf den die Zeitangaben beim Laden aus dem
+     *          Stream umgerechnet werden
+     */
+    protected long getLoadTime() {
+        return loadTime;
+    }
+
+    /**
+     * @return Bezugszeitpunkt der relativ gespeicherten Zeitangaben
+     */
+    protected long getSaveTime() {
+        if (Consts.TEST) return Consts.TEST_TIME;
+        return clock.getTime();
+    }
+
     /**
      * 0: rechts, 1: oben; 2: links; 3: unten
      *
@@ -129,49 +212,35 @@ public abstract class MovingEntity extends GameEntity {
      * {@inheritDoc}
      * Verschiebt ausserdem die geplante Bewegung, diese wird
      * NICHT abgebrochen.
-     *
-     * @param pos die neue Position
      */
-    public void setPos(Vector2f pos) {
-        if (pos == null) return;
-
+    @Override
+    public void setPos(float x, float y) {
         if (target != null) {
             // gesamte bewegung mitverschieben
-            float dx = pos.x - super.getPos().x;
-            float dy = pos.y - super.getPos().y;
+            float dx = x - super.getPos().x;
+            float dy = y - super.getPos().y;
             target.x += dx;
             target.y += dy;
             start.x += dx;
             start.y += dy;
         }
-        super.setPos(pos);
-    }
-
-    /**
-     * {@inheritDoc}
-     * Verschiebt ausserdem die geplante Bewegung, diese wird
-     * NICHT abgebrochen.
-     *
-     * @param pos die neue Position
-     */
-    public void setPos(Point pos) {
-        if (pos == null) return;
-        setPos(new Vector2f(pos.x, pos.y));
+        super.setPos(x, y);
     }
 
     /**
      * Aendert die Blickrichtung anhand der geplanten Bewegung.
      * 0: rechts, 1: oben; 2: links; 3: unten
      *
-     * @param newPos neue Position
+     * @param x neue X-Koordinate
+     * @param y neue Y-Koordinate
      */
-    private void changeDir(Vector2f newPos) {
+    private void changeDir(float x, float y) {
         Vector2f oldPos = super.getPos();
 
-        if      (oldPos.x < newPos.x) dir = 0;
-        else if (newPos.y < oldPos.y) dir = 1;
-        else if (newPos.x < oldPos.x) dir = 2;
-        else if (oldPos.y < newPos.y) dir = 3;
+        if      (oldPos.x < x) dir = 0;
+        else if (y < oldPos.y) dir = 1;
+        else if (x < oldPos.x) dir = 2;
+        else if (oldPos.y < y) dir = 3;
     }
 
     /**
@@ -181,19 +250,29 @@ public abstract class MovingEntity extends GameEntity {
      */
     public void move(Vector2f pos) {
         if (pos == null) return;
+        move(pos.x, pos.y);
+    }
 
+    /**
+     * Initialisiert eine fluessige Bewegung zu einer bestimmten Position.
+     * Legt keine neuen Objekte an.
+     *
+     * @param x X-Koordinate der Zielposition
+     * @param y Y-Koordinate der Zielposition
+     */
+    public void move(float x, float y) {
         // bewegungsrichtung ermitteln
-        changeDir(pos);
+        changeDir(x, y);
 
         // startzeit der bewegung speichern
-        lastMoveTick = System.nanoTime();
+        lastMoveTick = getTime();
 
         // alte bewegung sofort abschliessen
-        if (target != null) super.setPos(target);
+        if (target != null) super.setPos(target.x, target.y);
 
         // eckpunkte der bewegung speichern
-        start = super.getPos();
-        target = pos;
+        start = startBuffer.set(super.getPos().x, super.getPos().y);
+        target = targetBuffer.set(x, y);
 
         // geschwindigkeitsvektor und bewegungszeit berechnen
         moveInterval = (int) (Math.sqrt((target.x - start.x) * (target.x - start.x) + (target.y - start.y) * (target.y - start.y)) / speed); // = distanz/speed
@@ -208,7 +287,7 @@ public abstract class MovingEntity extends GameEntity {
      */
     public void move(Point pos) {
         if (pos == null) return;
-        move(new Vector2f(pos.x, pos.y));
+        move(pos.x, pos.y);
     }
 
     /**
@@ -225,7 +304,7 @@ public abstract class MovingEntity extends GameEntity {
      */
     public void endMove() {
         if (target != null) {
-            super.setPos(target);
+            super.setPos(target.x, target.y);
         }
         abortMove();
     }
@@ -246,13 +325,13 @@ public abstract class MovingEntity extends GameEntity {
     public void update(PacmanGame game) {
         if (target != null) {
             // zeitpunkt innerhalb der bewegung bestimmen
-            long dt = System.nanoTime() - lastMoveTick;
+            long dt = getTime() - lastMoveTick;
             if (dt < (long) moveInterval)
                 // bewegungsschritt ausfuehren
-                super.setPos(new Vector2f(start.x + dt * moveSpeedX, start.y + dt * moveSpeedY));
+                super.setPos(start.x + dt * moveSpeedX, start.y + dt * moveSpeedY);
             else {
                 // bewegung beenden
-                super.setPos(target);
+                super.setPos(target.x, target.y);
                 target = null;
                 start = null;
             }
@@ -268,17 +347,17 @@ public abstract class MovingEntity extends GameEntity {
     protected void borderTeleport(Level level) {
         int width = level.getWidth(), height = level.getHeight();
 
-        Point p = getGridPos();
-        Vector2f pos = getPos();
+        int gx = getGridX(), gy = getGridY();
+        float x = getPos().x, y = getPos().y;
 
-        if (p.x < 0)
-            setPos(new Vector2f(pos.x + width, pos.y));
-        else if (width <= p.x)
-            setPos(new Vector2f(pos.x - width, pos.y));
+        if (gx < 0)
+            setPos(x + width, y);
+        else if (width <= gx)
+            setPos(x - width, y);
 
-        if (p.y < 0)
-            setPos(new Vector2f(pos.x, pos.y + height));
-        else if (height <= p.y)
-            setPos(new Vector2f(pos.x, pos.y - height));
+        if (gy < 0)
+            setPos(x, y + height);
+        else if (height <= gy)
+            setPos(x, y - height);
     }
 }
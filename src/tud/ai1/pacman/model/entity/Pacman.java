@@ -1,6 +1,8 @@
 package tud.ai1.pacman.model.entity;
 
+import tud.ai1.pacman.model.GameClock;
 import tud.ai1.pacman.model.PacmanGame;
+import tud.ai1.pacman.model.SystemClock;
 import tud.ai1.pacman.util.Consts;
 
 import java.awt.*;
@@ -29,7 +31,16 @@ public class Pacman extends MovingEntity {
      * Konstruktor.
      */
     public Pacman() {
-        super(Consts.P_MOVE_SPEED);
+        this(SystemClock.INSTANCE);
+    }
+
+    /**
+     * Konstruktor.
+     *
+     * @param clock Zeitgeber, nach dem sich Pacman richtet
+     */
+    public Pacman(GameClock clock) {
+        super(Consts.P_MOVE_SPEED, clock);
         poweredUp = false;
         speedUp = false;
     }
@@ -45,20 +56,30 @@ public class Pacman extends MovingEntity {
         super(s);
         poweredUp = s.readBoolean();
         speedUp = s.readBoolean();
-        speedUpStartTime = PacmanGame.getTime() + s.readLong();
-        powerUpStartTime = PacmanGame.getTime() + s.readLong();
+        speedUpStartTime = getLoadTime() + s.readLong();
+        powerUpStartTime = getLoadTime() + s.readLong();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void writeEntity(DataOutputStream s) throws IOException {
-        super.writeEntity(s);
+    protected void writeState(DataOutputStream s) throws IOException {
+        super.writeState(s);
         s.writeBoolean(poweredUp);
         s.writeBoolean(speedUp);
-        s.writeLong(speedUpStartTime - PacmanGame.getTime());
-        s.writeLong(powerUpStartTime - PacmanGame.getTime());
+        s.writeLong(speedUpStartTime - getSaveTime());
+        s.writeLong(powerUpStartTime - getSaveTime());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void shiftTime(long delta) {
+        super.shiftTime(delta);
+        speedUpStartTime += delta;
+        powerUpStartTime += delta;
     }
 
     /**
@@ -88,7 +109,7 @@ public class Pacman extends MovingEntity {
      */
     public void powerUp() {
         setSpeed(Math.max(getFieldsPerSecond(), Consts.P_POWER_UP_MOVE_SPEED));
-        powerUpStartTime = System.nanoTime();
+        powerUpStartTime = getTime();
         poweredUp = true;
     }
 
@@ -112,7 +133,7 @@ public class Pacman extends MovingEntity {
      */
     public void speedUp() {
         setSpeed(Math.max(getFieldsPerSecond(), Consts.P_SPEED_UP_MOVE_SPEED));
-        speedUpStartTime = System.nanoTime();
+        speedUpStartTime = getTime();
         speedUp = true;
     }
 
@@ -129,8 +150,8 @@ public class Pacman extends MovingEntity {
      *          -1, falls nichts aktiv ist
      */
     public long getRemainingItemTime() {
-        long speedUpTime = Consts.P_SPEED_UP_TIME - System.nanoTime() + speedUpStartTime;
-        long powerUpTime = Consts.P_POWER_UP_TIME - System.nanoTime() + powerUpStartTime;
+        long speedUpTime = Consts.P_SPEED_UP_TIME - getTime() + speedUpStartTime;
+        long powerUpTime = Consts.P_POWER_UP_TIME - getTime() + powerUpStartTime;
 
         // die uebrige Zeit haengt von dem aktuellen Zustand ab
         if (speedUp && poweredUp)
@@ -151,10 +172,10 @@ public class Pacman extends MovingEntity {
         super.update(game);
         if (!Consts.TEST) {
             // booster deaktivieren, wenn dieser abgelaufen ist
-            if (speedUp && System.nanoTime() > (Consts.P_SPEED_UP_TIME + speedUpStartTime))
+            if (speedUp && getTime() > (Consts.P_SPEED_UP_TIME + speedUpStartTime))
                 deactivateSpeedUp();
 
-            if (poweredUp && System.nanoTime() > (Consts.P_POWER_UP_TIME + powerUpStartTime))
+            if (poweredUp && getTime() > (Consts.P_POWER_UP_TIME + powerUpStartTime))
                 deactivatePowerUp();
         }
 
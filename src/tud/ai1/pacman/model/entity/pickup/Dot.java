@@ -41,7 +41,19 @@ public class Dot extends GameEntity {
      * Ein Dot verschwindet nach Kollision und vergibt die entsprechende Punktzahl.
      */
     public boolean collide(PacmanGame game, Pacman pacman) {
-        if (Consts.BUG_256 && game.getWonLevels() >= 256 && game.getLevel().getWidth()/2f <= getPos().x)
+        return eat(game, getPos().x);
+    }
+
+    /**
+     * Vergibt die Punkte fuer einen gefressenen Dot. Wird auch fuer die Dots
+     * der {@link tud.ai1.pacman.model.PickupLayer} verwendet.
+     *
+     * @param game das laufende Spiel
+     * @param x X-Koordinate des Dots
+     * @return true <-> Dot wurde gefressen und soll verschwinden
+     */
+    public static boolean eat(PacmanGame game, float x) {
+        if (Consts.BUG_256 && game.getWonLevels() >= 256 && game.getLevel().getWidth()/2f <= x)
             return false;
         game.updatePoints(Consts.DOT_POINTS);
         return true;
@@ -42,6 +42,18 @@ public class PowerUp extends GameEntity {
      * und powert Pacman auf.
      */
     public boolean collide(PacmanGame game, Pacman pacman) {
+        return collect(game, pacman);
+    }
+
+    /**
+     * Vergibt die Punkte fuer ein eingesammeltes PowerUp und powert Pacman auf.
+     * Wird auch fuer die PowerUps der {@link tud.ai1.pacman.model.PickupLayer} verwendet.
+     *
+     * @param game das laufende Spiel
+     * @param pacman die Spieler-Entitaet
+     * @return true <-> PowerUp soll verschwinden
+     */
+    public static boolean collect(PacmanGame game, Pacman pacman) {
         game.updatePoints(Consts.POWER_UP_POINTS);
         pacman.powerUp();
         return true;
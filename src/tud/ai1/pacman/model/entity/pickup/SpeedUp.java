@@ -42,6 +42,18 @@ public class SpeedUp extends GameEntity {
      * und verschnellert Pacman.
      */
     public boolean collide(PacmanGame game, Pacman pacman) {
+        return collect(game, pacman);
+    }
+
+    /**
+     * Vergibt die Punkte fuer ein eingesammeltes SpeedUp und verschnellert Pacman.
+     * Wird auch fuer die SpeedUps der {@link tud.ai1.pacman.model.PickupLayer} verwendet.
+     *
+     * @param game das laufende Spiel
+     * @param pacman die Spieler-Entitaet
+     * @return true <-> SpeedUp soll verschwinden
+     */
+    public static boolean collect(PacmanGame game, Pacman pacman) {
         game.updatePoints(Consts.SPEED_UP_POINTS);
         pacman.speedUp();
         return true;
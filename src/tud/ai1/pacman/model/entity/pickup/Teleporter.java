@@ -3,6 +3,7 @@ package tud.ai1.pacman.model.entity.pickup;
 import tud.ai1.pacman.model.PacmanGame;
 import tud.ai1.pacman.model.entity.GameEntity;
 import tud.ai1.pacman.model.entity.Pacman;
+import tud.ai1.pacman.model.level.Level;
 
 import java.awt.*;
 import java.io.DataInputStream;
@@ -41,8 +42,22 @@ public class Teleporter extends GameEntity {
      * Pacmans Position neu.
      */
     public boolean collide(PacmanGame game, Pacman pacman) {
+        return teleport(game, pacman);
+    }
+
+    /**
+     * Setzt Pacman auf ein zufaelliges freies Feld. Wird auch fuer die
+     * Teleporter der {@link tud.ai1.pacman.model.PickupLayer} verwendet.
+     *
+     * @param game das laufende Spiel
+     * @param pacman die Spieler-Entitaet
+     * @return immer false, ein Teleporter verschwindet nicht
+     */
+    public static boolean teleport(PacmanGame game, Pacman pacman) {
         pacman.abortMove();
-        pacman.setPos(game.getLevel().getRandomSpaceField());
+        Level level = game.getLevel();
+        int c = level.getRandomSpaceCell();
+        pacman.setPos(c % level.getWidth(), c / level.getWidth());
         return false;
     }
 
@@ -96,9 +96,7 @@ public class Field extends AbstractField {
      * wird null zurück gegeben.
      */
     public static MapModule findByValue(char c) {
-        for (MapModule value : MapModule.values())
-            if(value.getValue() == c) return value;
-        return null;
+        return MapModule.byValue(c);
     }
 
     /**
@@ -0,0 +1,99 @@
+package tud.ai1.pacman.model.level;
+
+/**
+ * Ein {@link Field}, das selbst kein Modul speichert, sondern eine Zelle
+ * eines {@link Level} anzeigt. Lese- und Schreibzugriffe gehen direkt auf
+ * das Level-Raster, Aenderungen des Levels sind also sofort sichtbar.
+ *
+ * @author Thanh Son Bui
+ */
+class FieldView extends Field {
+    /** angezeigter Level */
+    private final Level level;
+    /** X-Koordinate der Zelle */
+    private final int x;
+    /** Y-Koordinate der Zelle */
+    private final int y;
+
+    /**
+     * Konstruktor.
+     *
+     * @param level angezeigter Level
+     * @param x X-Koordinate der Zelle
+     * @param y Y-Koordinate der Zelle
+     */
+    FieldView(Level level, int x, int y) {
+        super(new Coordinate(x, y), level.getMapModule(x, y));
+        this.level = level;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return Character.toString(getMapModule().getValue());
+    }
+
+    /**
+     * Eine Ansicht bleibt immer an ihre Zelle gebunden.
+     *
+     * @throws UnsupportedOperationException immer
+     */
+    @Override
+    public void setCoordinates(final ICoordinate coordinate) {
+        throw new UnsupportedOperationException("Die Koordinaten eines Level-Feldes koennen nicht geaendert werden!");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MapModule getMapModule() {
+        return level.getMapModule(x, y);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Die Aenderung wird direkt in den Level geschrieben.
+     */
+    @Override
+    public void setMapModule(MapModule module) throws IllegalArgumentException {
+        level.setMapModule(x, y, module);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSolid() {
+        return level.isSolid(x, y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isWall() {
+        return level.isWall(x, y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isFree() {
+        MapModule m = getMapModule();
+        return m == MapModule.SPACE || m == MapModule.DOT;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isDot() {
+        return getMapModule() == MapModule.DOT;
+    }
+}
@@ -0,0 +1,86 @@
+package tud.ai1.pacman.model.level;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Menge von Rasterzellen (y * Breite + x) mit Einfuegen, Entfernen und
+ * zufaelligem Ziehen in O(1). Die Zellen liegen dicht in einem Array, beim
+ * Entfernen rueckt die letzte Zelle an die frei gewordene Stelle. Ein
+ * zweites Array merkt sich fuer jede Zelle ihre Stelle.
+ *
+ * @author Thanh Son Bui
+ */
+class FreeCellIndex {
+    /** enthaltene Zellen, dicht gepackt */
+    private final int[] cells;
+    /** Stelle jeder Zelle in {@link #cells}, -1 falls nicht enthalten */
+    private final int[] positions;
+    /** Anzahl der enthaltenen Zellen */
+    private int size;
+
+    /**
+     * Konstruktor.
+     * Erzeugt eine leere Menge.
+     *
+     * @param cellCount Anzahl der Rasterzellen
+     */
+    FreeCellIndex(int cellCount) {
+        cells = new int[cellCount];
+        positions = new int[cellCount];
+        Arrays.fill(positions, -1);
+        size = 0;
+    }
+
+    /**
+     * @param cell eine Zelle
+     * @return true <-> die Zelle ist enthalten
+     */
+    boolean contains(int cell) {
+        return positions[cell] >= 0;
+    }
+
+    /**
+     * Fuegt eine Zelle hinzu, falls sie noch nicht enthalten ist.
+     *
+     * @param cell die Zelle
+     */
+    void add(int cell) {
+        if (positions[cell] >= 0) return;
+        positions[cell] = size;
+        cells[size++] = cell;
+    }
+
+    /**
+     * Entfernt eine Zelle, falls sie enthalten ist.
+     *
+     * @param cell die Zelle
+     */
+    void remove(int cell) {
+        int i = positions[cell];
+        if (i < 0) return;
+        // letzte zelle in die luecke ziehen
+        int last = cells[--size];
+        cells[i] = last;
+        positions[last] = i;
+        positions[cell] = -1;
+    }
+
+    /**
+     * @return Anzahl der enthaltenen Zellen
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param rnd zu verwendender Random-Generator
+     * @return eine zufaellige enthaltene Zelle
+     * @throws IllegalStateException falls die Menge leer ist
+     */
+    int random(Random rnd) {
+        if (size == 0)
+            throw new IllegalStateException("Es gibt keine freie Zelle!");
+        return cells[rnd.nextInt(size)];
+    }
+}
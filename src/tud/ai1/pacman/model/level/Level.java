@@ -4,12 +4,11 @@ import tud.ai1.pacman.exceptions.NoDotsException;
 import tud.ai1.pacman.exceptions.NoGhostSpawnPointException;
 import tud.ai1.pacman.exceptions.NoPacmanSpawnPointException;
 import tud.ai1.pacman.exceptions.ReachabilityException;
+import tud.ai1.pacman.model.StateRandom;
 import tud.ai1.pacman.util.Consts;
 
 import java.awt.*;
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Random;
 
 
 /**
@@ -22,15 +21,60 @@ import java.util.Random;
  * @author Devin Balian
  */
 public class Level {
+    /** X-Versatz der Abzweigungen in {@link #getBranchMask(int, int)} */
+    public static final int[] BRANCH_DX = {-1, 0, 1, 0};
+    /** Y-Versatz der Abzweigungen in {@link #getBranchMask(int, int)} */
+    public static final int[] BRANCH_DY = {0, -1, 0, 1};
+
+    /** alle Module, Index ist der im Raster gespeicherte Wert */
+    private static final MapModule[] MODULES = MapModule.values();
+    /** Rasterwert einer Wand */
+    private static final byte WALL = (byte) MapModule.WALL.ordinal();
+    /** Rasterwert des Hintergrunds */
+    private static final byte BACKGROUND = (byte) MapModule.BACKGROUND.ordinal();
+    /** Rasterwert eines Dots */
+    private static final byte DOT = (byte) MapModule.DOT.ordinal();
+    /** Rasterwert eines Freiraums */
+    private static final byte SPACE = (byte) MapModule.SPACE.ordinal();
+
     /** aktuell angesprochener Geisterspawner */
     private int currentGhostSpawnCounter = 0;
 
     /** Ein Random-Generator */
-    private final Random rnd;
+    private final StateRandom rnd;
     /** Name des Levels */
     private String name;
-    /** Level-Layout */
-    private final Field[][] map;
+    /** Breite des Levels */
+    private final int width;
+    /** Hoehe des Levels */
+    private final int height;
+    /** Level-Layout, ein Byte (Ordinalzahl des {@link MapModule}) je Zelle (y * Breite + x) */
+    private final byte[] cells;
+    /**
+     * Nachbarschaft je Zelle (y * Breite + x), wird bei Bedarf aufgebaut.
+     * Untere 4 Bit: Abzweigungen wie in {@link #getBranchMask(int, int)},
+     * obere 4 Bit: begehbare Nachbarn mit Umbruch am Levelrand.
+     */
+    private byte[] adjacency = null;
+    /**
+     * Wandfreie Abschnitte je Zeile: gleiche Nummer <=> zwei Zellen einer
+     * Zeile sind ohne Wand dazwischen verbunden, -1 fuer Waende.
+     * Wird bei Bedarf aufgebaut.
+     */
+    private int[] rowSegments = null;
+    /** wie {@link #rowSegments}, aber je Spalte */
+    private int[] columnSegments = null;
+    /** Zusammenhangskomponente je Zelle, wird bei Bedarf aufgebaut */
+    private int[] components = null;
+    /** Anzahl der Zusammenhangskomponenten */
+    private int componentCount;
+    /**
+     * alle Dots und Freiraeume zum zufaelligen Ziehen, wird bei Bedarf
+     * aufgebaut und danach bei jeder Aenderung mitgefuehrt
+     */
+    private FreeCellIndex spaceCells = null;
+    /** Anzahl der bisherigen Aenderungen am Level-Layout */
+    private int modCount = 0;
     /** alle Positionen der Pacman-Spawner */
     private final Point[] pacmanSpawns;
     /** alle Positionen der Geister-Spawner */
@@ -56,11 +100,49 @@ public class Level {
      * @param ghostSpawns Positionen der Geister-Spawner
      */
     public Level(String name, Field[][] map, Point[] pacmanSpawns, Point[] ghostSpawns) {
+        this(name, map[0].length, map.length, toCells(map), pacmanSpawns, ghostSpawns);
+    }
+
+    /**
+     * Konstruktor.
+     * Das Raster wird uebernommen, nicht kopiert.
+     *
+     * @param name Name des Levels
+     * @param width Breite des Levels
+     * @param height Hoehe des Levels
+     * @param cells Level-Layout, Ordinalzahl des {@link MapModule} je Zelle (y * Breite + x)
+     * @param pacmanSpawns Positionen der Pacman-Spawner
+     * @param ghostSpawns Positionen der Geister-Spawner
+     */
+    public Level(String name, int width, int height, byte[] cells, Point[] pacmanSpawns, Point[] ghostSpawns) {
+        if (width <= 0 || height <= 0 || cells == null || cells.length != width * height)
+            throw new IllegalArgumentException("Das Raster passt nicht zu den Levelabmessungen!");
+        for (byte c : cells)
+            if (c < 0 || c >= MODULES.length)
+                throw new IllegalArgumentException("Unbekanntes Modul im Raster: " + c);
         this.name = name;
-        this.map = map;
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
         this.pacmanSpawns = pacmanSpawns;
         this.ghostSpawns = ghostSpawns;
-        rnd = new Random();
+        rnd = new StateRandom();
+    }
+
+    /**
+     * @param map Level-Layout als Felder
+     * @return Level-Layout als Raster mit einem Byte je Zelle
+     */
+    private static byte[] toCells(Field[][] map) {
+        int w = map[0].length;
+        byte[] cells = new byte[w * map.length];
+        for (int y = 0; y < map.length; y++) {
+            if (map[y].length != w)
+                throw new IllegalArgumentException("Der Level ist nicht rechteckig!");
+            for (int x = 0; x < w; x++)
+                cells[y * w + x] = (byte) map[y][x].getMapModule().ordinal();
+        }
+        return cells;
     }
 
     /**
@@ -78,32 +160,134 @@ public class Level {
         name = value;
     }
 
+    /**
+     * Setzt den Level fuer eine neue Runde zurueck. Der Random-Generator wird
+     * neu initialisiert und die Geisterspawner werden wieder von vorne vergeben.
+     *
+     * @param seed Seed des Random-Generators
+     */
+    public void reset(long seed) {
+        rnd.setSeed(seed);
+        currentGhostSpawnCounter = 0;
+    }
+
+    /**
+     * @return Zustand des Random-Generators, siehe {@link #restoreRound(long, int)}
+     */
+    public long getRandomState() {
+        return rnd.getState();
+    }
+
+    /**
+     * @return Anzahl der bisher vergebenen Geisterspawner
+     */
+    public int getGhostSpawnCounter() {
+        return currentGhostSpawnCounter;
+    }
+
+    /**
+     * Stellt den Stand einer Runde wieder her, wie er zuvor mit
+     * {@link #getRandomState()} und {@link #getGhostSpawnCounter()}
+     * ausgelesen wurde.
+     *
+     * @param randomState Zustand des Random-Generators
+     * @param ghostSpawnCounter Anzahl der bisher vergebenen Geisterspawner
+     */
+    public void restoreRound(long randomState, int ghostSpawnCounter) {
+        rnd.setState(randomState);
+        currentGhostSpawnCounter = ghostSpawnCounter;
+    }
+
     /**
      * @return Breite des Levels
      */
     public int getWidth() {
-        return map[0].length;
+        return width;
     }
 
     /**
      * @return Hoehe des Levels
      */
     public int getHeight() {
-        return map.length;
+        return height;
     }
 
     /**
+     * Zaehlt jede Aenderung am Level-Layout. Daraus abgeleitete Daten
+     * koennen so erkennen, dass sie neu berechnet werden muessen.
+     *
+     * @return Anzahl der bisherigen Aenderungen am Level-Layout
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Das Feld ist eine Ansicht auf den Level: Aenderungen ueber
+     * {@link Field#setMapModule} werden direkt in den Level geschrieben.
+     * Jeder Aufruf legt eine neue Ansicht samt Koordinate an.
+     *
      * @param x X-Koordinate
      * @param y Y-Koordinate
      * @return Modul an der uebergebenen Position
+     * @deprecated ohne Objekte geht es ueber {@link #getMapModule(int, int)},
+     *             {@link #setMapModule(int, int, MapModule)}, {@link #isSolid(int, int)}
+     *             und {@link #isWall(int, int)}
      */
+    @Deprecated
     public Field getField(int x, int y) {
-        return map[y][x];
+        checkBounds(x, y);
+        return new FieldView(this, x, y);
+    }
+
+    /**
+     * @param x X-Koordinate
+     * @param y Y-Koordinate
+     * @return Modul an der uebergebenen Position
+     */
+    public MapModule getMapModule(int x, int y) {
+        checkBounds(x, y);
+        return MODULES[cells[y * width + x]];
+    }
+
+    /**
+     * Aendert das Modul an der uebergebenen Position.
+     *
+     * @param x X-Koordinate
+     * @param y Y-Koordinate
+     * @param module neues Modul
+     */
+    public void setMapModule(int x, int y, MapModule module) {
+        if (module == null) throw new IllegalArgumentException("module must not be null!");
+        checkBounds(x, y);
+        int c = y * width + x;
+        cells[c] = (byte) module.ordinal();
+        modCount++;
+        if (spaceCells != null) {
+            if (isSpaceField(x, y))
+                spaceCells.add(c);
+            else
+                spaceCells.remove(c);
+        }
+        // nachbarschaft, sichtlinien und komponenten muessen neu aufgebaut werden
+        adjacency = null;
+        rowSegments = null;
+        columnSegments = null;
+        components = null;
     }
 
     @Deprecated
     public void setField(int x, int y, char c) {
-        map[y][x] = new Field(new Coordinate(x, y), Field.findByValue(c));
+        setMapModule(x, y, Field.findByValue(c));
+    }
+
+    /**
+     * @param x X-Koordinate
+     * @param y Y-Koordinate
+     */
+    private void checkBounds(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            throw new IndexOutOfBoundsException("Die Position (" + x + ", " + y + ") liegt ausserhalb des Levels!");
     }
 
     /**
@@ -114,8 +298,9 @@ public class Level {
      * @return true <-> Modul ist Wand oder Hintergrund
      */
     public boolean isSolid(int x, int y) {
-        if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) return true;
-        return map[y][x].getMapModule() == MapModule.WALL || map[y][x].getMapModule() == MapModule.BACKGROUND;
+        if (x < 0 || y < 0 || x >= width || y >= height) return true;
+        byte c = cells[y * width + x];
+        return c == WALL || c == BACKGROUND;
     }
 
     /**
@@ -126,32 +311,90 @@ public class Level {
      * @return true <-> Modul ist Wand
      */
     public boolean isWall(int x, int y) {
-        if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) return false;
-        return map[y][x].getMapModule() == MapModule.WALL;
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        return cells[y * width + x] == WALL;
     }
 
     public boolean existsStraightPath(Point p1, Point p2) {
         if(p1 == null || p2 == null)
             throw new IllegalArgumentException();
-        // prueft ob der weg entlang einer achse zwischen zwei punkten frei ist
-        if (p1.x == p2.x) {
+        return existsStraightPath(p1.x, p1.y, p2.x, p2.y);
+    }
+
+    /**
+     * Wie {@link #existsStraightPath(Point, Point)}, ohne Punkte anzulegen.
+     *
+     * @param x1 X-Koordinate des ersten Punktes
+     * @param y1 Y-Koordinate des ersten Punktes
+     * @param x2 X-Koordinate des zweiten Punktes
+     * @param y2 Y-Koordinate des zweiten Punktes
+     * @return true <-> zwischen den Punkten liegt entlang einer Achse keine Wand
+     */
+    public boolean existsStraightPath(int x1, int y1, int x2, int y2) {
+        // prueft ob der weg entlang einer achse zwischen zwei punkten frei ist,
+        // zellen ausserhalb des levels sind keine wand
+        if (x1 == x2) {
             // entlang der y-achse pruefen
-            for (int y = Math.min(p1.y, p2.y); y <= Math.max(p1.y, p2.y); y++)
-                if (isWall(p1.x, y))
-                    return false;
-            return true;
-        } else if (p1.y == p2.y) {
+            if (x1 < 0 || x1 >= width) return true;
+            int from = Math.max(Math.min(y1, y2), 0);
+            int to = Math.min(Math.max(y1, y2), height - 1);
+            if (from > to) return true;
+            int[] seg = getColumnSegments();
+            int s = seg[x1 * height + from];
+            return s >= 0 && s == seg[x1 * height + to];
+        } else if (y1 == y2) {
             // entlang de x-achse pruefen
-            for (int x = Math.min(p1.x, p2.x); x <= Math.max(p1.x, p2.x); x++)
-                if (isWall(x, p1.y))
-                    return false;
-            return true;
+            if (y1 < 0 || y1 >= height) return true;
+            int from = Math.max(Math.min(x1, x2), 0);
+            int to = Math.min(Math.max(x1, x2), width - 1);
+            if (from > to) return true;
+            int[] seg = getRowSegments();
+            int s = seg[y1 * width + from];
+            return s >= 0 && s == seg[y1 * width + to];
         }
         // wenn die punkte nicht mindestens eine achse gemeinsam haben kein
         // sichtkontakt
         return false;
     }
 
+    /**
+     * Pruefsumme ueber Abmessungen und Raster (FNV-1a, 64 Bit). Gleiche
+     * Level haben unabhaengig von Name und Dateiformat denselben Wert.
+     *
+     * @return Pruefsumme des Level-Inhalts
+     */
+    public long contentHash() {
+        long h = 0xCBF29CE484222325L;
+        for (int shift = 0; shift < 32; shift += 8) {
+            h = (h ^ ((width >>> shift) & 0xFF)) * 0x100000001B3L;
+            h = (h ^ ((height >>> shift) & 0xFF)) * 0x100000001B3L;
+        }
+        for (byte c : cells)
+            h = (h ^ c) * 0x100000001B3L;
+        return h;
+    }
+
+    /**
+     * @return Level-Layout, Ordinalzahl des {@link MapModule} je Zelle (y * Breite + x), nicht kopiert
+     */
+    byte[] getCells() {
+        return cells;
+    }
+
+    /**
+     * @return alle Pacman-Spawner in der Reihenfolge des Levels, nicht kopiert
+     */
+    Point[] getPacmanSpawns() {
+        return pacmanSpawns;
+    }
+
+    /**
+     * @return alle Geister-Spawner in der Reihenfolge des Levels, nicht kopiert
+     */
+    Point[] getGhostSpawns() {
+        return ghostSpawns;
+    }
+
     /**
      * @return zufaelliger PacmanSpawner-Punkt
      */
@@ -177,26 +420,45 @@ public class Level {
      * @return eine zufaellige Position, die ein Dot oder Freiraum ist
      */
     public Point getRandomSpaceField() {
-        // alle begehbaren felder auflisten
-        ArrayList<Point> fields = new ArrayList<>();
+        int c = getRandomSpaceCell();
+        return new Point(c % width, c / width);
+    }
 
-        for (int y = 0; y < getHeight(); y++)
-            for (int x = 0; x < getWidth(); x++)
-                if (map[y][x].getMapModule() == MapModule.DOT || map[y][x].getMapModule() == MapModule.SPACE)
-                    fields.add(new Point(x, y));
+    /**
+     * Wie {@link #getRandomSpaceField()}, aber ohne ein neues Objekt
+     * anzulegen.
+     *
+     * @return Zellenindex (y * Breite + x) einer zufaelligen Position, die ein
+     * Dot oder Freiraum ist
+     */
+    public int getRandomSpaceCell() {
+        if (spaceCells == null) {
+            spaceCells = new FreeCellIndex(width * height);
+            for (int y = 0; y < height; y++)
+                for (int x = 0; x < width; x++)
+                    if (isSpaceField(x, y))
+                        spaceCells.add(y * width + x);
+        }
+        return spaceCells.random(rnd);
+    }
 
-        // zufaelliges element der liste ausgeben
-        return fields.get(rnd.nextInt(fields.size()));
+    /**
+     * @param x X-Koordinate
+     * @param y Y-Koordinate
+     * @return true <-> Modul ist ein Dot oder Freiraum
+     */
+    private boolean isSpaceField(int x, int y) {
+        byte c = cells[y * width + x];
+        return c == DOT || c == SPACE;
     }
 
     /**
      * @return true <-> mindestens ein Dot wurde platziert
      */
     private boolean hasDot() {
-        for (int x = 0; x < getWidth(); x++)
-            for (int y = 0; y < getHeight(); y++)
-                if (map[y][x].getMapModule() == MapModule.DOT)
-                    return true;
+        for (byte c : cells)
+            if (c == DOT)
+                return true;
         return false;
     }
 
@@ -220,43 +482,79 @@ public class Level {
     }
 
     private void reachability() throws ReachabilityException {
-        int w = getWidth();
-        int h = getHeight();
-
-        // erreichbarkeit aller freien flaechen pruefen
-        boolean[][] valid = new boolean[h][w];
-        // alle freien flaechen mit false (ungeprueft) initialisieren
-        for (int x = 0; x < w; x++)
-            for (int y = 0; y < h; y++)
-                valid[y][x] = isSolid(x, y);
-        // speichert alle anliegenden, noch zu pruefenden punkte
-        ArrayList<Point> trace = new ArrayList<>();
-        // bei einem pacman-spawner anfangen
-        trace.add(pacmanSpawns[0]);
-        while (trace.size() > 0) {
-            // aktuellen punkt als gueltig markieren und aus der liste entfernen
-            Point p = trace.get(trace.size() - 1);
-            valid[p.y][p.x] = true;
-            trace.remove(p);
-
-            // umliegende punkte pruefen (auch auf gegenueberliegender levelseite)
-            if (!valid[p.y][(p.x + w - 1) % w])
-                trace.add(new Point((p.x + w - 1) % w, p.y));
-            if (!valid[p.y][(p.x + w + 1) % w])
-                trace.add(new Point((p.x + w + 1) % w, p.y));
-            if (!valid[(p.y + h - 1) % h][p.x])
-                trace.add(new Point(p.x, (p.y + h - 1) % h));
-            if (!valid[(p.y + h + 1) % h][p.x])
-                trace.add(new Point(p.x, (p.y + h + 1) % h));
-        }
-        // pruefen, ob alle Punkte als gueltig markiert wurden
-        for (int x = 0; x < getWidth(); x++)
-            for (int y = 0; y < getHeight(); y++)
-                if (!valid[y][x] && map[y][x].getMapModule() == MapModule.DOT) {
+        // alle dots muessen in der zusammenhangskomponente des ersten pacman-spawners liegen
+        int[] components = getComponents();
+        int start = components[pacmanSpawns[0].y * width + pacmanSpawns[0].x];
+        for (int x = 0; x < width; x++)
+            for (int y = 0; y < height; y++)
+                if (cells[y * width + x] == DOT && components[y * width + x] != start) {
                     throw new ReachabilityException(name+": "+x+","+y);
                 }
     }
 
+    /**
+     * Zwei begehbare Zellen liegen genau dann in derselben Komponente, wenn
+     * sie ueber begehbare Nachbarn (auch ueber den Levelrand hinweg)
+     * verbunden sind.
+     *
+     * @param x X-Koordinate
+     * @param y Y-Koordinate
+     * @return Nummer der Zusammenhangskomponente der Zelle, -1 fuer solide Zellen
+     */
+    public int getComponent(int x, int y) {
+        checkBounds(x, y);
+        return getComponents()[y * width + x];
+    }
+
+    /**
+     * @return Anzahl der Zusammenhangskomponenten aus begehbaren Zellen
+     */
+    public int getComponentCount() {
+        getComponents();
+        return componentCount;
+    }
+
+    /**
+     * Nummeriert die Zusammenhangskomponenten in zeilenweiser Reihenfolge
+     * ihrer ersten Zelle, jede Zelle wird dabei genau einmal besucht.
+     *
+     * @return Komponente je Zelle (y * Breite + x), -1 fuer solide Zellen
+     */
+    private int[] getComponents() {
+        int[] comp = components;
+        if (comp == null) {
+            comp = new int[width * height];
+            int[] queue = new int[width * height];
+            int count = 0;
+            for (int i = 0; i < comp.length; i++)
+                comp[i] = isSolid(i % width, i / width) ? -1 : -2;
+            for (int i = 0; i < comp.length; i++) {
+                if (comp[i] != -2) continue;
+                // flutfuellung ab der ersten noch nicht nummerierten zelle,
+                // zellen werden beim einreihen markiert
+                int head = 0, tail = 0;
+                comp[i] = count;
+                queue[tail++] = i;
+                while (head < tail) {
+                    int c = queue[head++];
+                    int x = c % width, y = c / width;
+                    int walkable = getWalkableMask(x, y);
+                    for (int d = 0; d < 4; d++) {
+                        if ((walkable & (1 << d)) == 0) continue;
+                        int n = Math.floorMod(y + BRANCH_DY[d], height) * width + Math.floorMod(x + BRANCH_DX[d], width);
+                        if (comp[n] != -2) continue;
+                        comp[n] = count;
+                        queue[tail++] = n;
+                    }
+                }
+                count++;
+            }
+            componentCount = count;
+            components = comp;
+        }
+        return comp;
+    }
+
     /**
      * {@inheritDoc}
      * Gibt den Level-Grid anhand der Modul-Zeichen als String zurueck.
@@ -266,7 +564,7 @@ public class Level {
         StringBuilder sb = new StringBuilder();
         for (int y = 0; y < getHeight(); y++) {
             for (int x = 0; x < getWidth(); x++)
-                sb.append(map[y][x].getMapModule().getValue());
+                sb.append(MODULES[cells[y * width + x]].getValue());
             if (y < (getHeight() - 1))
                 sb.append(System.lineSeparator());
         }
@@ -278,16 +576,134 @@ public class Level {
      * @return alle direkten Nachbarn, die keine Wand sind
      */
     public Point[] getBranches(Point p) {
-        ArrayList<Point> branches = new ArrayList<>();
-        if (p.x >= 0 && !isWall(p.x - 1, p.y))
-            branches.add(new Point(p.x - 1, p.y));
-        if (p.y >= 0 && !isWall(p.x, p.y - 1))
-            branches.add(new Point(p.x, p.y - 1));
-        if (p.x <= (getWidth() - 1) && !isWall(p.x + 1, p.y))
-            branches.add(new Point(p.x + 1, p.y));
-        if (p.y <= (getHeight() - 1) && !isWall(p.x, p.y + 1))
-            branches.add(new Point(p.x, p.y + 1));
-        return branches.toArray(new Point[0]);
+        int mask = getBranchMask(p.x, p.y);
+        Point[] branches = new Point[Integer.bitCount(mask)];
+        int i = 0;
+        for (int d = 0; d < 4; d++)
+            if ((mask & (1 << d)) != 0)
+                branches[i++] = new Point(p.x + BRANCH_DX[d], p.y + BRANCH_DY[d]);
+        return branches;
+    }
+
+    /**
+     * Bitmaske der Abzweigungen wie in {@link #getBranches(Point)}, ohne
+     * Punkte anzulegen. Bit d ist gesetzt, wenn der Nachbar
+     * (x + BRANCH_DX[d], y + BRANCH_DY[d]) keine Wand ist.
+     * Reihenfolge: 0 links, 1 oben, 2 rechts, 3 unten.
+     * Nachbarn ausserhalb des Levels gelten als Durchgang zur anderen Seite.
+     * Fuer Positionen im Level wird die Maske nur einmal je Level berechnet.
+     *
+     * @param x X-Koordinate der Position
+     * @param y Y-Koordinate der Position
+     * @return Bitmaske der Abzweigungen
+     */
+    public int getBranchMask(int x, int y) {
+        if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight())
+            return computeBranchMask(x, y);
+        return getAdjacency()[y * getWidth() + x] & 0xF;
+    }
+
+    /**
+     * Bitmaske der begehbaren Nachbarn, wobei am Levelrand auf die
+     * gegenueberliegende Seite umgebrochen wird. Bit d ist gesetzt, wenn
+     * der Nachbar in Richtung (BRANCH_DX[d], BRANCH_DY[d]) nicht solid ist.
+     *
+     * @param x X-Koordinate der Position, muss im Level liegen
+     * @param y Y-Koordinate der Position, muss im Level liegen
+     * @return Bitmaske der begehbaren Nachbarn
+     */
+    public int getWalkableMask(int x, int y) {
+        if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight())
+            throw new IllegalArgumentException("Die Position liegt ausserhalb des Levels!");
+        return (getAdjacency()[y * getWidth() + x] >> 4) & 0xF;
+    }
+
+    /**
+     * @return die Nachbarschaft aller Zellen, wird beim ersten Zugriff nach
+     *          dem Erzeugen oder einer Aenderung durch {@link #setField} aufgebaut
+     */
+    private byte[] getAdjacency() {
+        byte[] adj = adjacency;
+        if (adj == null) {
+            int w = getWidth(), h = getHeight();
+            adj = new byte[w * h];
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    int walkable = 0;
+                    for (int d = 0; d < 4; d++)
+                        if (!isSolid(Math.floorMod(x + BRANCH_DX[d], w), Math.floorMod(y + BRANCH_DY[d], h)))
+                            walkable |= 1 << d;
+                    adj[y * w + x] = (byte) (computeBranchMask(x, y) | walkable << 4);
+                }
+            }
+            adjacency = adj;
+        }
+        return adj;
+    }
+
+    /**
+     * @return wandfreie Abschnitte je Zeile, Index y * Breite + x
+     */
+    private int[] getRowSegments() {
+        int[] seg = rowSegments;
+        if (seg == null) {
+            seg = new int[width * height];
+            for (int y = 0; y < height; y++) {
+                int id = 0;
+                for (int x = 0; x < width; x++) {
+                    int i = y * width + x;
+                    // jede wand beginnt einen neuen abschnitt
+                    if (cells[i] == WALL) {
+                        seg[i] = -1;
+                        id++;
+                    } else seg[i] = id;
+                }
+            }
+            rowSegments = seg;
+        }
+        return seg;
+    }
+
+    /**
+     * @return wandfreie Abschnitte je Spalte, Index x * Hoehe + y
+     */
+    private int[] getColumnSegments() {
+        int[] seg = columnSegments;
+        if (seg == null) {
+            seg = new int[width * height];
+            for (int x = 0; x < width; x++) {
+                int id = 0;
+                for (int y = 0; y < height; y++) {
+                    int i = x * height + y;
+                    if (cells[y * width + x] == WALL) {
+                        seg[i] = -1;
+                        id++;
+                    } else seg[i] = id;
+                }
+            }
+            columnSegments = seg;
+        }
+        return seg;
+    }
+
+    /**
+     * Berechnet die Bitmaske der Abzweigungen direkt aus dem Level-Layout.
+     *
+     * @param x X-Koordinate der Position
+     * @param y Y-Koordinate der Position
+     * @return Bitmaske der Abzweigungen
+     */
+    private int computeBranchMask(int x, int y) {
+        int mask = 0;
+        if (x >= 0 && !isWall(x - 1, y))
+            mask |= 1;
+        if (y >= 0 && !isWall(x, y - 1))
+            mask |= 2;
+        if (x <= (getWidth() - 1) && !isWall(x + 1, y))
+            mask |= 4;
+        if (y <= (getHeight() - 1) && !isWall(x, y + 1))
+            mask |= 8;
+        return mask;
     }
 
     /**
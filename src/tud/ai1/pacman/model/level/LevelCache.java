@@ -0,0 +1,211 @@
+package tud.ai1.pacman.model.level;
+
+import tud.ai1.pacman.util.Consts;
+
+import java.awt.*;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Speichert generierte Zufallslevel unter ihrem Seed und ihren Abmessungen
+ * auf der Festplatte. Wird derselbe Level erneut angefragt, wird er nur noch
+ * eingelesen statt neu generiert.
+ *
+ * Neben dem Raster werden die Spawner in der Reihenfolge des Generators
+ * abgelegt, da sich diese nicht aus dem Raster ablesen laesst (der erste
+ * Pacman-Spawner bestimmt z. B. die Erreichbarkeitspruefung). Die daraus
+ * abgeleiteten Daten des Levels (Nachbarschaft, Sichtlinien, Komponenten)
+ * werden nicht abgelegt, der Level baut sie wie immer beim ersten Zugriff
+ * in linearer Zeit auf.
+ *
+ * Der Dateiname enthaelt Seed, Abmessungen und {@link LevelGenerator#VERSION}.
+ * Die Grenzen der Abmessungen aus {@link Consts} sind die einzige
+ * Einstellung, die der Generator liest, und gehen nur ueber die Abmessungen
+ * in den Level ein.
+ *
+ * @author Thanh Son Bui
+ */
+public class LevelCache {
+    /** Kennung am Dateianfang ("PLVC") */
+    private static final int MAGIC = 0x504C5643;
+    /** Version des Dateiformats */
+    private static final int VERSION = 2;
+
+    /** gemeinsamer Cache im Ordner aus {@link Consts}, wird bei Bedarf angelegt */
+    private static LevelCache shared;
+
+    /** Ordner der Cache-Dateien */
+    private final Path folder;
+    /** Anzahl der aus dem Cache gelesenen Level */
+    private final AtomicLong hits = new AtomicLong();
+    /** Anzahl der neu generierten Level */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Konstruktor.
+     *
+     * @param folder Ordner der Cache-Dateien, wird bei Bedarf angelegt
+     */
+    public LevelCache(Path folder) {
+        if (folder == null)
+            throw new IllegalArgumentException("Es wurde kein Ordner uebergeben!");
+        this.folder = folder;
+    }
+
+    /**
+     * @return gemeinsamer Cache im Ordner {@link Consts#LEVEL_CACHE_FOLDER}
+     */
+    public static synchronized LevelCache getShared() {
+        if (shared == null)
+            shared = new LevelCache(Paths.get(Consts.LEVEL_CACHE_FOLDER));
+        return shared;
+    }
+
+    /**
+     * Die Abmessungen ergeben sich wie bei {@link LevelGenerator#generateLevel(long)}
+     * aus dem Seed.
+     *
+     * @param seed Seed des Levels
+     * @return der Level zum Seed
+     */
+    public Level get(long seed) {
+        int[] size = LevelGenerator.randomSize(seed);
+        return get(seed, size[0], size[1]);
+    }
+
+    /**
+     * Liest den Level aus dem Cache. Fehlt er dort (oder ist die Datei
+     * unlesbar), wird er generiert und abgelegt. Jeder Aufruf liefert ein
+     * eigenes Level-Objekt.
+     *
+     * @param seed Seed des Levels
+     * @param width Breite des Levels, ungerade und mindestens 5
+     * @param height Hoehe des Levels, ungerade und mindestens 5
+     * @return der Level zu Seed und Abmessungen
+     */
+    public Level get(long seed, int width, int height) {
+        Path file = folder.resolve(String.format("%016x_%dx%d_g%d.lvc", seed, width, height, LevelGenerator.VERSION));
+        if (Files.isRegularFile(file)) {
+            try {
+                Level level = read(file, seed, width, height);
+                hits.incrementAndGet();
+                return level;
+            } catch (IOException | RuntimeException e) {
+                // beschaedigte datei wird unten ueberschrieben
+                System.err.println("Cache-Datei " + file + " wird neu erzeugt: " + e.getMessage());
+            }
+        }
+
+        misses.incrementAndGet();
+        Level level = new LevelGenerator().generateLevel(seed, width, height);
+        try {
+            write(file, seed, level);
+        } catch (IOException e) {
+            // ohne cache geht es auch, nur langsamer
+            System.err.println("Cache-Datei " + file + " konnte nicht geschrieben werden: " + e.getMessage());
+        }
+        return level;
+    }
+
+    /**
+     * @return Anzahl der aus dem Cache gelesenen Level
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Anzahl der Level, die generiert werden mussten
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Schreibt erst in eine temporaere Datei und benennt diese dann um, so
+     * sieht ein gleichzeitiger Leser nie eine halbe Datei.
+     */
+    private void write(Path file, long seed, Level level) throws IOException {
+        Files.createDirectories(folder);
+        Path tmp = Files.createTempFile(folder, "level", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(LevelGenerator.VERSION);
+                out.writeLong(seed);
+                out.writeInt(level.getWidth());
+                out.writeInt(level.getHeight());
+                for (int y = 0; y < level.getHeight(); y++)
+                    for (int x = 0; x < level.getWidth(); x++)
+                        out.writeByte(level.getMapModule(x, y).ordinal());
+                writePoints(out, level.getPacmanSpawns());
+                writePoints(out, level.getGhostSpawns());
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @throws IOException falls die Datei nicht zu Seed und Abmessungen passt
+     */
+    private Level read(Path file, long seed, int width, int height) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("Unbekanntes Dateiformat");
+            if (in.readInt() != LevelGenerator.VERSION)
+                throw new IOException("Die Datei stammt von einer anderen Version des Generators");
+            if (in.readLong() != seed || in.readInt() != width || in.readInt() != height)
+                throw new IOException("Die Datei gehoert zu einem anderen Level");
+            byte[] cells = new byte[width * height];
+            in.readFully(cells);
+            Point[] pacmanSpawns = readPoints(in);
+            Point[] ghostSpawns = readPoints(in);
+            Level level = new Level("Random Level", width, height, cells, pacmanSpawns, ghostSpawns);
+            // wie beim generator
+            level.reset(LevelGenerator.levelSeed(seed));
+            return level;
+        }
+    }
+
+    /**
+     * @param out Ausgabestrom
+     * @param points zu schreibende Punkte
+     */
+    private static void writePoints(DataOutputStream out, Point[] points) throws IOException {
+        out.writeInt(points.length);
+        for (Point p : points) {
+            out.writeInt(p.x);
+            out.writeInt(p.y);
+        }
+    }
+
+    /**
+     * @param in Eingabestrom
+     * @return gelesene Punkte
+     */
+    private static Point[] readPoints(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0)
+            throw new IOException("Ungueltige Anzahl an Spawnern: " + n);
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++)
+            points[i] = new Point(in.readInt(), in.readInt());
+        return points;
+    }
+}
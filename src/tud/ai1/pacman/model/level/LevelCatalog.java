@@ -0,0 +1,419 @@
+package tud.ai1.pacman.model.level;
+
+import tud.ai1.pacman.util.Consts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Verzeichnis aller Level im Levelordner. Zu jeder Datei werden Name,
+ * Abmessungen, Anzahl Dots und Spawner, Gueltigkeit und Inhalts-Pruefsumme
+ * in einer Indexdatei gehalten. Eine Datei wird nur neu eingelesen, wenn
+ * sich ihr Aenderungszeitpunkt oder ihre Groesse geaendert hat.
+ *
+ * Die Level selbst werden erst beim ersten Spielen geladen, mit
+ * {@link #prefetch(String)} auch vorab im Hintergrund. Es bleiben nur die
+ * zuletzt verwendeten Level geladen (aktueller und vorgeladener Level),
+ * aeltere werden bei Bedarf erneut eingelesen.
+ *
+ * @author Thanh Son Bui
+ */
+public class LevelCatalog {
+    /** Kennung am Anfang der Indexdatei ("PLVI") */
+    private static final int MAGIC = 0x504C5649;
+    /** Version der Indexdatei */
+    private static final int VERSION = 1;
+    /** Anzahl der hoechstens geladen gehaltenen Level */
+    private static final int MAX_LOADED = 4;
+
+    /** gemeinsamer Katalog fuer den Levelordner, wird bei Bedarf angelegt */
+    private static LevelCatalog shared;
+
+    /**
+     * Eintrag einer Leveldatei im Katalog.
+     */
+    public static final class Entry {
+        /** Dateiname im Levelordner */
+        private final String file;
+        /** Aenderungszeitpunkt der Datei */
+        private final long modified;
+        /** Groesse der Datei in Bytes */
+        private final long length;
+        /** lesbarer Levelname */
+        private final String name;
+        /** Breite, 0 falls die Datei nicht lesbar ist */
+        private final int width;
+        /** Hoehe, 0 falls die Datei nicht lesbar ist */
+        private final int height;
+        /** Anzahl der Dots */
+        private final int dots;
+        /** Anzahl der Pacman-Spawner */
+        private final int pacmanSpawns;
+        /** Anzahl der Geister-Spawner */
+        private final int ghostSpawns;
+        /** true <-> der Level ist lesbar und besteht {@link Level#validate()} */
+        private final boolean valid;
+        /** {@link Level#contentHash()} */
+        private final long hash;
+
+        /**
+         * Konstruktor.
+         */
+        private Entry(String file, long modified, long length, String name, int width, int height,
+                      int dots, int pacmanSpawns, int ghostSpawns, boolean valid, long hash) {
+            this.file = file;
+            this.modified = modified;
+            this.length = length;
+            this.name = name;
+            this.width = width;
+            this.height = height;
+            this.dots = dots;
+            this.pacmanSpawns = pacmanSpawns;
+            this.ghostSpawns = ghostSpawns;
+            this.valid = valid;
+            this.hash = hash;
+        }
+
+        /**
+         * @return Dateiname im Levelordner
+         */
+        public String getFile() {
+            return file;
+        }
+
+        /**
+         * @return lesbarer Levelname
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Breite des Levels, 0 falls die Datei nicht lesbar ist
+         */
+        public int getWidth() {
+            return width;
+        }
+
+        /**
+         * @return Hoehe des Levels, 0 falls die Datei nicht lesbar ist
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * @return Anzahl der Dots
+         */
+        public int getDots() {
+            return dots;
+        }
+
+        /**
+         * @return Anzahl der Pacman-Spawner
+         */
+        public int getPacmanSpawns() {
+            return pacmanSpawns;
+        }
+
+        /**
+         * @return Anzahl der Geister-Spawner
+         */
+        public int getGhostSpawns() {
+            return ghostSpawns;
+        }
+
+        /**
+         * @return true <-> der Level ist lesbar und besteht {@link Level#validate()}
+         */
+        public boolean isValid() {
+            return valid;
+        }
+
+        /**
+         * @return {@link Level#contentHash()}, 0 falls die Datei nicht lesbar ist
+         */
+        public long getHash() {
+            return hash;
+        }
+    }
+
+    /** Levelordner */
+    private final Path folder;
+    /** Indexdatei */
+    private final Path indexFile;
+    /** Eintraege nach Dateiname sortiert */
+    private Entry[] entries = new Entry[0];
+    /** Eintraege nach Dateiname */
+    private Map<String, Entry> byFile = new HashMap<>();
+    /**
+     * zuletzt verwendete bzw. im Hintergrund ladende Level nach Dateiname,
+     * der am laengsten unbenutzte faellt heraus. Zugriff nur synchronisiert
+     * auf die Map selbst.
+     */
+    private final Map<String, Future<Level>> loaded = new LinkedHashMap<String, Future<Level>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Future<Level>> eldest) {
+            return size() > MAX_LOADED;
+        }
+    };
+    /** Hintergrund-Thread zum Vorladen, wird bei Bedarf angelegt */
+    private ExecutorService prefetcher;
+
+    /**
+     * Konstruktor.
+     * Der Katalog ist leer bis zum ersten {@link #refresh()}.
+     *
+     * @param folder Levelordner
+     * @param indexFile Indexdatei, wird bei Bedarf angelegt
+     */
+    public LevelCatalog(Path folder, Path indexFile) {
+        if (folder == null || indexFile == null)
+            throw new IllegalArgumentException("Ordner und Indexdatei muessen angegeben werden!");
+        this.folder = folder;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * @return gemeinsamer Katalog fuer {@link Consts#LEVEL_FOLDER}, bereits eingelesen
+     */
+    public static synchronized LevelCatalog getShared() {
+        if (shared == null) {
+            shared = new LevelCatalog(Paths.get(Consts.LEVEL_FOLDER), Paths.get(Consts.LEVEL_INDEX_FILE));
+            shared.refresh();
+        }
+        return shared;
+    }
+
+    /**
+     * Gleicht den Katalog mit dem Levelordner ab. Nur neue oder geaenderte
+     * Dateien werden eingelesen, der Index wird nur bei Aenderungen
+     * geschrieben.
+     */
+    public synchronized void refresh() {
+        Map<String, Entry> old = byFile.isEmpty() ? readIndex() : byFile;
+        String[] files = new File(folder.toString()).list();
+        if (files == null) files = new String[0];
+        Arrays.sort(files);
+
+        boolean changed = files.length != old.size();
+        List<Entry> list = new ArrayList<>(files.length);
+        Map<String, Entry> map = new HashMap<>();
+        for (String file : files) {
+            Path path = folder.resolve(file);
+            if (!Files.isRegularFile(path)) continue;
+            long modified = path.toFile().lastModified();
+            long length = path.toFile().length();
+            Entry e = old.get(file);
+            if (e == null || e.modified != modified || e.length != length) {
+                e = index(file, modified, length);
+                // geaenderte datei nicht mehr aus dem alten stand laden
+                synchronized (loaded) {
+                    loaded.remove(file);
+                }
+                changed = true;
+            }
+            list.add(e);
+            map.put(file, e);
+        }
+        entries = list.toArray(new Entry[0]);
+        byFile = map;
+        if (changed)
+            writeIndex();
+    }
+
+    /**
+     * @return alle Eintraege, nach Dateiname sortiert
+     */
+    public synchronized Entry[] getEntries() {
+        return entries.clone();
+    }
+
+    /**
+     * @return alle Dateinamen, nach Dateiname sortiert
+     */
+    public synchronized String[] getFiles() {
+        String[] files = new String[entries.length];
+        for (int i = 0; i < files.length; i++)
+            files[i] = entries[i].file;
+        return files;
+    }
+
+    /**
+     * @param file Dateiname im Levelordner
+     * @return Eintrag der Datei, null falls sie nicht im Katalog ist
+     */
+    public synchronized Entry getEntry(String file) {
+        return byFile.get(file);
+    }
+
+    /**
+     * @param hash {@link Level#contentHash()} des gesuchten Levels
+     * @return Dateiname eines Levels mit diesem Inhalt, null falls keiner im Katalog ist
+     */
+    public synchronized String findByHash(long hash) {
+        for (Entry entry : entries)
+            if (entry.valid && entry.hash == hash)
+                return entry.file;
+        return null;
+    }
+
+    /**
+     * Laedt den Level, falls noetig im aufrufenden Thread. Ein noch
+     * geladener bzw. vorgeladener Level wird wiederverwendet.
+     *
+     * @param file Dateiname im Levelordner
+     * @return der Level
+     * @throws Exception falls die Datei nicht gelesen werden kann
+     */
+    public Level load(String file) throws Exception {
+        Future<Level> f;
+        synchronized (loaded) {
+            f = loaded.get(file);
+        }
+        if (f == null) {
+            Level level = LevelParser.fromFile(folder.resolve(file).toString());
+            synchronized (loaded) {
+                loaded.putIfAbsent(file, CompletableFuture.completedFuture(level));
+            }
+            return level;
+        }
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            // beim naechsten versuch erneut laden
+            synchronized (loaded) {
+                loaded.remove(file, f);
+            }
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Laedt den Level im Hintergrund, sodass ein spaeteres {@link #load(String)}
+     * nicht warten muss.
+     *
+     * @param file Dateiname im Levelordner
+     */
+    public void prefetch(String file) {
+        synchronized (this) {
+            if (prefetcher == null) {
+                prefetcher = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "LevelCatalog-Prefetch");
+                    // das vorladen soll das beenden des spiels nicht verhindern
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+        }
+        synchronized (loaded) {
+            loaded.computeIfAbsent(file, f -> prefetcher.submit(() -> LevelParser.fromFile(folder.resolve(f).toString())));
+        }
+    }
+
+    /**
+     * Liest eine Datei ein und erzeugt ihren Eintrag.
+     */
+    private Entry index(String file, long modified, long length) {
+        String name = LevelParser.getLevelName(file);
+        Level level;
+        try {
+            level = LevelParser.fromFile(folder.resolve(file).toString());
+        } catch (Exception e) {
+            return new Entry(file, modified, length, name, 0, 0, 0, 0, 0, false, 0);
+        }
+        boolean valid = true;
+        try {
+            level.validate();
+        } catch (Exception e) {
+            valid = false;
+        }
+        int dots = 0;
+        for (byte c : level.getCells())
+            if (c == MapModule.DOT.ordinal()) dots++;
+        return new Entry(file, modified, length, name, level.getWidth(), level.getHeight(), dots,
+                level.getPacmanSpawns().length, level.getGhostSpawns().length, valid, level.contentHash());
+    }
+
+    /**
+     * @return Eintraege aus der Indexdatei, leer falls diese fehlt oder unlesbar ist
+     */
+    private Map<String, Entry> readIndex() {
+        Map<String, Entry> map = new HashMap<>();
+        if (!Files.isRegularFile(indexFile)) return map;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return map;
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                Entry e = new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readUTF(), in.readInt(), in.readInt(),
+                        in.readInt(), in.readInt(), in.readInt(), in.readBoolean(), in.readLong());
+                map.put(e.file, e);
+            }
+        } catch (IOException e) {
+            // index wird neu aufgebaut
+            map.clear();
+        }
+        return map;
+    }
+
+    /**
+     * Schreibt den Index ueber eine temporaere Datei, die dann umbenannt
+     * wird. Ohne Index funktioniert der Katalog weiterhin, nur langsamer.
+     */
+    private void writeIndex() {
+        try {
+            Path dir = indexFile.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, "index", ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(entries.length);
+                    for (Entry e : entries) {
+                        out.writeUTF(e.file);
+                        out.writeLong(e.modified);
+                        out.writeLong(e.length);
+                        out.writeUTF(e.name);
+                        out.writeInt(e.width);
+                        out.writeInt(e.height);
+                        out.writeInt(e.dots);
+                        out.writeInt(e.pacmanSpawns);
+                        out.writeInt(e.ghostSpawns);
+                        out.writeBoolean(e.valid);
+                        out.writeLong(e.hash);
+                    }
+                }
+                try {
+                    Files.move(tmp, indexFile, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            System.err.println("Levelindex " + indexFile + " konnte nicht geschrieben werden: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package tud.ai1.pacman.model.level;
+
+import tud.ai1.pacman.util.FileOperations;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Binaeres Levelformat. Aufbau (big endian):
+ * <pre>
+ * int    Kennung "PLVB"
+ * short  Version
+ * byte   Kodierung des Rasters (0 = gepackt, 1 = Lauflaengen)
+ * byte   reserviert (0)
+ * int    Breite, int Hoehe
+ * int    Anzahl Pacman-Spawner, je Spawner int x, int y
+ * int    Anzahl Geister-Spawner, je Spawner int x, int y
+ * int    Laenge des Rasters in Bytes
+ * ...    Raster
+ * int    CRC32 ueber alle vorherigen Bytes
+ * </pre>
+ * Gepackt: zwei Zellen je Byte, die erste im oberen Halbbyte.
+ * Lauflaengen: je Lauf ein Byte Modul und die Laenge als vorzeichenlose
+ * Zahl in 7-Bit-Gruppen (niedrigste zuerst), Laeufe gehen ueber Zeilenenden.
+ * Der Schreiber waehlt die kuerzere Kodierung.
+ *
+ * Die Spawner stehen in der Reihenfolge des Levels in der Datei, eine
+ * Umwandlung von Text nach binaer und zurueck ist also verlustfrei.
+ *
+ * Aufruf zur Umwandlung: LevelFile eingabe ausgabe, die Richtung ergibt
+ * sich aus den Dateiendungen (.txt bzw. {@link #EXTENSION}).
+ *
+ * @author Thanh Son Bui
+ */
+public class LevelFile {
+    /** Dateiendung binaerer Level */
+    public static final String EXTENSION = ".lvb";
+
+    /** Kennung am Dateianfang ("PLVB") */
+    private static final int MAGIC = 0x504C5642;
+    /** Version des Dateiformats */
+    private static final short VERSION = 1;
+    /** zwei Zellen je Byte */
+    private static final byte PACKED = 0;
+    /** Lauflaengenkodierung */
+    private static final byte RLE = 1;
+    /** Anzahl der Module, muss in ein Halbbyte passen */
+    private static final int MODULE_COUNT = MapModule.values().length;
+
+    /**
+     * Wandelt einen Level zwischen Text- und Binaerformat um.
+     *
+     * @param args Eingabe- und Ausgabedatei
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Aufruf: LevelFile eingabe ausgabe (.txt <-> " + EXTENSION + ")");
+            return;
+        }
+        Level level = LevelParser.fromFile(args[0]);
+        if (args[1].endsWith(EXTENSION))
+            write(level, Paths.get(args[1]));
+        else if (!FileOperations.writeFile(args[1], level.toString()))
+            throw new IOException(args[1] + " konnte nicht geschrieben werden");
+    }
+
+    /**
+     * Blendet die Datei per {@link FileChannel#map} ein und liest den Level
+     * direkt aus dem eingeblendeten Speicher.
+     *
+     * @param file Pfad der Datei
+     * @return der Level, benannt nach der Datei
+     * @throws IOException falls die Datei nicht gelesen werden kann oder beschaedigt ist
+     */
+    public static Level read(Path file) throws IOException {
+        if (file == null)
+            throw new IllegalArgumentException("Es wurde keine Datei uebergeben!");
+        Level level;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            level = read(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+        level.setName(LevelParser.getLevelName(file.toString()));
+        return level;
+    }
+
+    /**
+     * Liest einen Level aus den verbleibenden Bytes des Puffers. Danach steht
+     * die Position des Puffers hinter dem Level.
+     *
+     * @param buffer Puffer im Binaerformat
+     * @return der Level
+     * @throws IOException falls die Daten beschaedigt sind
+     */
+    public static Level read(ByteBuffer buffer) throws IOException {
+        if (buffer == null)
+            throw new IllegalArgumentException("Es wurde kein Puffer uebergeben!");
+        int start = buffer.position();
+        try {
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Keine binaere Leveldatei");
+            short version = buffer.getShort();
+            if (version != VERSION)
+                throw new IOException("Unbekannte Version " + version);
+            byte encoding = buffer.get();
+            buffer.get();
+            int width = buffer.getInt(), height = buffer.getInt();
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE)
+                throw new IOException("Ungueltige Abmessungen " + width + "x" + height);
+            Point[] pacmanSpawns = readSpawns(buffer, width, height);
+            Point[] ghostSpawns = readSpawns(buffer, width, height);
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining() - 4)
+                throw new IOException("Das Raster ist unvollstaendig");
+
+            // pruefsumme vor dem dekodieren pruefen
+            int end = buffer.position() + length;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(start).limit(end));
+            if ((int) crc.getValue() != buffer.getInt(end))
+                throw new IOException("Die Pruefsumme stimmt nicht");
+
+            byte[] cells = new byte[width * height];
+            if (encoding == PACKED)
+                unpack(buffer, length, cells);
+            else if (encoding == RLE)
+                decodeRuns(buffer, length, cells);
+            else
+                throw new IOException("Unbekannte Kodierung " + encoding);
+            buffer.position(end + 4);
+            return new Level("Unbenannter Level", width, height, cells, pacmanSpawns, ghostSpawns);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Die Leveldatei ist unvollstaendig", e);
+        }
+    }
+
+    /**
+     * Schreibt den Level im Binaerformat.
+     *
+     * @param level der Level
+     * @param file Pfad der Datei, wird ueberschrieben
+     * @throws IOException falls die Datei nicht geschrieben werden kann
+     */
+    public static void write(Level level, Path file) throws IOException {
+        if (file == null)
+            throw new IllegalArgumentException("Es wurde keine Datei uebergeben!");
+        ByteBuffer buffer = encode(level);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                ch.write(buffer);
+        }
+    }
+
+    /**
+     * @param level der Level
+     * @return der Level im Binaerformat, Position 0 bis Limit
+     */
+    public static ByteBuffer encode(Level level) {
+        if (level == null)
+            throw new IllegalArgumentException("Es wurde kein Level uebergeben!");
+        byte[] cells = level.getCells();
+        Point[] pacmanSpawns = level.getPacmanSpawns();
+        Point[] ghostSpawns = level.getGhostSpawns();
+
+        // kuerzere kodierung waehlen
+        long packedLength = (cells.length + 1) / 2;
+        long runLength = runLength(cells);
+        boolean rle = runLength < packedLength;
+        long length = rle ? runLength : packedLength;
+        long total = 4 + 2 + 1 + 1 + 4 + 4 + 4 + 8L * pacmanSpawns.length + 4 + 8L * ghostSpawns.length + 4 + length + 4;
+        if (total > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Der Level ist zu gross fuer das Binaerformat!");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) total);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put(rle ? RLE : PACKED);
+        buffer.put((byte) 0);
+        buffer.putInt(level.getWidth());
+        buffer.putInt(level.getHeight());
+        writeSpawns(buffer, pacmanSpawns);
+        writeSpawns(buffer, ghostSpawns);
+        buffer.putInt((int) length);
+        if (rle)
+            encodeRuns(buffer, cells);
+        else
+            pack(buffer, cells);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @param buffer Zielpuffer
+     * @param spawns zu schreibende Spawner
+     */
+    private static void writeSpawns(ByteBuffer buffer, Point[] spawns) {
+        buffer.putInt(spawns.length);
+        for (Point p : spawns) {
+            buffer.putInt(p.x);
+            buffer.putInt(p.y);
+        }
+    }
+
+    /**
+     * @param buffer Quellpuffer
+     * @param width Breite des Levels
+     * @param height Hoehe des Levels
+     * @return gelesene Spawner
+     */
+    private static Point[] readSpawns(ByteBuffer buffer, int width, int height) throws IOException {
+        int n = buffer.getInt();
+        if (n < 0 || n > buffer.remaining() / 8)
+            throw new IOException("Ungueltige Anzahl an Spawnern: " + n);
+        Point[] spawns = new Point[n];
+        for (int i = 0; i < n; i++) {
+            int x = buffer.getInt(), y = buffer.getInt();
+            if (x < 0 || y < 0 || x >= width || y >= height)
+                throw new IOException("Spawner ausserhalb des Levels: " + x + "," + y);
+            spawns[i] = new Point(x, y);
+        }
+        return spawns;
+    }
+
+    /**
+     * @param buffer Zielpuffer
+     * @param cells Raster
+     */
+    private static void pack(ByteBuffer buffer, byte[] cells) {
+        int i = 0;
+        for (; i + 1 < cells.length; i += 2)
+            buffer.put((byte) (cells[i] << 4 | cells[i + 1]));
+        if (i < cells.length)
+            buffer.put((byte) (cells[i] << 4));
+    }
+
+    /**
+     * @param buffer Quellpuffer
+     * @param length Laenge des Rasters in Bytes
+     * @param cells zu fuellendes Raster
+     */
+    private static void unpack(ByteBuffer buffer, int length, byte[] cells) throws IOException {
+        if (length != (cells.length + 1) / 2)
+            throw new IOException("Das Raster passt nicht zu den Levelabmessungen");
+        for (int i = 0; i < cells.length; i += 2) {
+            int b = buffer.get() & 0xFF;
+            cells[i] = checkModule(b >>> 4);
+            if (i + 1 < cells.length)
+                cells[i + 1] = checkModule(b & 0x0F);
+        }
+    }
+
+    /**
+     * @param cells Raster
+     * @return Laenge der Lauflaengenkodierung in Bytes
+     */
+    private static long runLength(byte[] cells) {
+        long length = 0;
+        for (int i = 0; i < cells.length; ) {
+            int j = i + 1;
+            while (j < cells.length && cells[j] == cells[i]) j++;
+            length += 1 + varIntLength(j - i);
+            i = j;
+        }
+        return length;
+    }
+
+    /**
+     * @param buffer Zielpuffer
+     * @param cells Raster
+     */
+    private static void encodeRuns(ByteBuffer buffer, byte[] cells) {
+        for (int i = 0; i < cells.length; ) {
+            int j = i + 1;
+            while (j < cells.length && cells[j] == cells[i]) j++;
+            buffer.put(cells[i]);
+            int run = j - i;
+            while (run >= 0x80) {
+                buffer.put((byte) (run & 0x7F | 0x80));
+                run >>>= 7;
+            }
+            buffer.put((byte) run);
+            i = j;
+        }
+    }
+
+    /**
+     * @param buffer Quellpuffer
+     * @param length Laenge des Rasters in Bytes
+     * @param cells zu fuellendes Raster
+     */
+    private static void decodeRuns(ByteBuffer buffer, int length, byte[] cells) throws IOException {
+        int end = buffer.position() + length;
+        int i = 0;
+        while (buffer.position() < end) {
+            byte m = checkModule(buffer.get());
+            int run = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (shift > 28 || buffer.position() >= end)
+                    throw new IOException("Ungueltige Lauflaenge");
+                int b = buffer.get();
+                run |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+            }
+            if (run <= 0 || run > cells.length - i)
+                throw new IOException("Die Laeufe passen nicht zu den Levelabmessungen");
+            Arrays.fill(cells, i, i + run, m);
+            i += run;
+        }
+        if (i != cells.length)
+            throw new IOException("Die Laeufe passen nicht zu den Levelabmessungen");
+    }
+
+    /**
+     * @param n eine Zahl
+     * @return Anzahl der 7-Bit-Gruppen der Zahl
+     */
+    private static int varIntLength(int n) {
+        int length = 1;
+        while (n >= 0x80) {
+            n >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * @param m gelesener Grid-Wert
+     * @return der Grid-Wert
+     * @throws IOException falls der Wert kein Modul ist
+     */
+    private static byte checkModule(int m) throws IOException {
+        if (m < 0 || m >= MODULE_COUNT)
+            throw new IOException("Unbekanntes Modul im Raster: " + m);
+        return (byte) m;
+    }
+}
@@ -2,7 +2,7 @@ package tud.ai1.pacman.model.level;
 
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -17,8 +17,41 @@ import tud.ai1.pacman.util.Consts;
  * @author Kurt Cieslinski
  */
 public class LevelGenerator {
-    /** Ein Random-Generator */
+    /**
+     * Version des Generators. Muss erhoeht werden, sobald derselbe Seed einen
+     * anderen Level ergibt, damit der {@link LevelCache} alte Dateien nicht
+     * mehr verwendet.
+     */
+    public static final int VERSION = 1;
+
+    /** alle Module, Index ist der im Grid gespeicherte Wert */
+    private static final MapModule[] MODULES = MapModule.values();
+    /** Grid-Wert einer Wand */
+    private static final byte WALL = (byte) MapModule.WALL.ordinal();
+    /** Grid-Wert eines Dots */
+    private static final byte DOT = (byte) MapModule.DOT.ordinal();
+    /** Wegstrecke von Zellen, die von keinem Pacman-Spawner erreichbar sind */
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    /** Zufallsstrom fuer die Abmessungen */
+    private static final int STREAM_SIZE = 0;
+    /** Zufallsstrom fuer das Labyrinth */
+    private static final int STREAM_LAYOUT = 1;
+    /** Zufallsstrom fuer die Spawner */
+    private static final int STREAM_SPAWNS = 2;
+    /** Zufallsstrom fuer die Items */
+    private static final int STREAM_ITEMS = 3;
+    /** Zufallsstrom fuer den Random-Generator des fertigen Levels */
+    private static final int STREAM_LEVEL = 4;
+
+    /** liefert die Seeds der einzelnen Level */
     private final Random rnd;
+    /** Random-Generator fuer das Labyrinth */
+    private final Random layoutRnd = new Random();
+    /** Random-Generator fuer die Spawner */
+    private final Random spawnRnd = new Random();
+    /** Random-Generator fuer die Items */
+    private final Random itemRnd = new Random();
 
     /**
      * WARNUNG
@@ -29,20 +62,77 @@ public class LevelGenerator {
     private int width, height;
     /** Die aktuelle Anzahl von Dots */
     private int free;
-    /** aktueller Level-Grid */
-    private Field[][] map;
+    /** aktueller Level-Grid, Ordinalzahl des {@link MapModule} je Zelle (y * width + x) */
+    private byte[] map;
     /** die aktuellen Pacman-Spawner */
     private List<Point> pacmanSpawns;
     /** die aktuellen Geister-Spawner */
     private List<Point> ghostSpawns;
+    /** alle Dot-Zellen zum zufaelligen Ziehen, wird nach der Landschaft aufgebaut */
+    private FreeCellIndex dotCells;
+    /** Wegstrecke jeder Zelle zum naechsten Pacman-Spawner */
+    private int[] spawnDistance;
+    /** Warteschlange fuer die Aktualisierung von {@link #spawnDistance} */
+    private int[] spawnQueue;
 
     /**
      * Konstruktor.
+     * Jeder Level wird aus einem zufaelligen Seed generiert.
      */
     public LevelGenerator() {
         rnd = new Random();
     }
 
+    /**
+     * Konstruktor.
+     * Die Seeds der nacheinander generierten Level ergeben sich aus seed,
+     * die Folge der Level ist also reproduzierbar.
+     *
+     * @param seed Seed fuer die Folge der Level
+     */
+    public LevelGenerator(long seed) {
+        rnd = new Random(seed);
+    }
+
+    /**
+     * Leitet aus dem Seed eines Levels den Seed eines seiner Zufallsstroeme
+     * ab (SplitMix64). So beeinflusst z. B. die Anzahl der Items nicht das
+     * Labyrinth.
+     *
+     * @param seed Seed des Levels
+     * @param stream Nummer des Zufallsstroms
+     * @return Seed des Zufallsstroms
+     */
+    static long streamSeed(long seed, int stream) {
+        long z = seed + (stream + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @param seed Seed des Levels
+     * @return Seed fuer den Random-Generator des fertigen Levels
+     */
+    static long levelSeed(long seed) {
+        return streamSeed(seed, STREAM_LEVEL);
+    }
+
+    /**
+     * Die Abmessungen werden zufaellig innerhalb der Grenzen aus {@link Consts}
+     * gewaehlt und haengen nur vom Seed ab.
+     *
+     * @param seed Seed des Levels
+     * @return {Breite, Hoehe} des Levels
+     */
+    static int[] randomSize(long seed) {
+        Random r = new Random(streamSeed(seed, STREAM_SIZE));
+        // nur ungerade zahlen
+        int width = rndInt(r, Consts.WIDTH_MIN, Consts.WIDTH_MAX) * 2 + 1;
+        int height = rndInt(r, Consts.HEIGHT_MIN, Consts.HEIGHT_MAX) * 2 + 1;
+        return new int[]{width, height};
+    }
+
     /**
      * Aktualisiert einen Level-Baustein.
      *
@@ -51,7 +141,14 @@ public class LevelGenerator {
      * @param m neues Modul
      */
     private void setMapAt(int x, int y, MapModule m) {
-        map[y][x] = new Field(new Coordinate(x,y),m);
+        int c = y * width + x;
+        map[c] = (byte) m.ordinal();
+        if (dotCells != null) {
+            if (m == MapModule.DOT)
+                dotCells.add(c);
+            else
+                dotCells.remove(c);
+        }
     }
 
     /**
@@ -59,50 +156,103 @@ public class LevelGenerator {
      * @param y Y-Koordinate
      * @return Level-Modul an der gewaehlten Position
      */
-    private Field getMapAt(int x, int y) {
+    private MapModule getMapAt(int x, int y) {
         while (x < width) x+=width;
         while (y < height) y+=height;
-        return map[y%height][x%width];
+        return MODULES[map[(y % height) * width + x % width]];
     }
 
     /**
+     * @param r zu verwendender Random-Generator
      * @param min minimale Zahl
      * @param max maximale Zahl
      * @return eine Zufahlszahl zwischen min und max
      */
-    private int rndInt(int min, int max) {
+    private static int rndInt(Random r, int min, int max) {
         if (min >= max) return min;
-        return rnd.nextInt(max - min) + min;
+        return r.nextInt(max - min) + min;
     }
 
     /**
-     *
+     * Die Abmessungen werden zufaellig innerhalb der Grenzen aus {@link Consts} gewaehlt.
      *
      * @return einen zufaellig generierten Level
      */
     public Level generateLevel() {
-        // levelabmessungen zufaellig bestimmen (nur ungerade zahlen)
-        width = rndInt(Consts.WIDTH_MIN, Consts.WIDTH_MAX) * 2 + 1;
-        height = rndInt(Consts.HEIGHT_MIN, Consts.HEIGHT_MAX) * 2 + 1;
+        return generateLevel(rnd.nextLong());
+    }
+
+    /**
+     * @param width Breite des Levels, ungerade und mindestens 5
+     * @param height Hoehe des Levels, ungerade und mindestens 5
+     * @return einen zufaellig generierten Level mit den angegebenen Abmessungen
+     */
+    public Level generateLevel(int width, int height) {
+        return generateLevel(rnd.nextLong(), width, height);
+    }
+
+    /**
+     * Die Abmessungen werden zufaellig innerhalb der Grenzen aus {@link Consts} gewaehlt.
+     *
+     * @param seed Seed des Levels
+     * @return den Level zum Seed, bei gleichem Seed immer derselbe
+     */
+    public Level generateLevel(long seed) {
+        int[] size = randomSize(seed);
+        return generate(seed, size[0], size[1]);
+    }
+
+    /**
+     * @param seed Seed des Levels
+     * @param width Breite des Levels, ungerade und mindestens 5
+     * @param height Hoehe des Levels, ungerade und mindestens 5
+     * @return den Level zu Seed und Abmessungen, bei gleichen Werten immer derselbe
+     */
+    public Level generateLevel(long seed, int width, int height) {
+        if (width < 5 || height < 5 || width % 2 == 0 || height % 2 == 0)
+            throw new IllegalArgumentException("Breite und Hoehe muessen ungerade und mindestens 5 sein!");
+        if ((long) width * height > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Der Level ist zu gross!");
+        return generate(seed, width, height);
+    }
+
+    /**
+     * @param seed Seed des Levels
+     * @param width Breite des Levels
+     * @param height Hoehe des Levels
+     * @return einen zufaellig generierten Level mit den angegebenen Abmessungen
+     */
+    private Level generate(long seed, int width, int height) {
+        this.width = width;
+        this.height = height;
         free = 0;
+        layoutRnd.setSeed(streamSeed(seed, STREAM_LAYOUT));
+        spawnRnd.setSeed(streamSeed(seed, STREAM_SPAWNS));
+        itemRnd.setSeed(streamSeed(seed, STREAM_ITEMS));
 
         // level mit waenden initialisieren
-        map = new Field[height][width];
-        for (int y = 0; y < height; y++)
-            for (int x = 0; x < width; x++)
-                setMapAt(x, y, MapModule.WALL);
+        map = new byte[height * width];
+        Arrays.fill(map, WALL);
 
         pacmanSpawns = new ArrayList<>();
         ghostSpawns = new ArrayList<>();
+        dotCells = null;
+        spawnDistance = null;
 
         // landschaft generieren
         genMaze();
         removeDeadEnds();
-        for (int i = 0; i < rndInt(1, free / 15); i++)
+        for (int i = 0; i < rndInt(layoutRnd, 1, free / 15); i++)
             genOpenBorder();
 
+        // ab hier werden die dots fuer das zufaellige ziehen mitgefuehrt
+        dotCells = new FreeCellIndex(width * height);
+        for (int c = 0; c < map.length; c++)
+            if (map[c] == DOT)
+                dotCells.add(c);
+
         // spawner platzieren
-        for (int i = 0; i < rndInt(1, free / 18); i++)
+        for (int i = 0; i < rndInt(spawnRnd, 1, free / 18); i++)
             genPacmanSpawner();
         for (int i = 0; i < 4; i++)
             genGhostSpawner();
@@ -110,110 +260,98 @@ public class LevelGenerator {
         // items platzieren
         for (int i = 0; i < free / 15; i++)
             genRandomModule(MapModule.POWERUP);
-        for (int i = 0; i < rndInt(1, free / 18); i++)
+        for (int i = 0; i < rndInt(itemRnd, 1, free / 18); i++)
             genRandomModule(MapModule.SPEEDUP);
-        if (rnd.nextInt(3) == 0)
-            for (int i = 0; i < rndInt(1, free / 20); i++)
+        if (itemRnd.nextInt(3) == 0)
+            for (int i = 0; i < rndInt(itemRnd, 1, free / 20); i++)
                 genRandomModule(MapModule.TELEPORT);
 
-        return new Level("Random Level", map, pacmanSpawns.toArray(new Point[0]), ghostSpawns.toArray(new Point[0]));
+        Level level = new Level("Random Level", width, height, map, pacmanSpawns.toArray(new Point[0]), ghostSpawns.toArray(new Point[0]));
+        level.reset(levelSeed(seed));
+        return level;
     }
 
     /**
-     * Rekursions-Initialisierung.
+     * Generiert das Labyrinth per Tiefensuche mit Backtracking.
      * Starte mit einem zufaelligen Punkt.
+     * Statt Rekursion wird ein eigener Stapel verwendet, die Groesse des
+     * Levels ist also nicht durch den Aufrufstapel begrenzt. Die Zellen
+     * werden in derselben Reihenfolge wie bei der frueheren rekursiven
+     * Variante (genMaze(p2); genMaze(p);) bearbeitet.
      */
     private void genMaze() {
-        genMaze(new Point(rnd.nextInt((width - 1) / 2) * 2 + 1, rnd.nextInt((height - 1) / 2) * 2 + 1));
-    }
-
+        int startX = layoutRnd.nextInt((width - 1) / 2) * 2 + 1;
+        int startY = layoutRnd.nextInt((height - 1) / 2) * 2 + 1;
+
+        int[] stack = new int[64];
+        int size = 0;
+        stack[size++] = startY * width + startX;
+        int[] neighbours = new int[4];
+        while (size > 0) {
+            int p = stack[--size];
+            int x = p % width, y = p / width;
+            // als frei markieren, falls noch nicht getan
+            if (map[p] != DOT) {
+                map[p] = DOT;
+                free++;
+            }
 
-    /**
-     * @param p der Startpunkt der Pfadgeneration
-     */
-    private void genMaze(Point p) {
-        // als frei markieren, falls noch nicht getan
-        if (!getMapAt(p.x, p.y).isDot()) {
-            setMapAt(p.x, p.y, MapModule.DOT);
+            // alle punkte mit gerader entfernung 2, die noch nicht angebunden
+            // sind und als ziel in frage kommen
+            int count = 0;
+            if (getMapAt(x - 1, y) != MapModule.DOT && isTarget(x - 2, y))
+                neighbours[count++] = p - 2;
+            if (getMapAt(x + 1, y) != MapModule.DOT && isTarget(x + 2, y))
+                neighbours[count++] = p + 2;
+            if (getMapAt(x, y - 1) != MapModule.DOT && isTarget(x, y - 2))
+                neighbours[count++] = p - 2 * width;
+            if (getMapAt(x, y + 1) != MapModule.DOT && isTarget(x, y + 2))
+                neighbours[count++] = p + 2 * width;
+            // sackgasse: zurueck zum vorherigen punkt
+            if (count == 0) continue;
+
+            // zufaelligen nachbarn waehlen und die wand dazwischen oeffnen
+            int p2 = neighbours[layoutRnd.nextInt(count)];
+            map[(p + p2) / 2] = DOT;
             free++;
-        }
 
-        List<Point> neighbours = get2Neighbours(p);
-        // rekursionsanker
-        if (neighbours.size() <= 0) return;
-
-        // nachbarn aufsuchen
-        int i = rnd.nextInt(neighbours.size());
-        Point p2 = neighbours.get(i);
-
-        setMapAt((p2.x + p.x) / 2, (p2.y + p.y) / 2, MapModule.DOT);
-        free++;
-
-        genMaze(p2);
-        genMaze(p);
-        /*while (neighbours.size() > 0) {
-            // zufaelligen nachbar waehlen
-            i = rnd.nextInt(neighbours.size());
-            Point p2 = neighbours.get(i);
-
-            // modul zwischen p und p2 oeffnen und nachbar bearbeiten
-            setMapAt((p2.x + p.x) / 2, (p2.y + p.y) / 2, MapModule.DOT);
-            genMaze(p2);
-            neighbours = getNeighbours(p);
-        }*/
-    }
-
-    /**
-     * Gibt alle Punkte mit gerader Entfernung 2 zum Ursprungspunkt zurueck.
-     * Herausgefiltert werden Punkte, die am Rand liegen
-     * oder mehr als einen Dot als direkten Nachbarn besitzen.
-     *
-     * @param p Ursprungspunkt
-     */
-    private List<Point> get2Neighbours(Point p) {
-        List<Point> neighbours = new LinkedList<>();
-
-        if (!getMapAt(p.x - 1, p.y).isDot())
-            neighbours.add(new Point(p.x - 2, p.y));
-        if (!getMapAt(p.x + 1, p.y).isDot())
-            neighbours.add(new Point(p.x + 2, p.y));
-        if (!getMapAt(p.x, p.y - 1).isDot())
-            neighbours.add(new Point(p.x, p.y - 2));
-        if (!getMapAt(p.x, p.y + 1).isDot())
-            neighbours.add(new Point(p.x, p.y + 2));
-
-        neighbours.removeIf(point -> !isTarget(point));
-
-        return neighbours;
+            // erst den nachbarn bearbeiten, danach erneut diesen punkt
+            if (size + 2 > stack.length)
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[size++] = p;
+            stack[size++] = p2;
+        }
     }
 
     /**
-     * @param p ein Punkt
+     * @param x X-Koordinate
+     * @param y Y-Koordinate
      * @return true <-> nicht am Rand und weniger als einem Dot als Nachbar
      */
-    private boolean isTarget(Point p) {
+    private boolean isTarget(int x, int y) {
         // Punkte direkt am Rand werden hier noch nicht betrachtet
-        if (p.x < 1 || p.x >= (width - 1) || p.y < 1 || p.y >= (height - 1)) return false;
+        if (x < 1 || x >= (width - 1) || y < 1 || y >= (height - 1)) return false;
 
         // Punkte mit mehr als einem Dot als direkte Nachbarn werden nicht betrachtet
         int sum = 0;
-        for (int y = (p.y - 1); y <= (p.y + 1); y++)
-            for (int x = (p.x - 1); x <= (p.x + 1); x++)
-                if (getMapAt(x, y).isDot()) sum++;
+        for (int y2 = (y - 1); y2 <= (y + 1); y2++)
+            for (int x2 = (x - 1); x2 <= (x + 1); x2++)
+                if (map[y2 * width + x2] == DOT) sum++;
         return sum <= 1;
     }
 
     private void removeDeadEnds() {
-        List<Point> walls;
-        int i;
+        int[] walls = new int[4];
+        int count, i;
         for (int y = 2; y < (height - 2); y++) {
             for (int x = 2; x < (width - 2); x++) {
-                walls = getSurroundingWalls(x, y);
-                while (!getMapAt(x, y).isWall() && walls.size() > 2) {
-                    //walls = getSurroundingWalls(x, y);
-                    i = rnd.nextInt(walls.size());
-                    setMapAt(walls.get(i).x, walls.get(i).y, MapModule.DOT);
-                    walls.remove(i);
+                count = getSurroundingWalls(x, y, walls);
+                while (map[y * width + x] != WALL && count > 2) {
+                    i = layoutRnd.nextInt(count);
+                    map[walls[i]] = DOT;
+                    // gewaehlte wand entfernen, reihenfolge beibehalten
+                    System.arraycopy(walls, i + 1, walls, i, count - i - 1);
+                    count--;
                     free++;
                 }
             }
@@ -221,31 +359,33 @@ public class LevelGenerator {
     }
 
     /**
-     * Gibt alle Koordinaten der umgebenen Waende zurueck, wenn
+     * Ermittelt alle umgebenden Waende, wenn
      * diese NICHT am Rand des Levels liegen.
      *
      * @param x X-Koordinate
      * @param y Y-Koordinate
-     * @return alle Koordinaten der umgebenden Waende
+     * @param walls wird mit den Zellen (y * width + x) der Waende gefuellt
+     * @return Anzahl der umgebenden Waende
      */
-    private List<Point> getSurroundingWalls(int x, int y) {
-        List<Point> walls = new ArrayList<>();
-
-        if (x > 1 && getMapAt(x - 1, y).isWall())
-            walls.add(new Point(x - 1, y));
-        if (x < (width - 2) && getMapAt(x + 1, y).isWall())
-            walls.add(new Point(x + 1, y));
-        if (y > 1 && getMapAt(x, y - 1).isWall())
-            walls.add(new Point(x, y - 1));
-        if (y < (height - 2) && getMapAt(x, y + 1).isWall())
-            walls.add(new Point(x, y + 1));
-
-        return walls;
+    private int getSurroundingWalls(int x, int y, int[] walls) {
+        int count = 0;
+
+        if (x > 1 && getMapAt(x - 1, y) == MapModule.WALL)
+            walls[count++] = y * width + x - 1;
+        if (x < (width - 2) && getMapAt(x + 1, y) == MapModule.WALL)
+            walls[count++] = y * width + x + 1;
+        if (y > 1 && getMapAt(x, y - 1) == MapModule.WALL)
+            walls[count++] = (y - 1) * width + x;
+        if (y < (height - 2) && getMapAt(x, y + 1) == MapModule.WALL)
+            walls[count++] = (y + 1) * width + x;
+
+        return count;
     }
 
     /**
      * Generiert einen zufaelligen Pacman-Spawner.
-     * Dieser muss am weitesten von anderen Pacman-Spawnern entfernt sein.
+     * Dieser muss (auf dem Weg durch den Level) am weitesten von anderen
+     * Pacman-Spawnern entfernt sein.
      */
     private void genPacmanSpawner() {
         // platziert einen pacman spawner
@@ -253,21 +393,22 @@ public class LevelGenerator {
 
         if (pacmanSpawns.size() == 0) {
             // ersten spawner zufaellig platzieren
-            do {
-                p = new Point(rnd.nextInt(width), rnd.nextInt(height));
-            } while (!getMapAt(p.x, p.y).isDot());
+            int c = dotCells.random(spawnRnd);
+            p = new Point(c % width, c / width);
 
         } else p = furthestFromPacSpawn();
 
         if (p != null) {
             pacmanSpawns.add(p);
             setMapAt(p.x, p.y, MapModule.PLAYER_SPAWN);
+            addPacSpawnDistance(p);
         }
     }
 
     /**
      * Generiert einen zufaelligen Geister-Spawner.
-     * Dieser muss am weitesten von Pacman-Spawnern entfernt sein.
+     * Dieser muss (auf dem Weg durch den Level) am weitesten von
+     * Pacman-Spawnern entfernt sein.
      */
     private void genGhostSpawner() {
         // platziert einen geist spawner
@@ -284,65 +425,77 @@ public class LevelGenerator {
      * Diese ist horizontal oder vertikal.
      */
     private void genOpenBorder() {
-        if (rnd.nextInt(2) == 0) {
+        if (layoutRnd.nextInt(2) == 0) {
             // vertikale verbindung
-            int x = rnd.nextInt((width - 1) / 2) * 2 + 1;
+            int x = layoutRnd.nextInt((width - 1) / 2) * 2 + 1;
             setMapAt(x, 0, MapModule.DOT);
             setMapAt(x, height - 1, MapModule.DOT);
         } else {
             // horizontale verbindung
-            int y = rnd.nextInt((height - 1) / 2) * 2 + 1;
+            int y = layoutRnd.nextInt((height - 1) / 2) * 2 + 1;
             setMapAt(0, y, MapModule.DOT);
             setMapAt(width - 1, y, MapModule.DOT);
         }
     }
 
+    /**
+     * Setzt ein Modul auf eine zufaellige Dot-Zelle.
+     *
+     * @param m zu setzendes Modul
+     */
     private void genRandomModule(MapModule m) {
         if (m == null)
             throw new IllegalArgumentException();
 
-        List<Point> targets = new ArrayList<>();
-
-        for (int y = 0; y < height; y++)
-            for (int x = 0; x < width; x++)
-                if (getMapAt(x, y).isDot())
-                    targets.add(new Point(x, y));
-
-        int i = rnd.nextInt(targets.size());
-        setMapAt(targets.get(i).x, targets.get(i).y, m);
+        int c = dotCells.random(itemRnd);
+        setMapAt(c % width, c / width, m);
     }
 
+    /**
+     * @return die Dot-Zelle mit der groessten Wegstrecke zum naechsten
+     *          Pacman-Spawner, bei Gleichstand die erste in zeilenweiser
+     *          Reihenfolge. null, falls es keine erreichbare Dot-Zelle gibt.
+     */
     private Point furthestFromPacSpawn() {
         if (pacmanSpawns.isEmpty()) return null;
 
-        Point p = null;
-        float d = 0;
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                if (getMapAt(x, y).isDot()) {
-                    float temp = getPacSpawnDistance(new Point(x, y));
-                    if (p == null || temp > d) {
-                        p = new Point(x, y);
-                        d = temp;
-                    }
-                }
-            }
-        }
+        int best = -1;
+        for (int i = 0; i < map.length; i++)
+            if (map[i] == DOT && spawnDistance[i] != UNREACHED && (best == -1 || spawnDistance[i] > spawnDistance[best]))
+                best = i;
 
-        return p;
+        return best == -1 ? null : new Point(best % width, best / width);
     }
 
-    // minimaler abstand zu einem pac spawner
-    private float getPacSpawnDistance(Point p) {
-        float d = Float.MAX_VALUE;
-
-        for (Point p2 : pacmanSpawns) {
-            float temp = (p2.x - p.x) * (p2.x - p.x) + (p2.y - p.y) * (p2.y - p.y);
-            d = (float) Math.min(d, Math.sqrt(temp));
+    /**
+     * Aktualisiert die Wegstrecken zum naechsten Pacman-Spawner fuer einen
+     * neuen Spawner. Die Breitensuche laeuft nur ueber Zellen, deren
+     * Wegstrecke sich dadurch verkuerzt, und besucht jede Zelle hoechstens
+     * einmal. Waende sind nicht begehbar, am Rand wird umgebrochen.
+     *
+     * @param p Position des neuen Pacman-Spawners
+     */
+    private void addPacSpawnDistance(Point p) {
+        if (spawnDistance == null || spawnDistance.length != map.length) {
+            spawnDistance = new int[map.length];
+            Arrays.fill(spawnDistance, UNREACHED);
+            spawnQueue = new int[map.length];
+        }
+        int start = p.y * width + p.x;
+        if (spawnDistance[start] == 0) return;
+        spawnDistance[start] = 0;
+        int head = 0, tail = 0;
+        spawnQueue[tail++] = start;
+        while (head < tail) {
+            int c = spawnQueue[head++];
+            int x = c % width, y = c / width;
+            int next = spawnDistance[c] + 1;
+            for (int d = 0; d < 4; d++) {
+                int n = Math.floorMod(y + Level.BRANCH_DY[d], height) * width + Math.floorMod(x + Level.BRANCH_DX[d], width);
+                if (map[n] == WALL || spawnDistance[n] <= next) continue;
+                spawnDistance[n] = next;
+                spawnQueue[tail++] = n;
+            }
         }
-
-        return d;
     }
-
 }
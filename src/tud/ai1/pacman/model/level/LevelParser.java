@@ -4,10 +4,17 @@ import tud.ai1.pacman.exceptions.InvalidLevelCharacterException;
 import tud.ai1.pacman.exceptions.InvalidLevelFormatException;
 import tud.ai1.pacman.exceptions.NoPacmanSpawnPointException;
 import tud.ai1.pacman.util.Consts;
-import tud.ai1.pacman.util.FileOperations;
 
 import java.awt.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -20,17 +27,46 @@ import java.util.List;
  */
 public class LevelParser {
 
+    /** Groesse der Lesepuffer */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Ordinalzahl des {@link MapModule} je Zeichen, -1 fuer ungueltige Zeichen */
+    private static final byte[] DECODE = new byte[256];
+    /** Grid-Wert eines Pacman-Spawners */
+    private static final byte PLAYER_SPAWN = (byte) MapModule.PLAYER_SPAWN.ordinal();
+    /** Grid-Wert eines Geister-Spawners */
+    private static final byte GHOST_SPAWN = (byte) MapModule.GHOST_SPAWN.ordinal();
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (MapModule m : MapModule.values())
+            DECODE[m.getValue()] = (byte) m.ordinal();
+    }
+
     /**
-     * Laedt den Level aus einer Datei.
+     * Laedt den Level aus einer Datei. Dateien mit der Endung
+     * {@link LevelFile#EXTENSION} werden als binaere Level gelesen.
      *
      * @throws InvalidLevelCharacterException falls der eingelesene Level ein unbekanntes Zeichen enthaelt
      * @throws InvalidLevelFormatException falls der eingelesene Level nicht rechteckig ist
      * @throws NoPacmanSpawnPointException falls der eingelesene Level keinen Pac-Spawner enthaelt
+     * @throws UncheckedIOException falls die Datei nicht gelesen werden kann
      */
     public static Level fromFile(String file) throws IllegalArgumentException,InvalidLevelCharacterException, InvalidLevelFormatException, NoPacmanSpawnPointException {
         // level parsen
     	if(file==null)throw new IllegalArgumentException();
-        Level level = fromString(FileOperations.readFile(file));
+        Level level;
+        if (file.endsWith(LevelFile.EXTENSION)) {
+            try {
+                return LevelFile.read(Paths.get(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Die Leveldatei " + file + " konnte nicht gelesen werden", e);
+            }
+        }
+        try (InputStream in = Files.newInputStream(Paths.get(file))) {
+            level = fromStream(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Die Leveldatei " + file + " konnte nicht gelesen werden", e);
+        }
         level.setName(getLevelName(file));
         return level;
     }
@@ -44,42 +80,74 @@ public class LevelParser {
      */
     public static Level fromString(String content) throws IllegalArgumentException,InvalidLevelCharacterException, InvalidLevelFormatException, NoPacmanSpawnPointException {
     	if(content==null)throw new IllegalArgumentException();
-    	// Text in zeilen aufteilen
-        //content = content.replaceAll("\r\n", System.lineSeparator());
-        String[] lines = content.split(System.lineSeparator());
-
-        List<Point> pacmanSpawnPoints = new ArrayList<>();
-        List<Point> ghostSpawnPoints = new ArrayList<>();
-        Field[][] map = new Field[lines.length][lines[0].length()];
-
-        char c;
-        for (int y = 0; y < lines.length; y++) {
-            // nur rechteckige level
-            if (lines[y].length() != lines[0].length())
-                throw new InvalidLevelFormatException();
-
-            for (int x = 0; x < lines[y].length(); x++) {
-                c = lines[y].charAt(x);
+        Decoder d = new Decoder(content.length());
+        char[] buf = new char[Math.min(content.length(), BUFFER_SIZE)];
+        for (int i = 0; i < content.length(); i += buf.length) {
+            int n = Math.min(buf.length, content.length() - i);
+            content.getChars(i, i + n, buf, 0);
+            d.accept(buf, n);
+        }
+        return d.finish();
+    }
 
-                // levelelement pruefen und speichern
-                if (Field.isValid(c))
-                    map[y][x] = new Field(new Coordinate(x,y),Field.findByValue(c));
-                else
-                    throw new InvalidLevelCharacterException(c);
+    /**
+     * Laedt den Level in einem Durchgang aus einem Zeichenstrom. Der Strom
+     * wird nicht geschlossen.
+     *
+     * @throws InvalidLevelCharacterException falls der eingelesene Level ein unbekanntes Zeichen enthaelt
+     * @throws InvalidLevelFormatException falls der eingelesene Level nicht rechteckig ist
+     * @throws NoPacmanSpawnPointException falls der eingelesene Level keinen Pac-Spawner enthaelt
+     * @throws IOException falls der Strom nicht gelesen werden kann
+     */
+    public static Level fromReader(Reader in) throws IOException, InvalidLevelCharacterException, InvalidLevelFormatException, NoPacmanSpawnPointException {
+        if (in == null) throw new IllegalArgumentException();
+        Decoder d = new Decoder(BUFFER_SIZE);
+        char[] buf = new char[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buf)) >= 0)
+            d.accept(buf, n);
+        return d.finish();
+    }
 
-                // spawnpunkte extrahieren
-                if (c == MapModule.PLAYER_SPAWN.getValue())
-                    pacmanSpawnPoints.add(new Point(x, y));
-                if (c == MapModule.GHOST_SPAWN.getValue())
-                    ghostSpawnPoints.add(new Point(x, y));
+    /**
+     * Laedt den Level in einem Durchgang aus einem Bytestrom. Alle
+     * Levelbausteine sind ASCII-Zeichen, jedes Byte ist also ein Zeichen.
+     * Der Strom wird nicht geschlossen.
+     *
+     * @throws InvalidLevelCharacterException falls der eingelesene Level ein unbekanntes Zeichen enthaelt
+     * @throws InvalidLevelFormatException falls der eingelesene Level nicht rechteckig ist
+     * @throws NoPacmanSpawnPointException falls der eingelesene Level keinen Pac-Spawner enthaelt
+     * @throws IOException falls der Strom nicht gelesen werden kann
+     */
+    public static Level fromStream(InputStream in) throws IOException, InvalidLevelCharacterException, InvalidLevelFormatException, NoPacmanSpawnPointException {
+        if (in == null) throw new IllegalArgumentException();
+        Decoder d = new Decoder(BUFFER_SIZE);
+        byte[] buf = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buf)) >= 0)
+            d.accept(buf, 0, n);
+        return d.finish();
+    }
 
-            }
+    /**
+     * Laedt den Level aus den verbleibenden Bytes eines Puffers, z. B. einer
+     * per {@link java.nio.channels.FileChannel#map} eingeblendeten Datei.
+     * Danach steht die Position des Puffers an seinem Ende.
+     *
+     * @throws InvalidLevelCharacterException falls der eingelesene Level ein unbekanntes Zeichen enthaelt
+     * @throws InvalidLevelFormatException falls der eingelesene Level nicht rechteckig ist
+     * @throws NoPacmanSpawnPointException falls der eingelesene Level keinen Pac-Spawner enthaelt
+     */
+    public static Level fromBuffer(ByteBuffer buffer) throws InvalidLevelCharacterException, InvalidLevelFormatException, NoPacmanSpawnPointException {
+        if (buffer == null) throw new IllegalArgumentException();
+        Decoder d = new Decoder(buffer.remaining());
+        byte[] buf = new byte[Math.min(buffer.remaining(), BUFFER_SIZE)];
+        while (buffer.hasRemaining()) {
+            int n = Math.min(buf.length, buffer.remaining());
+            buffer.get(buf, 0, n);
+            d.accept(buf, 0, n);
         }
-
-        if (!Consts.TEST && pacmanSpawnPoints.isEmpty())
-            throw new NoPacmanSpawnPointException();
-
-        return new Level(map, pacmanSpawnPoints.toArray(new Point[0]), ghostSpawnPoints.toArray(new Point[0]));
+        return d.finish();
     }
 
     /**
@@ -100,4 +168,165 @@ public class LevelParser {
 
         return fname.replace("_", " ");
     }
+
+    /**
+     * Setzt den Level Zeichen fuer Zeichen zusammen. Zeilen enden mit LF
+     * oder CRLF, Leerzeilen am Ende werden ignoriert.
+     */
+    private static final class Decoder {
+        /** Raster, wird bei Bedarf vergroessert */
+        private byte[] cells;
+        /** Anzahl der bisher gelesenen Zellen */
+        private int size = 0;
+        /** Breite des Levels, -1 solange die erste Zeile nicht beendet ist */
+        private int width = -1;
+        /** Anzahl der beendeten Zeilen */
+        private int height = 0;
+        /** Laenge der aktuellen Zeile */
+        private int column = 0;
+        /** Anzahl der Leerzeilen seit der letzten nicht leeren Zeile */
+        private int emptyLines = 0;
+        /** true <-> das letzte Zeichen war ein CR */
+        private boolean carriageReturn = false;
+        /** Puffer fuer {@link #accept(char[], int)} */
+        private byte[] bytes;
+        /** Positionen der Pacman-Spawner */
+        private final List<Point> pacmanSpawnPoints = new ArrayList<>();
+        /** Positionen der Geister-Spawner */
+        private final List<Point> ghostSpawnPoints = new ArrayList<>();
+
+        /**
+         * @param capacity geschaetzte Anzahl der Zeichen
+         */
+        Decoder(int capacity) {
+            cells = new byte[Math.max(16, capacity)];
+        }
+
+        /**
+         * Verarbeitet einen Block von Zeichen. Innerhalb einer Zeile wird
+         * jedes Zeichen nur ueber {@link #DECODE} uebersetzt und abgelegt,
+         * alles andere (Zeilenenden, Fehler, Spawner) uebernimmt
+         * {@link #accept(int)}.
+         *
+         * @param buf Zeichen als Bytes (ISO-8859-1)
+         * @param off erstes Zeichen
+         * @param len Anzahl der Zeichen
+         */
+        void accept(byte[] buf, int off, int len) throws InvalidLevelCharacterException, InvalidLevelFormatException {
+            // zustand in lokalen variablen halten
+            byte[] cells = this.cells;
+            int size = this.size, column = this.column;
+            int limit = width < 0 ? Integer.MAX_VALUE : width;
+            boolean plain = emptyLines == 0 && !carriageReturn;
+            for (int i = off, end = off + len; i < end; i++) {
+                byte m = DECODE[buf[i] & 0xFF];
+                if (plain && m >= 0 && m != PLAYER_SPAWN && m != GHOST_SPAWN && column < limit && size < cells.length) {
+                    cells[size++] = m;
+                    column++;
+                    continue;
+                }
+                this.size = size;
+                this.column = column;
+                accept(buf[i] & 0xFF);
+                cells = this.cells;
+                size = this.size;
+                column = this.column;
+                limit = width < 0 ? Integer.MAX_VALUE : width;
+                plain = emptyLines == 0 && !carriageReturn;
+            }
+            this.size = size;
+            this.column = column;
+        }
+
+        /**
+         * Wie {@link #accept(byte[], int, int)}, fuer Zeichen.
+         *
+         * @param buf Zeichen
+         * @param len Anzahl der Zeichen ab Index 0
+         */
+        void accept(char[] buf, int len) throws InvalidLevelCharacterException, InvalidLevelFormatException {
+            if (bytes == null || bytes.length < len)
+                bytes = new byte[len];
+            for (int i = 0; i < len; i++) {
+                char c = buf[i];
+                if (c > 0xFF) {
+                    // alles davor zuerst pruefen, damit der erste fehler gemeldet wird
+                    accept(bytes, 0, i);
+                    throw new InvalidLevelCharacterException(c);
+                }
+                bytes[i] = (byte) c;
+            }
+            accept(bytes, 0, len);
+        }
+
+        /**
+         * @param c naechstes Zeichen
+         */
+        void accept(int c) throws InvalidLevelCharacterException, InvalidLevelFormatException {
+            if (carriageReturn && c != '\n')
+                throw new InvalidLevelCharacterException('\r');
+            if (c == '\r') {
+                carriageReturn = true;
+                return;
+            }
+            carriageReturn = false;
+            if (c == '\n') {
+                endLine();
+                return;
+            }
+
+            // levelelement pruefen und speichern
+            byte m = c < DECODE.length ? DECODE[c] : -1;
+            if (m < 0)
+                throw new InvalidLevelCharacterException((char) c);
+            // nur rechteckige level, leerzeilen nur am ende
+            if (emptyLines > 0 || (width >= 0 && column >= width))
+                throw new InvalidLevelFormatException();
+            if (size == cells.length)
+                cells = Arrays.copyOf(cells, cells.length * 2);
+            cells[size++] = m;
+
+            // spawnpunkte extrahieren
+            if (m == PLAYER_SPAWN)
+                pacmanSpawnPoints.add(new Point(column, height));
+            else if (m == GHOST_SPAWN)
+                ghostSpawnPoints.add(new Point(column, height));
+            column++;
+        }
+
+        /**
+         * Beendet die aktuelle Zeile.
+         */
+        private void endLine() throws InvalidLevelFormatException {
+            if (column == 0) {
+                emptyLines++;
+                return;
+            }
+            if (width < 0)
+                width = column;
+            else if (column != width)
+                throw new InvalidLevelFormatException();
+            height++;
+            column = 0;
+        }
+
+        /**
+         * @return der fertige Level
+         */
+        Level finish() throws InvalidLevelCharacterException, InvalidLevelFormatException, NoPacmanSpawnPointException {
+            if (carriageReturn)
+                throw new InvalidLevelCharacterException('\r');
+            // letzte zeile ohne zeilenumbruch
+            if (column > 0)
+                endLine();
+            if (height == 0)
+                throw new InvalidLevelFormatException();
+
+            if (!Consts.TEST && pacmanSpawnPoints.isEmpty())
+                throw new NoPacmanSpawnPointException();
+
+            byte[] grid = size == cells.length ? cells : Arrays.copyOf(cells, size);
+            return new Level("Unbenannter Level", width, height, grid, pacmanSpawnPoints.toArray(new Point[0]), ghostSpawnPoints.toArray(new Point[0]));
+        }
+    }
 }
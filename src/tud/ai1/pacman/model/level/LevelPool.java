@@ -0,0 +1,265 @@
+package tud.ai1.pacman.model.level;
+
+import tud.ai1.pacman.util.Consts;
+
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vorrat an bereits generierten und geprueften Zufallsleveln. Hintergrund-
+ * Threads halten den Vorrat gefuellt, {@link #take()} gibt sofort einen
+ * Level heraus. Ist der Vorrat leer, wird der Level im aufrufenden Thread
+ * generiert (Fehlgriff).
+ *
+ * Mit einem Seed ist die Folge der Level-Seeds reproduzierbar, die Level
+ * werden dann ueber einen {@link LevelCache} geholt und nach dem ersten
+ * Start nur noch eingelesen.
+ *
+ * @author Thanh Son Bui
+ */
+public class LevelPool {
+    /** maximale Anzahl an Versuchen, einen gueltigen Level zu generieren */
+    private static final int MAX_ATTEMPTS = 100;
+    /** Abstand in ms, in dem ein wartender Aufrufer Beenden und Hintergrund-Threads prueft */
+    private static final long WAIT_CHECK_MS = 50;
+
+    /** gemeinsamer Vorrat fuer das Spiel, wird bei Bedarf angelegt */
+    private static LevelPool shared;
+
+    /** fertige Level */
+    private final BlockingQueue<Level> levels;
+    /** Breite der Level, 0 fuer zufaellige Abmessungen */
+    private final int width;
+    /** Hoehe der Level, 0 fuer zufaellige Abmessungen */
+    private final int height;
+    /** liefert die Seeds der Level, wird von allen Threads geteilt */
+    private final Random seeds;
+    /** Cache der Level, null falls direkt generiert wird */
+    private final LevelCache cache;
+    /** Hintergrund-Threads */
+    private final Thread[] workers;
+    /** Anzahl der sofort bedienten Anfragen */
+    private final AtomicLong hits = new AtomicLong();
+    /** Anzahl der Anfragen bei leerem Vorrat */
+    private final AtomicLong misses = new AtomicLong();
+    /** Anzahl der verworfenen ungueltigen Level */
+    private final AtomicLong rejected = new AtomicLong();
+    /** Anzahl der fehlgeschlagenen Generierungen in den Hintergrund-Threads */
+    private final AtomicLong failures = new AtomicLong();
+    /** true <-> der Vorrat wurde beendet */
+    private volatile boolean shutdown = false;
+
+    /**
+     * Konstruktor.
+     * Startet die Hintergrund-Threads sofort.
+     *
+     * @param depth maximale Anzahl vorgehaltener Level
+     * @param width Breite der Level (ungerade, mindestens 5), 0 fuer zufaellige Abmessungen
+     * @param height Hoehe der Level (ungerade, mindestens 5), 0 fuer zufaellige Abmessungen
+     * @param workerCount Anzahl der Hintergrund-Threads
+     */
+    public LevelPool(int depth, int width, int height, int workerCount) {
+        this(depth, width, height, workerCount, new Random(), null);
+    }
+
+    /**
+     * Konstruktor.
+     * Die Seeds der Level ergeben sich aus seed, die Level werden ueber den
+     * Cache geholt. Startet die Hintergrund-Threads sofort.
+     *
+     * @param depth maximale Anzahl vorgehaltener Level
+     * @param width Breite der Level (ungerade, mindestens 5), 0 fuer zufaellige Abmessungen
+     * @param height Hoehe der Level (ungerade, mindestens 5), 0 fuer zufaellige Abmessungen
+     * @param workerCount Anzahl der Hintergrund-Threads
+     * @param seed Seed fuer die Folge der Level
+     * @param cache Cache, ueber den die Level geholt werden
+     */
+    public LevelPool(int depth, int width, int height, int workerCount, long seed, LevelCache cache) {
+        this(depth, width, height, workerCount, new Random(seed), cache);
+        if (cache == null)
+            throw new IllegalArgumentException("Es wurde kein Cache uebergeben!");
+    }
+
+    /**
+     * Konstruktor.
+     * Startet die Hintergrund-Threads sofort.
+     */
+    private LevelPool(int depth, int width, int height, int workerCount, Random seeds, LevelCache cache) {
+        if (depth < 1)
+            throw new IllegalArgumentException("Der Vorrat muss mindestens einen Level fassen!");
+        if (workerCount < 1)
+            throw new IllegalArgumentException("Es wird mindestens ein Hintergrund-Thread benoetigt!");
+        if ((width == 0) != (height == 0))
+            throw new IllegalArgumentException("Breite und Hoehe muessen beide 0 oder beide gesetzt sein!");
+        if (width != 0 && (width < 5 || height < 5 || width % 2 == 0 || height % 2 == 0))
+            throw new IllegalArgumentException("Breite und Hoehe muessen ungerade und mindestens 5 sein!");
+        this.width = width;
+        this.height = height;
+        this.seeds = seeds;
+        this.cache = cache;
+        levels = new ArrayBlockingQueue<>(depth);
+
+        workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::fill, "LevelPool-" + i);
+            // der vorrat soll das beenden des spiels nicht verhindern
+            workers[i].setDaemon(true);
+            workers[i].setPriority(Thread.MIN_PRIORITY);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * @return gemeinsamer Vorrat mit den Einstellungen aus {@link Consts}
+     */
+    public static synchronized LevelPool getShared() {
+        if (shared == null) {
+            if (Consts.LEVEL_POOL_SEED != 0)
+                shared = new LevelPool(Consts.LEVEL_POOL_DEPTH, Consts.LEVEL_POOL_WIDTH, Consts.LEVEL_POOL_HEIGHT,
+                        Consts.LEVEL_POOL_WORKERS, Consts.LEVEL_POOL_SEED, LevelCache.getShared());
+            else
+                shared = new LevelPool(Consts.LEVEL_POOL_DEPTH, Consts.LEVEL_POOL_WIDTH,
+                        Consts.LEVEL_POOL_HEIGHT, Consts.LEVEL_POOL_WORKERS);
+        }
+        return shared;
+    }
+
+    /**
+     * Gibt einen fertigen Level heraus. Ist der Vorrat leer, wird im
+     * aufrufenden Thread ein neuer Level generiert. Mit Seed wird stattdessen
+     * auf die Hintergrund-Threads gewartet, damit die Reihenfolge der Level
+     * erhalten bleibt (bei einem einzigen Hintergrund-Thread). Wird der
+     * Vorrat beendet oder laeuft kein Hintergrund-Thread mehr, wird doch im
+     * aufrufenden Thread generiert.
+     *
+     * @return ein gueltiger Zufallslevel
+     */
+    public Level take() {
+        Level level = levels.poll();
+        if (level != null) {
+            hits.incrementAndGet();
+            return level;
+        }
+        misses.incrementAndGet();
+        if (cache != null) {
+            // mit seed auf die hintergrund-threads warten, sonst geraet die folge durcheinander
+            try {
+                while (!shutdown && workersAlive()) {
+                    level = levels.poll(WAIT_CHECK_MS, TimeUnit.MILLISECONDS);
+                    if (level != null)
+                        return level;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return generate(new LevelGenerator());
+    }
+
+    /**
+     * @return true <-> mindestens ein Hintergrund-Thread laeuft noch
+     */
+    private boolean workersAlive() {
+        for (Thread worker : workers)
+            if (worker.isAlive())
+                return true;
+        return false;
+    }
+
+    /**
+     * Beendet die Hintergrund-Threads. Danach werden alle Level im
+     * aufrufenden Thread generiert.
+     */
+    public void shutdown() {
+        shutdown = true;
+        for (Thread worker : workers)
+            worker.interrupt();
+        levels.clear();
+    }
+
+    /**
+     * @return Anzahl der aktuell vorgehaltenen Level
+     */
+    public int size() {
+        return levels.size();
+    }
+
+    /**
+     * @return Anzahl der Anfragen, die sofort aus dem Vorrat bedient wurden
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Anzahl der Anfragen, fuer die der Level erst generiert werden musste
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Anzahl der generierten, aber ungueltigen und daher verworfenen Level
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return Anzahl der Generierungen, die in den Hintergrund-Threads
+     *          fehlgeschlagen sind und wiederholt wurden
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Arbeitsschleife eines Hintergrund-Threads. Schlaegt eine Generierung
+     * fehl, wird sie protokolliert und mit dem naechsten Level fortgefahren.
+     */
+    private void fill() {
+        LevelGenerator gen = new LevelGenerator();
+        try {
+            while (!shutdown) {
+                Level level;
+                try {
+                    level = generate(gen);
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                    System.err.println(Thread.currentThread().getName() + ": Level konnte nicht generiert werden: " + e.getMessage());
+                    continue;
+                }
+                // put blockiert, solange der vorrat voll ist
+                levels.put(level);
+            }
+        } catch (InterruptedException e) {
+            // vorrat wurde beendet
+        }
+    }
+
+    /**
+     * @param gen zu verwendender Generator
+     * @return ein generierter und gepruefter Level
+     * @throws IllegalStateException falls nach {@link #MAX_ATTEMPTS} Versuchen kein gueltiger Level entstanden ist
+     */
+    private Level generate(LevelGenerator gen) {
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            long seed = seeds.nextLong();
+            Level level;
+            if (cache != null)
+                level = width == 0 ? cache.get(seed) : cache.get(seed, width, height);
+            else
+                level = width == 0 ? gen.generateLevel(seed) : gen.generateLevel(seed, width, height);
+            try {
+                level.validate();
+                return level;
+            } catch (Exception e) {
+                rejected.incrementAndGet();
+            }
+        }
+        throw new IllegalStateException("Es konnte kein gueltiger Level generiert werden!");
+    }
+}
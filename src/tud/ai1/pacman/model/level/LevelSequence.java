@@ -0,0 +1,111 @@
+package tud.ai1.pacman.model.level;
+
+/**
+ * Folge der Level eines Spiels. Die Level liegen entweder bereits vor oder
+ * werden bei jedem Zugriff ueber einen {@link LevelCatalog} geholt, der nur
+ * die zuletzt verwendeten Level geladen haelt.
+ * Die Folge kann von mehreren Threads gleichzeitig gelesen werden, z. B.
+ * beim Speichern im Hintergrund.
+ *
+ * @author Thanh Son Bui
+ */
+public class LevelSequence {
+    /** vorliegende Level, null fuer Level aus dem Katalog */
+    private final Level[] levels;
+    /** Dateinamen der Level im Katalog, null fuer vorliegende Level */
+    private final String[] files;
+    /** Katalog zum Laden der Level, null falls alle Level vorliegen */
+    private final LevelCatalog catalog;
+
+    /**
+     * Konstruktor.
+     *
+     * @param levels die Level in Spielreihenfolge
+     */
+    public LevelSequence(Level... levels) {
+        if (levels == null || levels.length == 0)
+            throw new IllegalArgumentException("Es wurde kein Level uebergeben!");
+        for (Level level : levels)
+            if (level == null)
+                throw new IllegalArgumentException("Es wurde kein Level uebergeben!");
+        this.levels = levels.clone();
+        files = new String[levels.length];
+        catalog = null;
+    }
+
+    /**
+     * Konstruktor.
+     * Die Level werden erst bei Bedarf aus dem Katalog geladen.
+     *
+     * @param catalog Katalog zum Laden der Level
+     * @param files Dateinamen der Level in Spielreihenfolge
+     */
+    public LevelSequence(LevelCatalog catalog, String[] files) {
+        this(catalog, files, new Level[files == null ? 0 : files.length]);
+    }
+
+    /**
+     * Konstruktor.
+     * An jeder Position liegt entweder der Level vor oder es ist der
+     * Dateiname angegeben, unter dem er aus dem Katalog geladen wird.
+     *
+     * @param catalog Katalog zum Laden der Level
+     * @param files Dateinamen der Level in Spielreihenfolge, null fuer vorliegende Level
+     * @param levels vorliegende Level in Spielreihenfolge, null fuer Level aus dem Katalog
+     */
+    public LevelSequence(LevelCatalog catalog, String[] files, Level[] levels) {
+        if (catalog == null || files == null || levels == null || files.length == 0)
+            throw new IllegalArgumentException("Es wurde kein Level uebergeben!");
+        if (files.length != levels.length)
+            throw new IllegalArgumentException("Dateinamen und Level muessen gleich viele sein!");
+        for (int i = 0; i < files.length; i++)
+            if ((files[i] == null) == (levels[i] == null))
+                throw new IllegalArgumentException("An Position " + i + " muss genau ein Level oder Dateiname stehen!");
+        this.levels = levels.clone();
+        this.files = files.clone();
+        this.catalog = catalog;
+    }
+
+    /**
+     * @return Anzahl der Level
+     */
+    public int size() {
+        return levels.length;
+    }
+
+    /**
+     * @param index Position in der Folge
+     * @return der Level, wird falls noetig jetzt geladen
+     * @throws Exception falls der Level nicht geladen werden kann
+     */
+    public Level get(int index) throws Exception {
+        if (files[index] != null)
+            return catalog.load(files[index]);
+        return levels[index];
+    }
+
+    /**
+     * @param index Position in der Folge
+     * @return Dateiname des Levels im Katalog, null falls der Level vorliegt
+     */
+    public String getFile(int index) {
+        return files[index];
+    }
+
+    /**
+     * @return Katalog der Level, null falls alle Level vorliegen
+     */
+    public LevelCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Laedt den Level im Hintergrund vor, falls er nicht vorliegt.
+     *
+     * @param index Position in der Folge
+     */
+    public void prefetch(int index) {
+        if (files[index] != null)
+            catalog.prefetch(files[index]);
+    }
+}
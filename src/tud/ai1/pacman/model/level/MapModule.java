@@ -1,8 +1,5 @@
 package tud.ai1.pacman.model.level;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Ein MapModule modelliert einen Levelbaustein.
  *
@@ -39,12 +36,20 @@ public enum MapModule {
         return value;
     }
 
-    /** Mapt Zeichen auf das passende Modul */
-    private static final Map<Character, MapModule> byValueMap = new HashMap<>();
+    /** Mapt Zeichen auf das passende Modul, Index ist das Zeichen (nur 8 Bit) */
+    private static final MapModule[] byValueTable = new MapModule[256];
 
     static {
         for (MapModule value : values())
-            byValueMap.put(value.getValue(), value);
+            byValueTable[value.getValue()] = value;
+    }
+
+    /**
+     * @param c Zeichen eines Moduls
+     * @return das passende Modul, null falls das Zeichen kein Modul ist
+     */
+    public static MapModule byValue(int c) {
+        return c >= 0 && c < byValueTable.length ? byValueTable[c] : null;
     }
 
 }
@@ -0,0 +1,154 @@
+package tud.ai1.pacman.sim;
+
+import tud.ai1.pacman.model.FixedStepClock;
+import tud.ai1.pacman.model.PacmanGame;
+import tud.ai1.pacman.model.level.Level;
+import tud.ai1.pacman.model.level.LevelParser;
+import tud.ai1.pacman.util.Consts;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prueft, dass ein Simulationsschritt im eingeschwungenen Zustand keinen
+ * Speicher anlegt. Jeder Level wird mit jeder Strategie erst eine Weile
+ * gespielt, danach werden die im Spielthread angelegten Bytes ueber
+ * {@link com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes()}
+ * je Schritt gemessen. Schritte mit Levelwechsel zaehlen nicht mit, da
+ * dabei neue Ebenen fuer Dots und Items angelegt werden. Einmalig und erst
+ * bei Bedarf angelegte Indizes des Levels werden vorab aufgebaut.
+ *
+ * Gemessen wird in Runden. Ein Lauf gilt als speicherfrei, sobald eine
+ * ganze Runde keine Bytes angelegt hat, da Deoptimierungen des JIT noch
+ * lange nach dem Aufwaermen vereinzelt ein paar Bytes anlegen koennen.
+ *
+ * Aufruf: AllocationCheck [-warmup n] [-ticks n] [-rounds n] [-seed n] [level ...]
+ * Ohne Level werden alle Level aus dem Levelordner geprueft. Der
+ * Rueckgabewert ist 1, falls in einem Lauf Speicher angelegt wurde.
+ *
+ * @author Thanh Son Bui
+ */
+public class AllocationCheck {
+    /** Standard-Anzahl an Schritten vor der Messung, damit der JIT fertig ist */
+    private static final long DEFAULT_WARMUP = 200000;
+    /** Standard-Anzahl an gemessenen Schritten je Runde */
+    private static final long DEFAULT_TICKS = 100000;
+    /** Standard-Hoechstzahl an Runden */
+    private static final int DEFAULT_ROUNDS = 5;
+
+    /** Anzahl der Schritte vor der Messung */
+    private long warmup = DEFAULT_WARMUP;
+    /** Anzahl der gemessenen Schritte je Runde */
+    private long ticks = DEFAULT_TICKS;
+    /** Hoechstzahl an Runden */
+    private int rounds = DEFAULT_ROUNDS;
+    /** Seed fuer Spiel und Strategie */
+    private long seed = 0;
+    /** zu pruefende Leveldateien */
+    private final List<String> levelFiles = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        AllocationCheck check = new AllocationCheck();
+        check.parseArgs(args);
+        if (!check.run())
+            System.exit(1);
+    }
+
+    /**
+     * Liest die Kommandozeilenparameter ein.
+     *
+     * @param args Kommandozeilenparameter
+     */
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-warmup": warmup = Long.parseLong(args[++i]); break;
+                case "-ticks":  ticks = Long.parseLong(args[++i]); break;
+                case "-rounds": rounds = Integer.parseInt(args[++i]); break;
+                case "-seed":   seed = Long.parseLong(args[++i]); break;
+                default: levelFiles.add(args[i]);
+            }
+        }
+        if (levelFiles.isEmpty()) {
+            String[] files = Level.listLevelFiles();
+            Arrays.sort(files);
+            for (String file : files)
+                levelFiles.add(Consts.LEVEL_FOLDER + file);
+        }
+    }
+
+    /**
+     * Fuehrt die Messung fuer alle Level und Strategien aus.
+     *
+     * @return true <-> kein Lauf hat Speicher angelegt
+     */
+    private boolean run() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported())
+            throw new IllegalStateException("Die JVM kann angelegten Speicher nicht je Thread messen!");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        boolean ok = true;
+        for (String file : levelFiles) {
+            Level level = LevelParser.fromFile(file);
+            level.validate();
+            // den erst beim ersten teleport angelegten zellindex vorab aufbauen,
+            // changeLevel setzt den zufall des levels danach ohnehin neu
+            level.getRandomSpaceCell();
+            for (PolicyType policyType : PolicyType.values()) {
+                PacmanGame game = new PacmanGame(new FixedStepClock(), seed);
+                Policy policy = policyType.create(seed);
+                game.changeLevel(level);
+
+                for (long i = 0; i < warmup; i++)
+                    step(game, policy, level);
+
+                long bytes = -1, measured = 0;
+                int round = 0;
+                while (bytes != 0 && round < rounds) {
+                    round++;
+                    bytes = 0;
+                    measured = 0;
+                    for (long i = 0; i < ticks; i++) {
+                        long before = threads.getCurrentThreadAllocatedBytes();
+                        boolean changed = step(game, policy, level);
+                        long after = threads.getCurrentThreadAllocatedBytes();
+                        if (changed) continue;
+                        bytes += after - before;
+                        measured++;
+                    }
+                }
+
+                ok &= bytes == 0;
+                System.out.println(String.format("%-30s %-8s Runde %d: %10d Schritte %12d Bytes %8.3f Bytes/Schritt%s",
+                        file, policyType, round, measured, bytes, measured == 0 ? 0.0 : bytes / (double) measured,
+                        bytes == 0 ? "" : "  FEHLER"));
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Fuehrt einen Simulationsschritt aus. Gewonnene Level werden neu
+     * gestartet, verlorene Spiele erhalten neue Leben, damit die Messung
+     * beliebig lange laufen kann.
+     *
+     * @return true <-> in diesem Schritt wurde der Level gewechselt
+     */
+    private static boolean step(PacmanGame game, Policy policy, Level level) {
+        int dir = policy.nextDirection(game);
+        if (dir >= 0)
+            game.movePacman(Policy.DX[dir], Policy.DY[dir]);
+        game.tick();
+
+        if (game.getLives() <= 1)
+            game.updateLives(Consts.INITIAL_LIVES);
+        if (game.isWon()) {
+            game.changeLevel(level);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,168 @@
+package tud.ai1.pacman.sim;
+
+import tud.ai1.pacman.model.level.Level;
+import tud.ai1.pacman.model.level.LevelParser;
+import tud.ai1.pacman.util.Consts;
+import tud.ai1.pacman.util.FileOperations;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Simuliert viele Spiele (Level x Strategie x Seed) parallel und ohne
+ * grafische Oberflaeche. Die Spiele werden ueber einen Work-Stealing-Pool
+ * auf alle Prozessorkerne verteilt.
+ *
+ * Aufruf: BatchSimulation [-o datei] [-seeds n] [-seed start] [-ticks n]
+ *                         [-threads n] [-policies random,greedy] [level ...]
+ * Ohne Level werden alle Level aus dem Levelordner simuliert.
+ *
+ * @author Thanh Son Bui
+ */
+public class BatchSimulation {
+    /** Standard-Ergebnisdatei */
+    private static final String DEFAULT_OUTPUT = "simulation.bin";
+    /** Standard-Spieldauer: 10 Minuten Spielzeit */
+    private static final long DEFAULT_MAX_TICKS = Consts.TICKS_PER_SECOND * 60L * 10;
+
+    /** Ergebnisdatei */
+    private String output = DEFAULT_OUTPUT;
+    /** Anzahl der Seeds je Level und Strategie */
+    private int seeds = 100;
+    /** erster Seed */
+    private long firstSeed = 0;
+    /** maximale Anzahl an Simulationsschritten je Spiel */
+    private long maxTicks = DEFAULT_MAX_TICKS;
+    /** Anzahl der Worker-Threads */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /** zu verwendende Strategien */
+    private PolicyType[] policies = PolicyType.values();
+    /** zu simulierende Leveldateien */
+    private final List<String> levelFiles = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        BatchSimulation batch = new BatchSimulation();
+        batch.parseArgs(args);
+        batch.run();
+    }
+
+    /**
+     * Liest die Kommandozeilenparameter ein.
+     *
+     * @param args Kommandozeilenparameter
+     */
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-o":        output = args[++i]; break;
+                case "-seeds":    seeds = Integer.parseInt(args[++i]); break;
+                case "-seed":     firstSeed = Long.parseLong(args[++i]); break;
+                case "-ticks":    maxTicks = Long.parseLong(args[++i]); break;
+                case "-threads":  threads = Integer.parseInt(args[++i]); break;
+                case "-policies": {
+                    String[] names = args[++i].split(",");
+                    policies = new PolicyType[names.length];
+                    for (int j = 0; j < names.length; j++)
+                        policies[j] = PolicyType.byName(names[j]);
+                    break;
+                }
+                default: levelFiles.add(args[i]);
+            }
+        }
+        if (levelFiles.isEmpty()) {
+            // sortiert, damit die level-indizes reproduzierbar sind
+            String[] files = Level.listLevelFiles();
+            Arrays.sort(files);
+            for (String file : files)
+                levelFiles.add(Consts.LEVEL_FOLDER + file);
+        }
+    }
+
+    /**
+     * Fuehrt alle Simulationen aus und schreibt die Ergebnisdatei.
+     */
+    private void run() throws Exception {
+        // leveltexte einmal einlesen und pruefen, jeder worker parst seine eigene kopie
+        List<String> contents = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (String file : levelFiles) {
+            try {
+                String content = FileOperations.readFile(file);
+                LevelParser.fromString(content).validate();
+                contents.add(content);
+                names.add(LevelParser.getLevelName(file));
+            } catch (Exception e) {
+                System.err.println("Level " + file + " wird uebersprungen: " + e.getMessage());
+            }
+        }
+
+        int games = contents.size() * policies.length * seeds;
+        SimulationResult[] results = new SimulationResult[games];
+        long start = System.nanoTime();
+
+        try (SimulationResultFile file = new SimulationResultFile(Paths.get(output), names.toArray(new String[0]), games)) {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(games);
+            int index = 0;
+            for (int l = 0; l < contents.size(); l++) {
+                for (PolicyType policy : policies) {
+                    for (int s = 0; s < seeds; s++) {
+                        final int game = index++;
+                        final int levelIndex = l;
+                        final long seed = firstSeed + s;
+                        tasks.add(ForkJoinTask.adapt(() -> {
+                            try {
+                                Level level = LevelParser.fromString(contents.get(levelIndex));
+                                level.setName(names.get(levelIndex));
+                                results[game] = new Simulation(level, levelIndex, policy, seed, maxTicks).run();
+                                file.write(game, results[game]);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            } catch (Exception e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }));
+                    }
+                }
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.submit(() -> ForkJoinTask.invokeAll(tasks)).get();
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        long ms = (System.nanoTime() - start) / 1000000;
+        System.out.println(games + " Spiele in " + ms + " ms mit " + threads + " Threads simuliert -> " + output);
+        printSummary(names, results);
+    }
+
+    /**
+     * Gibt die Durchschnittswerte je Level und Strategie aus.
+     */
+    private void printSummary(List<String> names, SimulationResult[] results) {
+        for (int l = 0; l < names.size(); l++) {
+            for (PolicyType policy : policies) {
+                long points = 0, won = 0, ticks = 0;
+                int count = 0;
+                for (SimulationResult r : results) {
+                    if (r.getLevelIndex() != l || r.getPolicy() != policy) continue;
+                    points += r.getPoints();
+                    won += r.getWonLevels();
+                    ticks += r.getTicks();
+                    count++;
+                }
+                if (count == 0) continue;
+                System.out.println(String.format("%-20s %-8s Punkte %9.1f  Level %6.2f  Schritte %10.1f",
+                        names.get(l), policy, points / (double) count, won / (double) count, ticks / (double) count));
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package tud.ai1.pacman.sim;
+
+import tud.ai1.pacman.model.PacmanGame;
+import tud.ai1.pacman.model.PickupLayer;
+import tud.ai1.pacman.model.entity.GameEntity;
+import tud.ai1.pacman.model.entity.GhostStore;
+import tud.ai1.pacman.model.entity.pickup.Teleporter;
+import tud.ai1.pacman.model.level.Level;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Laeuft auf kuerzestem Weg zum naechsten Item und meidet dabei Geister,
+ * solange kein PowerUp aktiv ist.
+ *
+ * @author Thanh Son Bui
+ */
+public class GreedyPolicy implements Policy {
+    /** Bit in {@link Level#getWalkableMask(int, int)} je Richtung aus {@link Policy#DX} */
+    private static final int[] WALKABLE_BIT = {2, 1, 0, 3};
+
+    /** Ein Random-Generator */
+    private final Random rnd;
+
+    /** Level, fuer den die Puffer angelegt wurden */
+    private Level level;
+    /** Zellinhalt: 0 frei, 1 Ziel, 2 gesperrt */
+    private byte[] cells;
+    /** erste Richtung des kuerzesten Weges je Zelle, -1 = nicht besucht */
+    private int[] firstDir;
+    /** Warteschlange der Breitensuche */
+    private int[] queue;
+
+    /**
+     * Konstruktor.
+     *
+     * @param seed Seed des Random-Generators
+     */
+    public GreedyPolicy(long seed) {
+        rnd = new Random(seed);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int nextDirection(PacmanGame game) {
+        if (!game.getPacman().notMoving())
+            return -1;
+
+        Level l = game.getLevel();
+        int w = l.getWidth(), h = l.getHeight();
+        if (l != level) {
+            level = l;
+            cells = new byte[w * h];
+            firstDir = new int[w * h];
+            queue = new int[w * h];
+        }
+
+        // ziele und gesperrte felder eintragen
+        Arrays.fill(cells, (byte) 0);
+        PickupLayer pickups = game.getPickups();
+        for (int i = pickups.nextDot(0); i >= 0; i = pickups.nextDot(i + 1))
+            cells[i] = 1;
+        for (int i = pickups.nextItem(0); i >= 0; i = pickups.nextItem(i + 1))
+            if (pickups.getAt(i) != PickupLayer.TELEPORTER)
+                cells[i] = 1;
+        boolean powered = game.getPacman().isPoweredUp();
+        // indexbasiert, damit kein iterator angelegt wird
+        List<GameEntity> entities = game.getEntities();
+        for (int i = 0; i < entities.size(); i++) {
+            GameEntity e = entities.get(i);
+            int x = Math.floorMod(Math.round(e.getPos().x), w);
+            int y = Math.floorMod(Math.round(e.getPos().y), h);
+            if (!(e instanceof Teleporter) && cells[y * w + x] == 0)
+                cells[y * w + x] = 1;
+        }
+        GhostStore ghosts = game.getGhosts();
+        for (int i = 0; i < ghosts.size(); i++) {
+            int x = Math.floorMod(Math.round(ghosts.getX(i)), w);
+            int y = Math.floorMod(Math.round(ghosts.getY(i)), h);
+            if (!powered && !ghosts.isIdle(i))
+                cells[y * w + x] = 2;
+        }
+
+        // breitensuche von pacman aus, startrichtungen zufaellig gemischt
+        Arrays.fill(firstDir, -1);
+        int px = Math.floorMod((int) game.getPacman().getPos().x, w);
+        int py = Math.floorMod((int) game.getPacman().getPos().y, h);
+        int head = 0, tail = 0;
+        int start = rnd.nextInt(4);
+        for (int i = 0; i < 4; i++) {
+            int d = (start + i) % 4;
+            if (!game.canMovePacman(DX[d], DY[d])) continue;
+            int c = Math.floorMod(py + DY[d], h) * w + Math.floorMod(px + DX[d], w);
+            if (firstDir[c] != -1 || cells[c] == 2) continue;
+            firstDir[c] = d;
+            queue[tail++] = c;
+        }
+        while (head < tail) {
+            int c = queue[head++];
+            if (cells[c] == 1) return firstDir[c];
+            int x = c % w, y = c / w;
+            int walkable = l.getWalkableMask(x, y);
+            for (int d = 0; d < 4; d++) {
+                if ((walkable & (1 << WALKABLE_BIT[d])) == 0) continue;
+                int n = Math.floorMod(y + DY[d], h) * w + Math.floorMod(x + DX[d], w);
+                if (firstDir[n] != -1 || cells[n] == 2) continue;
+                firstDir[n] = firstDir[c];
+                queue[tail++] = n;
+            }
+        }
+
+        // kein ziel erreichbar: irgendeine moegliche richtung waehlen
+        return tail > 0 ? firstDir[queue[0]] : -1;
+    }
+}
@@ -0,0 +1,24 @@
+package tud.ai1.pacman.sim;
+
+import tud.ai1.pacman.model.PacmanGame;
+
+/**
+ * Eine Spielstrategie, die Pacman ohne Benutzereingaben steuert.
+ *
+ * @author Thanh Son Bui
+ */
+public interface Policy {
+    /** Bewegung in X-Richtung je Richtung (0: rechts, 1: oben; 2: links; 3: unten) */
+    int[] DX = {1, 0, -1, 0};
+    /** Bewegung in Y-Richtung je Richtung (0: rechts, 1: oben; 2: links; 3: unten) */
+    int[] DY = {0, -1, 0, 1};
+
+    /**
+     * Wird jeden Simulationsschritt aufgerufen.
+     *
+     * @param game das laufende Spiel
+     * @return gewuenschte Richtung (0: rechts, 1: oben; 2: links; 3: unten),
+     *          -1 fuer keine Bewegung
+     */
+    int nextDirection(PacmanGame game);
+}
@@ -0,0 +1,37 @@
+package tud.ai1.pacman.sim;
+
+/**
+ * Alle verfuegbaren Spielstrategien fuer die Simulation.
+ *
+ * @author Thanh Son Bui
+ */
+public enum PolicyType {
+    RANDOM {
+        @Override
+        public Policy create(long seed) {
+            return new RandomPolicy(seed);
+        }
+    },
+    GREEDY {
+        @Override
+        public Policy create(long seed) {
+            return new GreedyPolicy(seed);
+        }
+    };
+
+    /**
+     * @param seed Seed fuer die Zufallsentscheidungen der Strategie
+     * @return eine neue Instanz der Strategie
+     */
+    public abstract Policy create(long seed);
+
+    /**
+     * @param name Name der Strategie, Gross-/Kleinschreibung wird ignoriert
+     * @return die passende Strategie
+     */
+    public static PolicyType byName(String name) {
+        if (name == null)
+            throw new IllegalArgumentException("Es wurde kein Name uebergeben!");
+        return valueOf(name.trim().toUpperCase());
+    }
+}
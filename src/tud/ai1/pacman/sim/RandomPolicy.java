@@ -0,0 +1,50 @@
+package tud.ai1.pacman.sim;
+
+import tud.ai1.pacman.model.PacmanGame;
+
+import java.util.Random;
+
+/**
+ * Laeuft geradeaus, bis eine Wand erreicht ist, und biegt gelegentlich
+ * zufaellig ab.
+ *
+ * @author Thanh Son Bui
+ */
+public class RandomPolicy implements Policy {
+    /** Ein Random-Generator */
+    private final Random rnd;
+    /** aktuelle Laufrichtung */
+    private int dir;
+
+    /**
+     * Konstruktor.
+     *
+     * @param seed Seed des Random-Generators
+     */
+    public RandomPolicy(long seed) {
+        rnd = new Random(seed);
+        dir = rnd.nextInt(4);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int nextDirection(PacmanGame game) {
+        if (!game.getPacman().notMoving())
+            return dir;
+
+        // an waenden oder zufaellig die richtung wechseln
+        if (!game.canMovePacman(DX[dir], DY[dir]) || rnd.nextInt(8) == 0) {
+            int start = rnd.nextInt(4);
+            for (int i = 0; i < 4; i++) {
+                int d = (start + i) % 4;
+                if (game.canMovePacman(DX[d], DY[d])) {
+                    dir = d;
+                    break;
+                }
+            }
+        }
+        return dir;
+    }
+}
@@ -0,0 +1,72 @@
+package tud.ai1.pacman.sim;
+
+import tud.ai1.pacman.model.FixedStepClock;
+import tud.ai1.pacman.model.PacmanGame;
+import tud.ai1.pacman.model.level.Level;
+
+/**
+ * Spielt ein einzelnes Spiel ohne grafische Oberflaeche so schnell wie
+ * moeglich durch. Jede Simulation besitzt ihr eigenes Spiel und ihren
+ * eigenen Level, mehrere Simulationen koennen daher parallel laufen.
+ *
+ * @author Thanh Son Bui
+ */
+public class Simulation {
+    /** der gespielte Level */
+    private final Level level;
+    /** Index des Levels im Lauf */
+    private final int levelIndex;
+    /** verwendete Strategie */
+    private final PolicyType policyType;
+    /** Seed des Spiels */
+    private final long seed;
+    /** maximale Anzahl an Simulationsschritten */
+    private final long maxTicks;
+
+    /**
+     * Konstruktor.
+     *
+     * @param level der zu spielende Level, wird nur von dieser Simulation verwendet
+     * @param levelIndex Index des Levels im Lauf
+     * @param policyType verwendete Strategie
+     * @param seed Seed fuer Spiel und Strategie
+     * @param maxTicks maximale Anzahl an Simulationsschritten
+     */
+    public Simulation(Level level, int levelIndex, PolicyType policyType, long seed, long maxTicks) {
+        if (level == null || policyType == null)
+            throw new IllegalArgumentException("Level und Strategie duerfen nicht null sein!");
+        this.level = level;
+        this.levelIndex = levelIndex;
+        this.policyType = policyType;
+        this.seed = seed;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * Spielt das Spiel, bis es verloren ist oder die maximale Anzahl an
+     * Simulationsschritten erreicht wurde. Gewonnene Level werden neu gestartet.
+     *
+     * @return das Ergebnis des Spiels
+     */
+    public SimulationResult run() {
+        PacmanGame game = new PacmanGame(new FixedStepClock(), seed);
+        Policy policy = policyType.create(seed);
+        game.changeLevel(level);
+
+        int wonLevels = 0;
+        while (game.getTicks() < maxTicks) {
+            int dir = policy.nextDirection(game);
+            if (dir >= 0)
+                game.movePacman(Policy.DX[dir], Policy.DY[dir]);
+            game.tick();
+
+            if (game.isWon())
+                game.changeLevel(level);
+            // isLost setzt die gewonnenen level zurueck
+            wonLevels = game.getWonLevels();
+            if (game.isLost())
+                break;
+        }
+        return new SimulationResult(levelIndex, policyType, seed, game.getPoints(), wonLevels, game.getTicks());
+    }
+}
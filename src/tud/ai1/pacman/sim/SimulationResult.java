@@ -0,0 +1,82 @@
+package tud.ai1.pacman.sim;
+
+/**
+ * Ergebnis eines vollstaendig simulierten Spiels.
+ *
+ * @author Thanh Son Bui
+ */
+public class SimulationResult {
+    /** Index des gespielten Levels */
+    private final int levelIndex;
+    /** verwendete Strategie */
+    private final PolicyType policy;
+    /** Seed des Spiels */
+    private final long seed;
+    /** erreichte Punktzahl */
+    private final int points;
+    /** Anzahl der gewonnenen Level */
+    private final int wonLevels;
+    /** Anzahl der ueberlebten Simulationsschritte */
+    private final long ticks;
+
+    /**
+     * Konstruktor.
+     *
+     * @param levelIndex Index des gespielten Levels
+     * @param policy verwendete Strategie
+     * @param seed Seed des Spiels
+     * @param points erreichte Punktzahl
+     * @param wonLevels Anzahl der gewonnenen Level
+     * @param ticks Anzahl der ueberlebten Simulationsschritte
+     */
+    public SimulationResult(int levelIndex, PolicyType policy, long seed, int points, int wonLevels, long ticks) {
+        this.levelIndex = levelIndex;
+        this.policy = policy;
+        this.seed = seed;
+        this.points = points;
+        this.wonLevels = wonLevels;
+        this.ticks = ticks;
+    }
+
+    /**
+     * @return Index des gespielten Levels
+     */
+    public int getLevelIndex() {
+        return levelIndex;
+    }
+
+    /**
+     * @return verwendete Strategie
+     */
+    public PolicyType getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return Seed des Spiels
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return erreichte Punktzahl
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * @return Anzahl der gewonnenen Level
+     */
+    public int getWonLevels() {
+        return wonLevels;
+    }
+
+    /**
+     * @return Anzahl der ueberlebten Simulationsschritte
+     */
+    public long getTicks() {
+        return ticks;
+    }
+}
@@ -0,0 +1,97 @@
+package tud.ai1.pacman.sim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Ergebnisdatei eines Simulationslaufs.
+ * Auf einen Kopf mit Level- und Strategienamen folgt je Spiel ein Datensatz
+ * fester Groesse. Jeder Datensatz hat einen festen Platz in der Datei, daher
+ * koennen alle Worker gleichzeitig und ohne Sperren schreiben.
+ *
+ * Datensatz: levelIndex (int), policy (int), seed (long), points (int),
+ * wonLevels (int), ticks (long)
+ *
+ * @author Thanh Son Bui
+ */
+public class SimulationResultFile implements Closeable {
+    /** Kennung am Dateianfang ("PSIM") */
+    public static final int MAGIC = 0x5053494D;
+    /** Version des Dateiformats */
+    public static final int VERSION = 1;
+    /** Groesse eines Datensatzes in Bytes */
+    public static final int RECORD_SIZE = 4 + 4 + 8 + 4 + 4 + 8;
+
+    /** Kanal der Ergebnisdatei */
+    private final FileChannel channel;
+    /** Position des ersten Datensatzes */
+    private final long recordStart;
+
+    /**
+     * Legt die Ergebnisdatei an und schreibt den Kopf.
+     *
+     * @param path Pfad der Ergebnisdatei
+     * @param levelNames Namen der simulierten Level
+     * @param games Anzahl der simulierten Spiele
+     * @throws IOException bei Schreibfehlern
+     */
+    public SimulationResultFile(Path path, String[] levelNames, int games) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.writeInt(RECORD_SIZE);
+        header.writeInt(levelNames.length);
+        for (String name : levelNames)
+            header.writeUTF(name);
+        header.writeInt(PolicyType.values().length);
+        for (PolicyType type : PolicyType.values())
+            header.writeUTF(type.name());
+        header.writeInt(games);
+        header.flush();
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+        while (buf.hasRemaining())
+            channel.write(buf);
+        recordStart = bytes.size();
+    }
+
+    /**
+     * Schreibt einen Datensatz an seinen Platz. Darf von mehreren Threads
+     * gleichzeitig aufgerufen werden.
+     *
+     * @param index Nummer des Spiels
+     * @param result Ergebnis des Spiels
+     * @throws IOException bei Schreibfehlern
+     */
+    public void write(int index, SimulationResult result) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE);
+        buf.putInt(result.getLevelIndex());
+        buf.putInt(result.getPolicy().ordinal());
+        buf.putLong(result.getSeed());
+        buf.putInt(result.getPoints());
+        buf.putInt(result.getWonLevels());
+        buf.putLong(result.getTicks());
+        buf.flip();
+
+        long pos = recordStart + (long) index * RECORD_SIZE;
+        while (buf.hasRemaining())
+            pos += channel.write(buf, pos);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -71,6 +71,25 @@ public abstract class Consts {
   public final static int INITIAL_LIVES = 3;
   public final static boolean BUG_256 = true;
 
+  /*
+   * Simulationstakt. Im Spiel werden pro Frame so viele Simulationsschritte
+   * ausgefuehrt, wie seit dem letzten Frame vergangen sind, hoechstens aber
+   * MAX_TICKS_PER_FRAME.
+   */
+  public static final int TICKS_PER_SECOND = 60;
+  public static final long TICK_TIME = 1000000000L / TICKS_PER_SECOND;
+  public static final int MAX_TICKS_PER_FRAME = 5;
+  /** Simulationsschritte zwischen automatischen Spielstaenden, 0 schaltet sie ab */
+  public static final int AUTOSAVE_TICKS = TICKS_PER_SECOND * 30;
+  /** Simulationsschritte, die zum Zurueckspulen aufbewahrt werden, 0 schaltet es ab */
+  public static final int REWIND_TICKS = TICKS_PER_SECOND * 10;
+  /** hoechster Abstand zwischen zwei vollstaendigen Aufzeichnungen beim Zurueckspulen */
+  public static final int REWIND_KEYFRAME_TICKS = TICKS_PER_SECOND;
+  /** Simulationsschritte, um die ein Tastendruck zurueckspult */
+  public static final int REWIND_STEP_TICKS = TICKS_PER_SECOND * 2;
+  /** Abstand der festgehaltenen Zustaende beim Abspielen von Aufzeichnungen */
+  public static final int REPLAY_KEYFRAME_TICKS = TICKS_PER_SECOND * 10;
+
   /*
    * Konstanten fuer Pacman
    */
@@ -91,6 +110,8 @@ public abstract class Consts {
   public static final float G_IDLE_MOVE_SPEED = 1.5f;
   public static final long G_RESPAWN_IDLE_TIME = 2000000000L + 50000000L; // 2.5 sekunden
   public static final float G_IDLE_MOVE_SIZE = 0.15f;
+  /** Geister folgen (bzw. fliehen vor) Pacman auf kuerzesten Wegen, nicht in Tests */
+  public static final boolean G_SHORTEST_PATH = true;
 
   /*
    * Level-Begrenzungen (Minima und Maxima) beim LevelGenerator.
@@ -102,6 +123,17 @@ public abstract class Consts {
   public static final int HEIGHT_MIN = 5;
   public static final int HEIGHT_MAX = 7;
 
+  /*
+   * Vorrat an vorab generierten Zufallsleveln (siehe LevelPool).
+   * Breite und Hoehe 0 bedeuten zufaellige Abmessungen wie oben.
+   */
+  public static final int LEVEL_POOL_DEPTH = 3;
+  public static final int LEVEL_POOL_WORKERS = 1;
+  public static final int LEVEL_POOL_WIDTH = 0;
+  public static final int LEVEL_POOL_HEIGHT = 0;
+  /** Seed der Levelfolge, 0 fuer bei jedem Start neue Level. Mit Seed werden die Level ueber den LevelCache geholt */
+  public static final long LEVEL_POOL_SEED = 0;
+
   /*
    * Ordner-Pfade fuer die Gamestates und die Menue-Assets. Aus diesen Ordnern werden z. B. Bilder
    * geladen.
@@ -111,6 +143,14 @@ public abstract class Consts {
   public static final String LEVEL_FOLDER = ASSETS_FOLDER + "/levels/";
   public static final String FONT_FOLDER = ASSETS_FOLDER + "/fonts/";
   public static final String SAVE_FILE = "autosave";
+  /** Ordner fuer bereits generierte Zufallslevel (siehe LevelCache) */
+  public static final String LEVEL_CACHE_FOLDER = "levelcache/";
+  /** Index des Levelordners (siehe LevelCatalog) */
+  public static final String LEVEL_INDEX_FILE = LEVEL_CACHE_FOLDER + "index.bin";
+  /** Ordner fuer die Aufzeichnungen gespielter Spiele (siehe Replay), null schaltet sie ab */
+  public static final String REPLAY_FOLDER = null;
+  /** Anzahl der aufbewahrten Aufzeichnungen, aeltere werden geloescht (siehe ReplayWriter) */
+  public static final int REPLAY_KEEP = 20;
   public static final String IMAGE_EXTENSION = ".png";
 
   /** Aktuell gewaehltes Thema */
@@ -120,6 +160,7 @@ public abstract class Consts {
    * Highscore Einstellungen.
    */
   public static final String HIGHSCORE_FILE = "highscore.txt";
+  /** Anzahl der angezeigten Eintraege, gespeichert werden alle */
   public static final int HIGHSCORE_DISPLAYED_ENTRIES = 5;
   /** Delimiter zwischen Name und Punkte */
   public static final String HS_DATE_PATTERN = "yyyy-MM-dd HH:mm";
@@ -4,6 +4,7 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Klasse zum Lesen und Schreiben von Dateien. Dies wird insbesondere zum Lesen und Schreiben der
@@ -84,4 +85,42 @@ public class FileOperations {
     return true;
   }
 
+  /**
+   * Haengt einen String an das Ende einer Datei an, ohne den bisherigen Inhalt neu zu schreiben.
+   * Existiert die Datei nicht, wird sie angelegt.
+   *
+   * @param fileName Ein in einem String uebergebener Dateiname. Bei einem Pfad muss der zugehoerige
+   *        Pfad bereits existieren.
+   * @param data Der Inhalt, welcher an die angegebene Datei angehaengt werden soll.
+   * @return true, wenn an die Datei angehaengt werden konnte, sonst false.
+   */
+  public static boolean appendFile(final String fileName, final String data) {
+    if (fileName == null) {
+      throw new IllegalArgumentException("Der uebergebene Dateiname ist null.");
+    }
+
+    if (fileName.isEmpty()) {
+      throw new IllegalArgumentException("Der uebergebene Dateiname ist leer.");
+    }
+
+    if (data == null) {
+      throw new IllegalArgumentException("Die uebergebenen Daten sind null.");
+    }
+
+    if (data.isEmpty()) {
+      throw new IllegalArgumentException("Die uebergebenen Daten sind leer.");
+    }
+
+    try (BufferedWriter bw = Files.newBufferedWriter(Paths.get(fileName), StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      bw.write(data);
+    } catch (final IOException e) {
+      e.printStackTrace();
+      System.err.println("IOException: An die Datei konnte nicht angehaengt werden: " + fileName);
+      return false;
+    }
+
+    return true;
+  }
+
 }
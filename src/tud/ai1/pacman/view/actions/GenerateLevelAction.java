@@ -6,7 +6,7 @@ import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.state.StateBasedGame;
 
 import tud.ai1.pacman.model.level.Level;
-import tud.ai1.pacman.model.level.LevelGenerator;
+import tud.ai1.pacman.model.level.LevelPool;
 import tud.ai1.pacman.util.Consts;
 import tud.ai1.pacman.view.states.GamePlayState;
 
@@ -23,8 +23,8 @@ public class GenerateLevelAction implements Action {
     public void update(GameContainer gc, StateBasedGame sb, int delta, Component event) {
         GamePlayState s = (GamePlayState) sb.getState(Consts.GAME_STATE);
         try {
-            LevelGenerator gen = new LevelGenerator();
-            s.startGame(new Level[]{gen.generateLevel()});
+            // level kommt fertig geprueft aus dem vorrat
+            s.startGame(new Level[]{LevelPool.getShared().take()});
         } catch (Exception e) {
             e.printStackTrace();
             sb.enterState(Consts.MENU_STATE);
@@ -35,8 +35,10 @@ public class SaveHighscoreAction implements Action {
     }
 
     public void update(GameContainer gc, StateBasedGame sb, int delta, Component event) {
-        Highscore.getInstance().addHighscore(new HighscoreEntry(LocalDateTime.now(), newName, newPoints));
-        Highscore.getInstance().saveToFile(Consts.HIGHSCORE_FILE);
+        HighscoreEntry entry = new HighscoreEntry(LocalDateTime.now(), newName, newPoints);
+        Highscore.getInstance().addHighscore(entry);
+        // nur die neue zeile schreiben, nicht die ganze datei
+        Highscore.getInstance().appendToFile(Consts.HIGHSCORE_FILE, entry);
         sb.enterState(Consts.HIGHSCORE_STATE);
     }
 }
@@ -5,11 +5,14 @@ import eea.engine.component.Component;
 import org.newdawn.slick.GameContainer;
 import org.newdawn.slick.state.StateBasedGame;
 
-import tud.ai1.pacman.model.level.Level;
-import tud.ai1.pacman.model.level.LevelParser;
+import tud.ai1.pacman.model.level.LevelCatalog;
+import tud.ai1.pacman.model.level.LevelSequence;
 import tud.ai1.pacman.util.Consts;
 import tud.ai1.pacman.view.states.GamePlayState;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Startet das Spiel anhand der uebergebenen Levelnamen.
  *
@@ -42,11 +45,23 @@ public class StartGameAction implements Action {
         sb.enterState(Consts.GAME_STATE);
     }
 
-    private Level[] loadLevels(String[] levelFiles) throws Exception {
-        Level[] levels = new Level[levelFiles.length];
-        for (int i = 0; i < levels.length; i++)
-            levels[i] = LevelParser.fromFile(Consts.LEVEL_FOLDER + levelFiles[i]);
+    /**
+     * Die Level werden erst beim Spielen geladen. Aus mehreren Leveln
+     * werden die laut Katalog ungueltigen ausgelassen.
+     */
+    private LevelSequence loadLevels(String[] levelFiles) throws Exception {
+        LevelCatalog catalog = LevelCatalog.getShared();
+        if (levelFiles.length == 1)
+            return new LevelSequence(catalog, levelFiles);
 
-        return levels;
+        List<String> playable = new ArrayList<>();
+        for (String file : levelFiles) {
+            LevelCatalog.Entry entry = catalog.getEntry(file);
+            if (entry != null && entry.isValid())
+                playable.add(file);
+        }
+        if (playable.isEmpty())
+            throw new IllegalStateException("Es gibt keinen gueltigen Level!");
+        return new LevelSequence(catalog, playable.toArray(new String[0]));
     }
 }
@@ -4,20 +4,32 @@ import org.newdawn.slick.*;
 import org.newdawn.slick.state.BasicGameState;
 import org.newdawn.slick.state.StateBasedGame;
 
+import tud.ai1.pacman.model.AutoSaver;
+import tud.ai1.pacman.model.FixedStepClock;
+import tud.ai1.pacman.model.GameSnapshot;
 import tud.ai1.pacman.model.PacmanGame;
+import tud.ai1.pacman.model.PickupLayer;
+import tud.ai1.pacman.model.Replay;
+import tud.ai1.pacman.model.ReplayWriter;
+import tud.ai1.pacman.model.RewindBuffer;
+import tud.ai1.pacman.model.SaveFile;
 import tud.ai1.pacman.model.entity.GameEntity;
-import tud.ai1.pacman.model.entity.Ghost;
+import tud.ai1.pacman.model.entity.GhostStore;
 import tud.ai1.pacman.model.entity.Pacman;
 import tud.ai1.pacman.model.entity.pickup.Dot;
 import tud.ai1.pacman.model.entity.pickup.PowerUp;
 import tud.ai1.pacman.model.entity.pickup.SpeedUp;
 import tud.ai1.pacman.model.entity.pickup.Teleporter;
 import tud.ai1.pacman.model.level.Level;
-import tud.ai1.pacman.model.level.LevelParser;
+import tud.ai1.pacman.model.level.LevelCatalog;
+import tud.ai1.pacman.model.level.LevelSequence;
 import tud.ai1.pacman.util.Consts;
 import tud.ai1.pacman.view.Theme;
 
 import java.io.*;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.Random;
 
 /**
  * Eigentlicher Spielzustand.
@@ -38,12 +50,20 @@ public class GamePlayState extends BasicGameState {
     private int[][] neededTexture;
 
     /** Die gespielten Level */
-    private Level[] levelList;
+    private LevelSequence levelList;
     /** Aktuelle Level-ID */
     private int currentLevelIndex;
 
     /** Das Spielfenster */
     private GameContainer gc;
+    /** Noch nicht simulierte Zeit in Nanosekunden */
+    private long pendingTime;
+    /** Simulationsschritte seit dem letzten automatischen Speichern */
+    private int ticksSinceSave;
+    /** Aufzeichnung der letzten Schritte zum Zurueckspulen, null falls abgeschaltet */
+    private RewindBuffer rewind;
+    /** Aufzeichnung der Eingaben zum Nachspielen, null falls abgeschaltet */
+    private Replay replay;
 
     /**
      * Konstruktor.
@@ -67,11 +87,33 @@ public class GamePlayState extends BasicGameState {
      * @param levels zu spielende Level
      */
     public void startGame(Level[] levels) {
-        this.game = new PacmanGame();
+        try {
+            startGame(new LevelSequence(levels));
+        } catch (Exception e) {
+            // die level liegen bereits vor
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Starte das Spiel. Noch nicht geladene Level werden erst bei Bedarf
+     * geladen, der jeweils naechste im Hintergrund.
+     *
+     * @param levels zu spielende Level
+     * @throws Exception falls der erste Level nicht geladen werden kann
+     */
+    public void startGame(LevelSequence levels) throws Exception {
+        long seed = new Random().nextLong();
+        this.game = new PacmanGame(new FixedStepClock(), seed);
+        replay = ReplayWriter.getShared() != null ? new Replay(seed) : null;
+        pendingTime = 0;
+        ticksSinceSave = 0;
         levelList = levels;
         currentLevelIndex = 0;
-        changeLevel(levels[currentLevelIndex]);
         theme = Theme.currentTheme;
+        changeLevel(levels.get(currentLevelIndex));
+        levels.prefetch((currentLevelIndex + 1) % levels.size());
+        initRewind();
     }
 
     /**
@@ -80,18 +122,27 @@ public class GamePlayState extends BasicGameState {
      * @param path Dateipfad
      */
     public void resumeGame(String path) throws Exception {
-        DataInputStream s;
-        s = new DataInputStream(new FileInputStream(path));
-        levelList = new Level[s.readInt()];
-        for (int i = 0; i < levelList.length; i++) {
-            levelList[i] = LevelParser.fromString(s.readUTF());
-            levelList[i].setName(s.readUTF());
-        }
-        currentLevelIndex = s.readInt();
-        this.game = new PacmanGame(s);
-        s.close();
+        // ein noch ausstehender spielstand soll zuerst geschrieben sein
+        AutoSaver.getShared().flush();
+        SaveFile save = SaveFile.read(Paths.get(path), new FixedStepClock());
+        levelList = save.getLevels();
+        currentLevelIndex = save.getCurrentLevel();
+        this.game = save.getGame();
+        // fortgesetzte spiele lassen sich nicht aus dem seed nachspielen
+        replay = null;
+        pendingTime = 0;
+        ticksSinceSave = 0;
         theme = Theme.currentTheme;
         initLevelVisualisation();
+        initRewind();
+    }
+
+    /**
+     * Beginnt eine neue Aufzeichnung zum Zurueckspulen fuer das aktuelle Spiel.
+     */
+    private void initRewind() {
+        rewind = Consts.REWIND_TICKS > 0
+                ? new RewindBuffer(game, Consts.REWIND_TICKS, Consts.REWIND_KEYFRAME_TICKS) : null;
     }
 
     /**
@@ -101,6 +152,11 @@ public class GamePlayState extends BasicGameState {
      */
     public void changeLevel(Level level) {
         game.changeLevel(level);
+        if (replay != null) {
+            // level aus dem levelordner werden nur ueber ihren hash referenziert
+            Level played = game.getLevel();
+            replay.addLevel(game.getTicks(), played, LevelCatalog.getShared().findByHash(played.contentHash()) == null);
+        }
         initLevelVisualisation();
     }
 
@@ -145,71 +201,154 @@ public class GamePlayState extends BasicGameState {
 
     public void update(GameContainer gc, StateBasedGame sbg, int delta) throws SlickException {
         if (game != null) {
-            game.updateFrame();
+            // vergangene zeit in festen simulationsschritten nachholen
+            pendingTime += delta * 1000000L;
+            int steps = 0;
+            while (pendingTime >= Consts.TICK_TIME && steps < Consts.MAX_TICKS_PER_FRAME) {
+                pendingTime -= Consts.TICK_TIME;
+                steps++;
+                game.tick();
+                if (checkGameState(sbg)) return;
+                if (rewind != null)
+                    rewind.record();
+                if (Consts.AUTOSAVE_TICKS > 0 && ++ticksSinceSave >= Consts.AUTOSAVE_TICKS)
+                    autosave();
+            }
+            // bei zu grossem rueckstand nicht endlos weiter aufholen
+            if (pendingTime >= Consts.TICK_TIME)
+                pendingTime = 0;
+
             handleInput(gc.getInput(), gc, sbg);
+        }
+    }
 
-            if (game.isWon()) {
-                // naechstes Level in der liste starten
-                currentLevelIndex = (currentLevelIndex + 1) % levelList.length;
-                changeLevel(levelList[currentLevelIndex]);
-            } else if (game.isLost()) {
-                // spielstand loeschen, falls vorhanden
-                if (new File(Consts.SAVE_FILE).isFile())
-                    new File(Consts.SAVE_FILE).delete();
-
-                // menustate ueber moegliche Aenderungen der Verfuegbarkeit eines Spielstands informieren
-                MenuState menu = (MenuState) sbg.getState(Consts.MENU_STATE);
-                menu.updateButtons();
-                // loststate ueber neuen punktestand informieren und anzeigen
-                GameLostState s = (GameLostState) sbg.getState(Consts.LOST_STATE);
-                s.setPoints(game.getPoints());
-                sbg.enterState(Consts.LOST_STATE);
+    /**
+     * Wechselt nach einem gewonnenen Level zum naechsten Level bzw.
+     * zum Verloren-Bildschirm, wenn das Spiel verloren ist.
+     *
+     * @param sbg das Spiel, in dem der Zustand gewechselt wird
+     * @return true <=> Spiel ist verloren
+     */
+    private boolean checkGameState(StateBasedGame sbg) {
+        if (game.isWon()) {
+            // naechstes Level in der liste starten, das darauf folgende vorladen
+            currentLevelIndex = (currentLevelIndex + 1) % levelList.size();
+            try {
+                changeLevel(levelList.get(currentLevelIndex));
+            } catch (Exception e) {
+                e.printStackTrace();
+                sbg.enterState(Consts.MENU_STATE);
+                return true;
             }
+            levelList.prefetch((currentLevelIndex + 1) % levelList.size());
+            // nicht in den vorherigen level zurueckspulen
+            if (rewind != null)
+                rewind.clear();
+        } else if (game.isLost()) {
+            finishReplay();
+            // spielstand loeschen, falls vorhanden
+            try {
+                AutoSaver.getShared().delete();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            // menustate ueber moegliche Aenderungen der Verfuegbarkeit eines Spielstands informieren
+            MenuState menu = (MenuState) sbg.getState(Consts.MENU_STATE);
+            menu.updateButtons();
+            // loststate ueber neuen punktestand informieren und anzeigen
+            GameLostState s = (GameLostState) sbg.getState(Consts.LOST_STATE);
+            s.setPoints(game.getPoints());
+            sbg.enterState(Consts.LOST_STATE);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Uebergibt eine Momentaufnahme des Spiels zum Speichern im Hintergrund.
+     */
+    private void autosave() {
+        ticksSinceSave = 0;
+        try {
+            AutoSaver.getShared().save(new GameSnapshot(levelList, currentLevelIndex, game));
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
+    /**
+     * Schliesst die Aufzeichnung der Eingaben ab und gibt sie zum Schreiben
+     * in den Ordner {@link Consts#REPLAY_FOLDER} im Hintergrund ab.
+     */
+    private void finishReplay() {
+        if (replay == null) return;
+        replay.finish(game.getTicks(), game.getPoints());
+        String name = String.format("%1$tY%1$tm%1$td-%1$tH%1$tM%1$tS_%2$016x", new Date(), replay.getSeed());
+        ReplayWriter.getShared().write(replay, name);
+        replay = null;
+    }
+
+    /**
+     * Bewegt Pacman und zeichnet die Bewegung fuer das Nachspielen auf.
+     *
+     * @param dx Differenz in X-Richtung
+     * @param dy Differenz in Y-Richtung
+     */
+    private void movePacman(int dx, int dy) {
+        // nur erfolgreiche bewegungen veraendern das spiel
+        if (game.movePacman(dx, dy) && replay != null)
+            replay.addInput(game.getTicks(), dx, dy);
+    }
+
+    /**
+     * Fuehrt einen Cheat aus und zeichnet ihn fuer das Nachspielen auf.
+     *
+     * @param cheat Nummer des Cheats, siehe {@link PacmanGame#cheat(int)}
+     */
+    private void cheat(int cheat) {
+        game.cheat(cheat);
+        if (replay != null)
+            replay.addCheat(game.getTicks(), cheat);
+    }
+
     /**
      * Laesst Pacman steuern bzw. das Spiel unterbrechen.
      */
     private void handleInput(Input input, GameContainer gc, StateBasedGame sbg) {
     	
         if (input.isKeyPressed(Input.KEY_ESCAPE)) {
-            DataOutputStream s;
-            try {
-                // Spielstand speichern
-                s = new DataOutputStream(new FileOutputStream(Consts.SAVE_FILE));
-                s.writeInt(levelList.length);
-                for (Level level : levelList) {
-                    s.writeUTF(level.toString());
-                    s.writeUTF(level.getName());
-                }
-                s.writeInt(currentLevelIndex);
-                game.saveGame(s);
-                s.close();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+            // Spielstand im hintergrund speichern
+            autosave();
+            finishReplay();
 
             // zum Menue wechseln
             MenuState menu = (MenuState) sbg.getState(Consts.MENU_STATE);
             menu.updateButtons();
             sbg.enterState(Consts.MENU_STATE);
+        } else if (input.isKeyPressed(Input.KEY_BACK) && rewind != null) {
+            // einige sekunden zurueckspulen
+            rewind.rewindBy(Consts.REWIND_STEP_TICKS);
+            // die verworfenen eingaben gehoeren nicht mehr zum spiel
+            if (replay != null)
+                replay.truncate(game.getTicks());
+            pendingTime = 0;
         } else if (input.isKeyDown(Input.KEY_UP))
-            game.movePacman(0, -1);
+            movePacman(0, -1);
         else if (input.isKeyDown(Input.KEY_DOWN))
-            game.movePacman(0, 1);
+            movePacman(0, 1);
         else if (input.isKeyDown(Input.KEY_LEFT))
-            game.movePacman(-1, 0);
+            movePacman(-1, 0);
         else if (input.isKeyDown(Input.KEY_RIGHT))
-            game.movePacman(1, 0);
+            movePacman(1, 0);
         else if (input.isKeyPressed(Input.KEY_1))
-        	game.giveLivesCheat();
+        	cheat(PacmanGame.CHEAT_LIVES);
         else if (input.isKeyPressed(Input.KEY_2))
-        	game.givePointsCheat();
+        	cheat(PacmanGame.CHEAT_POINTS);
         else if (input.isKeyPressed(Input.KEY_3))
-        	game.givePowerupCheat();
+        	cheat(PacmanGame.CHEAT_POWERUP);
         else if (input.isKeyPressed(Input.KEY_4))
-        	game.resetGhostsCheat();
+        	cheat(PacmanGame.CHEAT_GHOSTS);
     }
 
     /**
@@ -251,6 +390,21 @@ public class GamePlayState extends BasicGameState {
     private void drawEntites(Graphics g) {
         Pacman pacman = game.getPacman();
 
+        PickupLayer pickups = game.getPickups();
+        int w = pickups.getWidth();
+        for (int i = pickups.nextDot(0); i >= 0; i = pickups.nextDot(i + 1))
+            g.drawImage(theme.DOT, (i % w) * theme.TILE_SIZE, (i / w) * theme.TILE_SIZE + Consts.INFO_BAR_HEIGHT);
+
+        for (int i = pickups.nextItem(0); i >= 0; i = pickups.nextItem(i + 1)) {
+            Image img;
+            switch (pickups.getAt(i)) {
+                case PickupLayer.POWER_UP: img = theme.POWER_UP; break;
+                case PickupLayer.SPEED_UP: img = theme.SPEED_UP; break;
+                default: img = theme.TELEPORTER; break;
+            }
+            g.drawImage(img, (i % w) * theme.TILE_SIZE, (i / w) * theme.TILE_SIZE + Consts.INFO_BAR_HEIGHT);
+        }
+
         for (GameEntity entity : game.getEntities()) {
             if (entity instanceof Dot)
                 g.drawImage(theme.DOT, entity.getPos().x * theme.TILE_SIZE, entity.getPos().y * theme.TILE_SIZE + Consts.INFO_BAR_HEIGHT);
@@ -260,12 +414,14 @@ public class GamePlayState extends BasicGameState {
                 g.drawImage(theme.SPEED_UP, entity.getPos().x * theme.TILE_SIZE, entity.getPos().y * theme.TILE_SIZE + Consts.INFO_BAR_HEIGHT);
             if (entity instanceof Teleporter)
                 g.drawImage(theme.TELEPORTER, entity.getPos().x * theme.TILE_SIZE, entity.getPos().y * theme.TILE_SIZE + Consts.INFO_BAR_HEIGHT);
-            if (entity instanceof Ghost) {
-                // die textur ist von der nummer, blickrichtung und "fressbarkeit" abhaengig
-                Ghost ghost = (Ghost) entity;
-                int index = pacman.isPoweredUp() && !ghost.isIdle() ? theme.GHOST.length - 1 : ghost.getNumber() * Consts.NUM_GHOSTS + ghost.getDir();
-                g.drawImage(theme.GHOST[index], entity.getPos().x * theme.TILE_SIZE, entity.getPos().y * theme.TILE_SIZE + Consts.INFO_BAR_HEIGHT);
-            }
+        }
+
+        GhostStore ghosts = game.getGhosts();
+        for (int i = 0; i < ghosts.size(); i++) {
+            // die textur ist von der nummer, blickrichtung und "fressbarkeit" abhaengig
+            int index = pacman.isPoweredUp() && !ghosts.isIdle(i) ? theme.GHOST.length - 1
+                    : ghosts.getNumber(i) % Consts.NUM_GHOSTS * Consts.NUM_GHOSTS + ghosts.getDir(i);
+            g.drawImage(theme.GHOST[index], ghosts.getX(i) * theme.TILE_SIZE, ghosts.getY(i) * theme.TILE_SIZE + Consts.INFO_BAR_HEIGHT);
         }
 
         // faerbung der spielfigur je nach aktivierten items
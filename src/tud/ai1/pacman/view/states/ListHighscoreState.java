@@ -101,11 +101,11 @@ public class ListHighscoreState extends BasicGameState {
      * Zeigt alle Eintraege entsprechend an.
      */
     private void printEntries(Graphics g) {
-        List<HighscoreEntry> entries = hs.getAllEntries();
+        List<HighscoreEntry> entries = hs.getTopEntries(Consts.HIGHSCORE_DISPLAYED_ENTRIES);
         g.setFont(listFont);
         int offset = 80;
         String points;
-        for (int i = 0; i < Math.min(entries.size(), Consts.HIGHSCORE_DISPLAYED_ENTRIES); i++) {
+        for (int i = 0; i < entries.size(); i++) {
             HighscoreEntry he = entries.get(i);
 
             points = String.format("%09d", he.getPoints());
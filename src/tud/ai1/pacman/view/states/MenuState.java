@@ -11,7 +11,9 @@ import org.newdawn.slick.geom.Vector2f;
 import org.newdawn.slick.state.BasicGameState;
 import org.newdawn.slick.state.StateBasedGame;
 
-import tud.ai1.pacman.model.level.Level;
+import tud.ai1.pacman.model.AutoSaver;
+import tud.ai1.pacman.model.level.LevelCatalog;
+import tud.ai1.pacman.model.level.LevelPool;
 import tud.ai1.pacman.util.Consts;
 import tud.ai1.pacman.view.ButtonEntity;
 import tud.ai1.pacman.view.Theme;
@@ -19,7 +21,6 @@ import tud.ai1.pacman.view.actions.GenerateLevelAction;
 import tud.ai1.pacman.view.actions.ResumeGameAction;
 import tud.ai1.pacman.view.actions.StartGameAction;
 
-import java.io.File;
 import java.io.IOException;
 
 /**
@@ -81,8 +82,10 @@ public class MenuState extends BasicGameState {
         buttonContinue.setPosition(new Vector2f(width / 1.05f - buttonFont.getWidth("resume game")/2f, height - 5 * buttonFont.getLineHeight() - 4 * buttonMargin));
         entityManager.addEntity(getID(), buttonContinue);
 
-        // verfuegbare level auflisten
-        String[] levels = Level.listLevelFiles();
+        // verfuegbare level auflisten, nur neue oder geaenderte dateien werden gelesen
+        String[] levels = LevelCatalog.getShared().getFiles();
+        // zufallslevel schon im hintergrund generieren lassen
+        LevelPool.getShared();
 
         ButtonEntity startNewGame = new ButtonEntity("start new game", (gc1, sb1, delta, event) -> {
             new OptionFrame(levels).waitForStart();
@@ -152,7 +155,7 @@ public class MenuState extends BasicGameState {
      * Passt die klickbarkeit des "Continue" Buttons an
      */
     public void updateButtons() {
-        if (new File(Consts.SAVE_FILE).isFile()) buttonContinue.enable();
+        if (AutoSaver.getShared().hasSave()) buttonContinue.enable();
         else buttonContinue.disable();
     }
 